@@ -0,0 +1,88 @@
+package com.englishtown.vertx.http.benchmarks;
+
+import com.englishtown.vertx.http.impl.VertxHttpServletRequest;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import javax.servlet.http.Cookie;
+import java.util.Enumeration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the first call to common {@link VertxHttpServletRequest} accessors.  Each benchmark wraps the request again
+ * because the wrapper caches most results, {@link #construct()} is the baseline to subtract.  Run with
+ * <code>-prof gc</code> to see the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AccessorBenchmark {
+
+    private StubHttpServerRequest request;
+
+    @Setup
+    public void setUp() {
+        request = new StubHttpServerRequest()
+                .setScheme("http")
+                .setHost("www.example.com")
+                .setPath("/app/orders/list")
+                .setQuery("page=2&size=50&sort=created&tag=a&tag=b")
+                .setAbsoluteURI("http://www.example.com/app/orders/list?page=2&size=50&sort=created&tag=a&tag=b");
+
+        request.headers()
+                .add("Host", "www.example.com")
+                .add("User-Agent", "Mozilla/5.0 (X11; Linux x86_64; rv:52.0) Gecko/20100101 Firefox/52.0")
+                .add("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8")
+                .add("Accept-Language", "en-US,en;q=0.9,de;q=0.5")
+                .add("Accept-Encoding", "gzip, deflate")
+                .add("Cookie", "JSESSIONID=8f2a1c0e4b7d; theme=dark; locale=en_US; _ga=GA1.2.1234567890.1490000000")
+                .add("If-Modified-Since", "Sun, 06 Nov 1994 08:49:37 GMT")
+                .add("Connection", "keep-alive");
+
+        request.params()
+                .add("page", "2")
+                .add("size", "50")
+                .add("sort", "created")
+                .add("tag", "a")
+                .add("tag", "b");
+    }
+
+    @Benchmark
+    public VertxHttpServletRequest construct() {
+        return new VertxHttpServletRequest(request);
+    }
+
+    @Benchmark
+    public Cookie[] getCookies() {
+        return new VertxHttpServletRequest(request).getCookies();
+    }
+
+    @Benchmark
+    public long getDateHeader() {
+        return new VertxHttpServletRequest(request).getDateHeader("If-Modified-Since");
+    }
+
+    @Benchmark
+    public Map<String, String[]> getParameterMap() {
+        return new VertxHttpServletRequest(request).getParameterMap();
+    }
+
+    @Benchmark
+    public void getHeaderNames(Blackhole blackhole) {
+        Enumeration<String> names = new VertxHttpServletRequest(request).getHeaderNames();
+        while (names.hasMoreElements()) {
+            blackhole.consume(names.nextElement());
+        }
+    }
+
+    @Benchmark
+    public Locale getLocale() {
+        return new VertxHttpServletRequest(request).getLocale();
+    }
+
+}
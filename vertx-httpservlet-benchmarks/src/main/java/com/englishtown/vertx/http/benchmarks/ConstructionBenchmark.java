@@ -0,0 +1,55 @@
+package com.englishtown.vertx.http.benchmarks;
+
+import com.englishtown.vertx.http.impl.VertxHttpServletRequest;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of wrapping a request and resolving its URI, with and without {@link io.vertx.core.http.HttpServerRequest#absoluteURI()}
+ * available.  Run with <code>-prof gc</code> to see the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConstructionBenchmark {
+
+    @Param({"true", "false"})
+    public boolean absoluteUri;
+
+    private StubHttpServerRequest request;
+
+    @Setup
+    public void setUp() {
+        request = new StubHttpServerRequest()
+                .setScheme("http")
+                .setHost("www.example.com:8080")
+                .setPath("/app/orders/list")
+                .setQuery("page=2&size=50&sort=created%20desc");
+        request.headers().add("Host", "www.example.com:8080");
+        if (absoluteUri) {
+            request.setAbsoluteURI("http://www.example.com:8080/app/orders/list?page=2&size=50&sort=created%20desc");
+        }
+    }
+
+    @Benchmark
+    public VertxHttpServletRequest construct() {
+        return new VertxHttpServletRequest(request);
+    }
+
+    @Benchmark
+    public int serverNameAndPort() {
+        VertxHttpServletRequest servletRequest = new VertxHttpServletRequest(request);
+        return servletRequest.getServerName().length() + servletRequest.getServerPort();
+    }
+
+    @Benchmark
+    public URI parseUri() {
+        return new VertxHttpServletRequest(request).getURI();
+    }
+
+}
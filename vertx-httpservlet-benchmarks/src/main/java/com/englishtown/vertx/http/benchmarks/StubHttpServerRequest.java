@@ -0,0 +1,226 @@
+package com.englishtown.vertx.http.benchmarks;
+
+import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.*;
+import io.vertx.core.net.NetSocket;
+import io.vertx.core.net.SocketAddress;
+
+import javax.security.cert.X509Certificate;
+
+/**
+ * Plain {@link HttpServerRequest} for benchmarks, a mock would dominate the measured time and allocations
+ */
+public class StubHttpServerRequest implements HttpServerRequest {
+
+    private final MultiMap headers = new CaseInsensitiveHeaders();
+    private final MultiMap params = new CaseInsensitiveHeaders();
+    private HttpMethod method = HttpMethod.GET;
+    private String scheme;
+    private String host;
+    private String path;
+    private String query;
+    private String absoluteURI;
+
+    public StubHttpServerRequest setScheme(String scheme) {
+        this.scheme = scheme;
+        return this;
+    }
+
+    public StubHttpServerRequest setHost(String host) {
+        this.host = host;
+        return this;
+    }
+
+    public StubHttpServerRequest setPath(String path) {
+        this.path = path;
+        return this;
+    }
+
+    public StubHttpServerRequest setQuery(String query) {
+        this.query = query;
+        return this;
+    }
+
+    public StubHttpServerRequest setAbsoluteURI(String absoluteURI) {
+        this.absoluteURI = absoluteURI;
+        return this;
+    }
+
+    public StubHttpServerRequest setMethod(HttpMethod method) {
+        this.method = method;
+        return this;
+    }
+
+    @Override
+    public HttpServerRequest exceptionHandler(Handler<Throwable> handler) {
+        return this;
+    }
+
+    @Override
+    public HttpServerRequest handler(Handler<Buffer> handler) {
+        return this;
+    }
+
+    @Override
+    public HttpServerRequest pause() {
+        return this;
+    }
+
+    @Override
+    public HttpServerRequest resume() {
+        return this;
+    }
+
+    @Override
+    public HttpServerRequest endHandler(Handler<Void> endHandler) {
+        return this;
+    }
+
+    @Override
+    public HttpVersion version() {
+        return HttpVersion.HTTP_1_1;
+    }
+
+    @Override
+    public HttpMethod method() {
+        return method;
+    }
+
+    @Override
+    public String rawMethod() {
+        return method.name();
+    }
+
+    @Override
+    public boolean isSSL() {
+        return "https".equals(scheme);
+    }
+
+    @Override
+    public String scheme() {
+        return scheme;
+    }
+
+    @Override
+    public String uri() {
+        return query == null ? path : path + "?" + query;
+    }
+
+    @Override
+    public String path() {
+        return path;
+    }
+
+    @Override
+    public String query() {
+        return query;
+    }
+
+    @Override
+    public String host() {
+        return host;
+    }
+
+    @Override
+    public HttpServerResponse response() {
+        return null;
+    }
+
+    @Override
+    public MultiMap headers() {
+        return headers;
+    }
+
+    @Override
+    public String getHeader(String headerName) {
+        return headers.get(headerName);
+    }
+
+    @Override
+    public String getHeader(CharSequence headerName) {
+        return headers.get(headerName);
+    }
+
+    @Override
+    public MultiMap params() {
+        return params;
+    }
+
+    @Override
+    public String getParam(String paramName) {
+        return params.get(paramName);
+    }
+
+    @Override
+    public SocketAddress remoteAddress() {
+        return null;
+    }
+
+    @Override
+    public SocketAddress localAddress() {
+        return null;
+    }
+
+    @Override
+    public X509Certificate[] peerCertificateChain() {
+        return null;
+    }
+
+    @Override
+    public String absoluteURI() {
+        return absoluteURI;
+    }
+
+    @Override
+    public NetSocket netSocket() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public HttpServerRequest setExpectMultipart(boolean expect) {
+        return this;
+    }
+
+    @Override
+    public boolean isExpectMultipart() {
+        return false;
+    }
+
+    @Override
+    public HttpServerRequest uploadHandler(Handler<HttpServerFileUpload> uploadHandler) {
+        return this;
+    }
+
+    @Override
+    public MultiMap formAttributes() {
+        return new CaseInsensitiveHeaders();
+    }
+
+    @Override
+    public String getFormAttribute(String attributeName) {
+        return null;
+    }
+
+    @Override
+    public ServerWebSocket upgrade() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean isEnded() {
+        return true;
+    }
+
+    @Override
+    public HttpServerRequest customFrameHandler(Handler<HttpFrame> handler) {
+        return this;
+    }
+
+    @Override
+    public HttpConnection connection() {
+        return null;
+    }
+
+}
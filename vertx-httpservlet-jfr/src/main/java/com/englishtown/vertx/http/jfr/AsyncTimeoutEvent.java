@@ -0,0 +1,24 @@
+package com.englishtown.vertx.http.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * An async request timed out before it was completed or dispatched
+ */
+@Name("com.englishtown.vertx.http.AsyncTimeout")
+@Label("Servlet Async Timeout")
+@Category({"vert.x", "Servlet"})
+@Description("An async request timed out before it was completed or dispatched")
+@StackTrace(false)
+class AsyncTimeoutEvent extends ServletEvent {
+
+    @Label("Timeout")
+    @Timespan(Timespan.MILLISECONDS)
+    long timeout;
+
+}
@@ -0,0 +1,29 @@
+package com.englishtown.vertx.http.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Time from attaching the body stream to the end of the request body
+ */
+@Name("com.englishtown.vertx.http.BodyRead")
+@Label("Servlet Body Read")
+@Category({"vert.x", "Servlet"})
+@Description("Time from attaching the body stream to the end of the request body")
+@StackTrace(false)
+class BodyReadEvent extends ServletEvent {
+
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+}
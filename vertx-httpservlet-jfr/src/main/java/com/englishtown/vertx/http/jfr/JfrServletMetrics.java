@@ -0,0 +1,101 @@
+package com.englishtown.vertx.http.jfr;
+
+import com.englishtown.vertx.http.impl.ServletHandler;
+import com.englishtown.vertx.http.impl.ServletMetrics;
+import io.vertx.core.http.HttpServerRequest;
+
+/**
+ * {@link ServletMetrics} that emits Java Flight Recorder events, set it with
+ * {@link ServletHandler#setMetrics(ServletMetrics)}.
+ * <p>
+ * Each phase event is begun in {@link #begin} when the phase starts and committed when it ends, so its start time and
+ * duration line up with GC and event loop activity in the same recording.  The event is committed on the thread that
+ * ends the phase, the servlet thread for the queue wait.  The bridge's own measurement is kept in the
+ * <code>elapsed</code> field.  While an event type is disabled in the recording settings nothing is begun or
+ * committed.
+ */
+public class JfrServletMetrics implements ServletMetrics {
+
+    @Override
+    public Object begin(Phase phase, HttpServerRequest request) {
+        ServletEvent event;
+        switch (phase) {
+            case QUEUE_WAIT:
+                event = new QueueWaitEvent();
+                break;
+            case SERVICE:
+                event = new ServletDispatchEvent();
+                break;
+            case BODY_READ:
+                event = new BodyReadEvent();
+                break;
+            case RESPONSE_FLUSH:
+                event = new ResponseFlushEvent();
+                break;
+            default:
+                return null;
+        }
+        if (!event.isEnabled()) {
+            return null;
+        }
+        describe(event, request);
+        event.begin();
+        return event;
+    }
+
+    @Override
+    public void queueWait(HttpServerRequest request, Object token, long nanos) {
+        if (token instanceof QueueWaitEvent) {
+            QueueWaitEvent event = (QueueWaitEvent) token;
+            event.elapsed = nanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void service(HttpServerRequest request, Object token, long nanos) {
+        if (token instanceof ServletDispatchEvent) {
+            ServletDispatchEvent event = (ServletDispatchEvent) token;
+            event.elapsed = nanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void bodyRead(HttpServerRequest request, Object token, long nanos, long bytes) {
+        if (token instanceof BodyReadEvent) {
+            BodyReadEvent event = (BodyReadEvent) token;
+            event.elapsed = nanos;
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void responseFlush(HttpServerRequest request, Object token, long nanos, long bytes) {
+        if (token instanceof ResponseFlushEvent) {
+            ResponseFlushEvent event = (ResponseFlushEvent) token;
+            event.elapsed = nanos;
+            event.bytes = bytes;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void asyncTimeout(HttpServerRequest request, long timeout) {
+        AsyncTimeoutEvent event = new AsyncTimeoutEvent();
+        if (event.isEnabled()) {
+            describe(event, request);
+            event.timeout = timeout;
+            event.commit();
+        }
+    }
+
+    private static void describe(ServletEvent event, HttpServerRequest request) {
+        if (request != null) {
+            event.method = request.rawMethod();
+            event.path = request.path();
+        }
+    }
+
+}
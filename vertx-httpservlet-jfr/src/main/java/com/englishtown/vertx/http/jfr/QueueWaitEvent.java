@@ -0,0 +1,24 @@
+package com.englishtown.vertx.http.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Time a request waited for a servlet thread
+ */
+@Name("com.englishtown.vertx.http.QueueWait")
+@Label("Servlet Queue Wait")
+@Category({"vert.x", "Servlet"})
+@Description("Time a request waited for a servlet thread")
+@StackTrace(false)
+class QueueWaitEvent extends ServletEvent {
+
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+
+}
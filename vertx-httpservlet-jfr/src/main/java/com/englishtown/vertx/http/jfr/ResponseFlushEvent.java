@@ -0,0 +1,29 @@
+package com.englishtown.vertx.http.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Time taken to flush the buffered output and end the response
+ */
+@Name("com.englishtown.vertx.http.ResponseFlush")
+@Label("Servlet Response Flush")
+@Category({"vert.x", "Servlet"})
+@Description("Time taken to flush the buffered output and end the response")
+@StackTrace(false)
+class ResponseFlushEvent extends ServletEvent {
+
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+}
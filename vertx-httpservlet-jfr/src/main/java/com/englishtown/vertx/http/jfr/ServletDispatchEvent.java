@@ -0,0 +1,24 @@
+package com.englishtown.vertx.http.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Time spent in Servlet.service for one request
+ */
+@Name("com.englishtown.vertx.http.ServletDispatch")
+@Label("Servlet Dispatch")
+@Category({"vert.x", "Servlet"})
+@Description("Time spent in Servlet.service for one request")
+@StackTrace(false)
+class ServletDispatchEvent extends ServletEvent {
+
+    @Label("Elapsed")
+    @Timespan(Timespan.NANOSECONDS)
+    long elapsed;
+
+}
@@ -0,0 +1,17 @@
+package com.englishtown.vertx.http.jfr;
+
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+
+/**
+ * Base of the servlet bridge events, carries the request the event belongs to
+ */
+abstract class ServletEvent extends Event {
+
+    @Label("Method")
+    String method;
+
+    @Label("Path")
+    String path;
+
+}
@@ -0,0 +1,86 @@
+package com.englishtown.vertx.http.jfr;
+
+import com.englishtown.vertx.http.impl.ServletMetrics;
+import io.vertx.core.http.HttpServerRequest;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link JfrServletMetrics}
+ */
+public class JfrServletMetricsTest {
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private HttpServerRequest request;
+
+    @Test
+    public void testEvents() throws Exception {
+
+        when(request.rawMethod()).thenReturn("POST");
+        when(request.path()).thenReturn("/admin/users");
+        JfrServletMetrics metrics = new JfrServletMetrics();
+
+        Path file = Files.createTempFile("servlet", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("com.englishtown.vertx.http.ServletDispatch");
+            recording.enable("com.englishtown.vertx.http.BodyRead");
+            recording.start();
+
+            Object dispatchToken = metrics.begin(ServletMetrics.Phase.SERVICE, request);
+            Object bodyToken = metrics.begin(ServletMetrics.Phase.BODY_READ, request);
+            Thread.sleep(5);
+            metrics.service(request, dispatchToken, 1500000);
+            metrics.bodyRead(request, bodyToken, 2000, 512);
+            // Not enabled in the recording
+            Object flushToken = metrics.begin(ServletMetrics.Phase.RESPONSE_FLUSH, request);
+            assertNull(flushToken);
+            metrics.responseFlush(request, flushToken, 1000, 100);
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file).stream()
+                .filter(e -> e.getEventType().getName().startsWith("com.englishtown.vertx.http."))
+                .collect(Collectors.toList());
+        Files.delete(file);
+
+        assertEquals(2, events.size());
+        RecordedEvent dispatch = events.stream()
+                .filter(e -> e.getEventType().getName().endsWith("ServletDispatch"))
+                .findFirst().get();
+        assertEquals("POST", dispatch.getString("method"));
+        assertEquals("/admin/users", dispatch.getString("path"));
+        assertEquals(Duration.ofNanos(1500000), dispatch.getDuration("elapsed"));
+        // Begun when the phase started rather than when it was reported
+        assertTrue(dispatch.getStartTime().isBefore(dispatch.getEndTime()));
+        assertTrue(dispatch.getDuration().compareTo(Duration.ofMillis(5)) >= 0);
+
+        RecordedEvent bodyRead = events.stream()
+                .filter(e -> e.getEventType().getName().endsWith("BodyRead"))
+                .findFirst().get();
+        assertEquals(512, bodyRead.getLong("bytes"));
+
+    }
+
+}
@@ -0,0 +1,178 @@
+package com.englishtown.vertx.http.impl;
+
+import java.util.*;
+
+/**
+ * Thread safe parser for the <code>Accept-Language</code> header (RFC 7231 section 5.3.5).
+ * <p>
+ * Language ranges are ordered by their q-value, highest first, ranges with the same weight keep their header order.
+ * Ranges with <code>q=0</code>, the <code>*</code> wildcard and malformed entries are dropped.  A few hundred distinct
+ * header values make up most traffic, so parsed lists are kept in a shared {@link LookupCache} keyed by header value,
+ * sized so those values rarely compete for a set.
+ */
+public final class AcceptLanguageParser {
+
+    // Longer values are parsed on every call rather than allowed to push the common ones out of the cache
+    static final int MAX_CACHED_LENGTH = 256;
+
+    private static final LookupCache<String, List<Locale>> CACHE = new LookupCache<>(128, 8);
+
+    private AcceptLanguageParser() {
+    }
+
+    /**
+     * Parses an Accept-Language header
+     *
+     * @param header the header value, may be null
+     * @return an unmodifiable list of locales in order of preference, empty if the header has no usable range
+     */
+    public static List<Locale> parse(String header) {
+        if (header == null || header.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (header.length() > MAX_CACHED_LENGTH) {
+            return parseUncached(header);
+        }
+
+        List<Locale> locales = CACHE.get(header);
+        if (locales == null) {
+            locales = parseUncached(header);
+            CACHE.put(header, locales);
+        }
+        return locales;
+    }
+
+    static List<Locale> parseUncached(String header) {
+        int len = header.length();
+        Locale[] locales = new Locale[4];
+        int[] weights = new int[4];
+        int count = 0;
+        int pos = 0;
+
+        while (pos < len) {
+            int end = header.indexOf(',', pos);
+            if (end < 0) {
+                end = len;
+            }
+            int semi = header.indexOf(';', pos);
+            int tagEnd = semi >= 0 && semi < end ? semi : end;
+
+            int weight = tagEnd < end ? weight(header, tagEnd, end) : 1000;
+            Locale locale = weight > 0 ? locale(header, pos, tagEnd) : null;
+            pos = end + 1;
+            if (locale == null) {
+                continue;
+            }
+
+            if (count == locales.length) {
+                locales = Arrays.copyOf(locales, count * 2);
+                weights = Arrays.copyOf(weights, count * 2);
+            }
+            // Insertion sort, stable so equal weights keep the header order
+            int i = count++;
+            while (i > 0 && weights[i - 1] < weight) {
+                locales[i] = locales[i - 1];
+                weights[i] = weights[i - 1];
+                i--;
+            }
+            locales[i] = locale;
+            weights[i] = weight;
+        }
+
+        if (count == 0) {
+            return Collections.emptyList();
+        }
+        if (count == 1) {
+            return Collections.singletonList(locales[0]);
+        }
+        return Collections.unmodifiableList(Arrays.asList(Arrays.copyOf(locales, count)));
+    }
+
+    /**
+     * Converts a language range like <code>en-US</code> to a locale
+     *
+     * @return the locale, or null for the wildcard and malformed ranges
+     */
+    private static Locale locale(String header, int start, int end) {
+        while (start < end && header.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && header.charAt(end - 1) == ' ') {
+            end--;
+        }
+        if (start == end || (end - start == 1 && header.charAt(start) == '*')) {
+            return null;
+        }
+        for (int i = start; i < end; i++) {
+            char c = header.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '-')) {
+                return null;
+            }
+        }
+        Locale locale = Locale.forLanguageTag(header.substring(start, end));
+        return locale.getLanguage().isEmpty() ? null : locale;
+    }
+
+    /**
+     * Reads the q parameter of a language range as thousandths
+     *
+     * @return the weight from 0 to 1000, 0 if the q-value is malformed
+     */
+    private static int weight(String header, int start, int end) {
+        int pos = start;
+        while (pos < end) {
+            // Skip ';' and whitespace before the parameter name
+            while (pos < end && (header.charAt(pos) == ';' || header.charAt(pos) == ' ')) {
+                pos++;
+            }
+            int eq = header.indexOf('=', pos);
+            int next = header.indexOf(';', pos);
+            if (next < 0 || next > end) {
+                next = end;
+            }
+            if (eq < 0 || eq > next) {
+                pos = next;
+                continue;
+            }
+            if (eq - pos == 1 && (header.charAt(pos) == 'q' || header.charAt(pos) == 'Q')) {
+                return qvalue(header, eq + 1, next);
+            }
+            pos = next;
+        }
+        return 1000;
+    }
+
+    private static int qvalue(String header, int start, int end) {
+        while (start < end && header.charAt(start) == ' ') {
+            start++;
+        }
+        while (end > start && header.charAt(end - 1) == ' ') {
+            end--;
+        }
+        if (start == end) {
+            return 0;
+        }
+
+        char first = header.charAt(start);
+        if (first != '0' && first != '1') {
+            return 0;
+        }
+        int value = (first - '0') * 1000;
+        int pos = start + 1;
+        if (pos < end) {
+            if (header.charAt(pos) != '.' || end - pos > 4) {
+                return 0;
+            }
+            int scale = 100;
+            for (pos++; pos < end; pos++, scale /= 10) {
+                char c = header.charAt(pos);
+                if (c < '0' || c > '9') {
+                    return 0;
+                }
+                value += (c - '0') * scale;
+            }
+        }
+        return value > 1000 ? 0 : value;
+    }
+
+}
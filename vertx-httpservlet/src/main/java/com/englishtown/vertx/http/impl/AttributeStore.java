@@ -0,0 +1,102 @@
+package com.englishtown.vertx.http.impl;
+
+import java.util.*;
+
+/**
+ * Request attribute store sized for the typical handful of attributes.
+ * <p>
+ * Up to {@link #INLINE_CAPACITY} attributes are kept in parallel name/value arrays searched linearly, larger stores
+ * switch to a {@link HashMap}.  Not thread safe, like the servlet request it belongs to.
+ */
+final class AttributeStore {
+
+    static final int INLINE_CAPACITY = 8;
+
+    private String[] names = new String[4];
+    private Object[] values = new Object[4];
+    private int size;
+    private Map<String, Object> map;
+
+    Object get(String name) {
+        if (map != null) {
+            return map.get(name);
+        }
+        int index = indexOf(name);
+        return index < 0 ? null : values[index];
+    }
+
+    /**
+     * @return the previous value or null
+     */
+    Object put(String name, Object value) {
+        if (map != null) {
+            return map.put(name, value);
+        }
+
+        int index = indexOf(name);
+        if (index >= 0) {
+            Object previous = values[index];
+            values[index] = value;
+            return previous;
+        }
+
+        if (size == INLINE_CAPACITY) {
+            map = new HashMap<>(INLINE_CAPACITY * 4);
+            for (int i = 0; i < size; i++) {
+                map.put(names[i], values[i]);
+            }
+            names = null;
+            values = null;
+            size = 0;
+            return map.put(name, value);
+        }
+
+        if (size == names.length) {
+            names = Arrays.copyOf(names, INLINE_CAPACITY);
+            values = Arrays.copyOf(values, INLINE_CAPACITY);
+        }
+        names[size] = name;
+        values[size] = value;
+        size++;
+        return null;
+    }
+
+    /**
+     * @return the removed value or null
+     */
+    Object remove(String name) {
+        if (map != null) {
+            return map.remove(name);
+        }
+
+        int index = indexOf(name);
+        if (index < 0) {
+            return null;
+        }
+        Object previous = values[index];
+        int last = --size;
+        // Order is not significant, move the last entry into the hole
+        names[index] = names[last];
+        values[index] = values[last];
+        names[last] = null;
+        values[last] = null;
+        return previous;
+    }
+
+    Enumeration<String> names() {
+        if (map != null) {
+            return Collections.enumeration(new ArrayList<>(map.keySet()));
+        }
+        return Collections.enumeration(Arrays.asList(Arrays.copyOf(names, size)));
+    }
+
+    private int indexOf(String name) {
+        for (int i = 0; i < size; i++) {
+            if (names[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+}
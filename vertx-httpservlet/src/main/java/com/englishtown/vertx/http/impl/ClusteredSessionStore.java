@@ -0,0 +1,181 @@
+package com.englishtown.vertx.http.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+import io.vertx.core.shareddata.AsyncMap;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.UnaryOperator;
+
+/**
+ * Cluster wide {@link SessionStore} on a vert.x {@link AsyncMap}.
+ * <p>
+ * Entries are written with the session's max inactive interval as TTL, so the cluster map expires abandoned sessions
+ * by itself.  A bounded per node near-cache keeps recently used snapshots for {@link #NEAR_CACHE_TTL} ms so the
+ * requests of an active session, usually routed to the same node, do not each pay a cluster round trip.  Changes
+ * made on other nodes can therefore be seen up to that long after they were written.
+ * <p>
+ * Updates compare and set against the map entry, like {@link LocalSessionStore}, so two nodes changing the same
+ * session do not lose each other's attributes.
+ */
+final class ClusteredSessionStore implements SessionStore {
+
+    static final int NEAR_CACHE_SIZE = 1024;
+    static final long NEAR_CACHE_TTL = 1000;
+    static final long GET_TIMEOUT = 10000;
+    static final int MAX_UPDATE_ATTEMPTS = 16;
+
+    private static final Logger logger = LoggerFactory.getLogger(ClusteredSessionStore.class);
+
+    private final AsyncMap<String, SessionData> map;
+    private final Map<String, CacheEntry> nearCache = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+            return size() > NEAR_CACHE_SIZE;
+        }
+    };
+
+    ClusteredSessionStore(AsyncMap<String, SessionData> map) {
+        this.map = map;
+    }
+
+    @Override
+    public SessionData get(String id) {
+        long now = System.currentTimeMillis();
+        synchronized (nearCache) {
+            CacheEntry entry = nearCache.get(id);
+            if (entry != null && entry.fetched + NEAR_CACHE_TTL > now) {
+                return entry.data;
+            }
+        }
+
+        if (Context.isOnEventLoopThread()) {
+            throw new IllegalStateException("Blocking session lookup on the event loop thread");
+        }
+        CompletableFuture<SessionData> future = new CompletableFuture<>();
+        map.get(id, complete(future));
+        SessionData data;
+        try {
+            data = future.get(GET_TIMEOUT, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("Failed to load session " + id, e);
+        }
+        cache(id, data, now);
+        return data;
+    }
+
+    @Override
+    public void put(SessionData data) {
+        cache(data.getId(), data, System.currentTimeMillis());
+        write(data);
+    }
+
+    @Override
+    public void update(String id, UnaryOperator<SessionData> update) {
+        update(id, update, 1);
+    }
+
+    private void update(String id, UnaryOperator<SessionData> update, int attempt) {
+        map.get(id, ar -> {
+            if (ar.failed()) {
+                logger.warn("Failed to load session " + id, ar.cause());
+                return;
+            }
+            SessionData current = ar.result();
+            if (current == null) {
+                cache(id, null, System.currentTimeMillis());
+                return;
+            }
+            SessionData data = update.apply(current);
+            // The entry keeps its TTL, which cluster managers like Hazelcast count from the last write
+            map.replaceIfPresent(id, current, data, replaced -> {
+                if (replaced.failed()) {
+                    logger.warn("Failed to store session " + id, replaced.cause());
+                } else if (replaced.result()) {
+                    cache(id, data, System.currentTimeMillis());
+                } else if (attempt < MAX_UPDATE_ATTEMPTS) {
+                    // Changed by another request in the meantime, merge into the new value
+                    update(id, update, attempt + 1);
+                } else {
+                    logger.warn("Gave up storing session " + id + " after " + attempt + " conflicting updates");
+                }
+            });
+        });
+    }
+
+    @Override
+    public void remove(String id) {
+        cache(id, null, System.currentTimeMillis());
+        map.remove(id, ar -> {
+            if (ar.failed()) {
+                logger.warn("Failed to remove session " + id, ar.cause());
+            }
+        });
+    }
+
+    @Override
+    public void sweep(long now) {
+        // The cluster map expires entries by TTL, only drop stale near-cache entries here
+        synchronized (nearCache) {
+            Iterator<CacheEntry> it = nearCache.values().iterator();
+            while (it.hasNext()) {
+                CacheEntry entry = it.next();
+                if (entry.fetched + NEAR_CACHE_TTL <= now || (entry.data != null && entry.data.isExpired(now))) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    private void write(SessionData data) {
+        Handler<AsyncResult<Void>> handler = ar -> {
+            if (ar.failed()) {
+                logger.warn("Failed to store session " + data.getId(), ar.cause());
+            }
+        };
+        if (data.getMaxInactiveInterval() > 0) {
+            map.put(data.getId(), data, data.getMaxInactiveInterval() * 1000L, handler);
+        } else {
+            map.put(data.getId(), data, handler);
+        }
+    }
+
+    private void cache(String id, SessionData data, long now) {
+        synchronized (nearCache) {
+            nearCache.put(id, new CacheEntry(data, now));
+        }
+    }
+
+    private static <T> Handler<AsyncResult<T>> complete(CompletableFuture<T> future) {
+        return ar -> {
+            if (ar.succeeded()) {
+                future.complete(ar.result());
+            } else {
+                future.completeExceptionally(ar.cause());
+            }
+        };
+    }
+
+    private static final class CacheEntry {
+        private final SessionData data;
+        private final long fetched;
+
+        private CacheEntry(SessionData data, long fetched) {
+            this.data = data;
+            this.fetched = fetched;
+        }
+    }
+
+}
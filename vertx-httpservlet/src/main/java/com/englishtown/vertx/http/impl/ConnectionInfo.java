@@ -0,0 +1,107 @@
+package com.englishtown.vertx.http.impl;
+
+import io.vertx.core.http.HttpConnection;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.net.SocketAddress;
+
+import javax.net.ssl.SSLPeerUnverifiedException;
+import java.io.ByteArrayInputStream;
+import java.security.cert.CertificateException;
+import java.security.cert.CertificateFactory;
+import java.security.cert.X509Certificate;
+
+/**
+ * Remote/local address and TLS data of the connection a request arrived on.
+ * <p>
+ * Resolved once per {@link HttpConnection} and kept in a small shared cache, so the requests of a keep-alive
+ * connection share one instance.  The {@link LookupCache} compares connections by identity and only holds weak
+ * references to them, a closed connection does not outlive its last request.
+ */
+final class ConnectionInfo {
+
+    private static final LookupCache<HttpConnection, ConnectionInfo> CACHE = LookupCache.withWeakIdentityKeys(64, 4);
+    private static final X509Certificate[] NO_CERTIFICATES = new X509Certificate[0];
+
+    private final String remoteAddr;
+    private final int remotePort;
+    private final String localAddr;
+    private final int localPort;
+    // Resolved on first use, racy but every thread computes the same chain
+    private volatile X509Certificate[] peerCertificates;
+
+    private ConnectionInfo(SocketAddress remote, SocketAddress local) {
+        remoteAddr = remote == null ? null : remote.host();
+        remotePort = remote == null ? -1 : remote.port();
+        localAddr = local == null ? null : local.host();
+        localPort = local == null ? -1 : local.port();
+    }
+
+    /**
+     * @return the connection data of the request
+     */
+    static ConnectionInfo of(HttpServerRequest request) {
+        HttpConnection connection = request.connection();
+        if (connection == null) {
+            return new ConnectionInfo(request.remoteAddress(), request.localAddress());
+        }
+
+        ConnectionInfo info = CACHE.get(connection);
+        if (info == null) {
+            info = new ConnectionInfo(request.remoteAddress(), request.localAddress());
+            CACHE.put(connection, info);
+        }
+        return info;
+    }
+
+    String getRemoteAddr() {
+        return remoteAddr;
+    }
+
+    int getRemotePort() {
+        return remotePort;
+    }
+
+    String getLocalAddr() {
+        return localAddr;
+    }
+
+    int getLocalPort() {
+        return localPort;
+    }
+
+    /**
+     * @return the client certificate chain, or null if the connection is not TLS or the client sent no certificate
+     */
+    X509Certificate[] getPeerCertificates(HttpServerRequest request) {
+        X509Certificate[] certificates = peerCertificates;
+        if (certificates == null) {
+            certificates = resolvePeerCertificates(request);
+            peerCertificates = certificates;
+        }
+        return certificates.length == 0 ? null : certificates.clone();
+    }
+
+    private static X509Certificate[] resolvePeerCertificates(HttpServerRequest request) {
+        if (!request.isSSL()) {
+            return NO_CERTIFICATES;
+        }
+        try {
+            javax.security.cert.X509Certificate[] chain = request.peerCertificateChain();
+            if (chain == null || chain.length == 0) {
+                return NO_CERTIFICATES;
+            }
+            // vert.x exposes the legacy javax.security.cert types, the servlet attribute uses java.security.cert
+            CertificateFactory factory = CertificateFactory.getInstance("X.509");
+            X509Certificate[] certificates = new X509Certificate[chain.length];
+            for (int i = 0; i < chain.length; i++) {
+                certificates[i] = (X509Certificate) factory.generateCertificate(
+                        new ByteArrayInputStream(chain[i].getEncoded()));
+            }
+            return certificates;
+        } catch (SSLPeerUnverifiedException | CertificateException
+                | javax.security.cert.CertificateEncodingException e) {
+            return NO_CERTIFICATES;
+        }
+    }
+
+}
@@ -0,0 +1,144 @@
+package com.englishtown.vertx.http.impl;
+
+import javax.servlet.http.Cookie;
+import java.util.Arrays;
+
+/**
+ * Single pass parser for the RFC 6265 <code>Cookie</code> request header
+ * (<code>name1=value1; name2="value2"</code>).
+ * <p>
+ * Legacy RFC 2965 attributes like <code>$Version</code> or <code>$Path</code> and names the servlet {@link Cookie}
+ * class rejects are skipped rather than failing the whole header.
+ */
+public final class CookieParser {
+
+    private static final Cookie[] EMPTY_COOKIES = new Cookie[0];
+
+    private CookieParser() {
+    }
+
+    /**
+     * Parses all cookies of a <code>Cookie</code> header
+     *
+     * @param header the header value, may be null
+     * @return the cookies in header order, never null
+     */
+    public static Cookie[] parse(String header) {
+        if (header == null || header.isEmpty()) {
+            return EMPTY_COOKIES;
+        }
+
+        Cookie[] cookies = new Cookie[8];
+        int count = 0;
+        int len = header.length();
+        int pos = 0;
+
+        while (pos < len) {
+            int nameStart = skipWhitespace(header, pos, len);
+            int pairEnd = indexOf(header, ';', nameStart, len);
+            int eq = indexOf(header, '=', nameStart, pairEnd);
+            int nameEnd = trimEnd(header, nameStart, eq);
+            pos = pairEnd + 1;
+
+            if (eq == pairEnd || nameEnd == nameStart || header.charAt(nameStart) == '$') {
+                continue;
+            }
+
+            Cookie cookie = newCookie(header.substring(nameStart, nameEnd), header, eq + 1, pairEnd);
+            if (cookie == null) {
+                continue;
+            }
+            if (count == cookies.length) {
+                cookies = Arrays.copyOf(cookies, count * 2);
+            }
+            cookies[count++] = cookie;
+        }
+
+        if (count == 0) {
+            return EMPTY_COOKIES;
+        }
+        return count == cookies.length ? cookies : Arrays.copyOf(cookies, count);
+    }
+
+    /**
+     * Finds the first cookie with the given name without creating cookies for the rest of the header
+     *
+     * @param header the header value, may be null
+     * @param name   the cookie name
+     * @return the cookie or null if not present
+     */
+    public static Cookie find(String header, String name) {
+        if (header == null || name == null || name.isEmpty()) {
+            return null;
+        }
+
+        int len = header.length();
+        int nameLen = name.length();
+        int pos = 0;
+
+        while (pos < len) {
+            int nameStart = skipWhitespace(header, pos, len);
+            int pairEnd = indexOf(header, ';', nameStart, len);
+            pos = pairEnd + 1;
+
+            // Compare in place before looking for the '=' so non matching pairs cost a single regionMatches()
+            if (pairEnd - nameStart <= nameLen || !header.regionMatches(nameStart, name, 0, nameLen)) {
+                continue;
+            }
+            int eq = indexOf(header, '=', nameStart + nameLen, pairEnd);
+            if (eq == pairEnd || trimEnd(header, nameStart, eq) != nameStart + nameLen) {
+                continue;
+            }
+
+            Cookie cookie = newCookie(name, header, eq + 1, pairEnd);
+            if (cookie != null) {
+                return cookie;
+            }
+        }
+
+        return null;
+    }
+
+    private static Cookie newCookie(String name, String header, int valueStart, int valueEnd) {
+        valueStart = skipWhitespace(header, valueStart, valueEnd);
+        valueEnd = trimEnd(header, valueStart, valueEnd);
+        if (valueEnd - valueStart >= 2 && header.charAt(valueStart) == '"' && header.charAt(valueEnd - 1) == '"') {
+            valueStart++;
+            valueEnd--;
+        }
+        try {
+            return new Cookie(name, header.substring(valueStart, valueEnd));
+        } catch (IllegalArgumentException e) {
+            // Reserved or invalid cookie name
+            return null;
+        }
+    }
+
+    private static int indexOf(String s, char c, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (s.charAt(i) == c) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    private static int skipWhitespace(String s, int from, int to) {
+        while (from < to && isWhitespace(s.charAt(from))) {
+            from++;
+        }
+        return from;
+    }
+
+    private static int trimEnd(String s, int from, int to) {
+        while (to > from && isWhitespace(s.charAt(to - 1))) {
+            to--;
+        }
+        return to;
+    }
+
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t';
+    }
+
+}
@@ -0,0 +1,186 @@
+package com.englishtown.vertx.http.impl;
+
+import io.vertx.core.buffer.Buffer;
+
+import java.nio.charset.Charset;
+import java.util.*;
+
+/**
+ * Incremental application/x-www-form-urlencoded decoder.
+ * <p>
+ * Body chunks are decoded as they are passed to {@link #decode(Buffer)}, a field or percent-escape may span chunks.
+ * Escapes are decoded into a byte buffer that is reused for every name and value, so the only allocations per field
+ * are the resulting strings.  Malformed escapes are kept as literal characters.  Exceeding the field count or body
+ * size limit throws an {@link IllegalStateException}, like the multipart limits.
+ */
+final class FormUrlDecoder {
+
+    static final int DEFAULT_MAX_FIELDS = 1000;
+    static final long DEFAULT_MAX_SIZE = 2 * 1024 * 1024;
+
+    private static final int NONE = 0;
+    private static final int PERCENT = 1;
+    private static final int PERCENT_HEX = 2;
+
+    private final Charset charset;
+    private final int maxFields;
+    private final long maxSize;
+    private final Map<String, List<String>> fields = new LinkedHashMap<>();
+
+    private byte[] token = new byte[64];
+    private int length;
+    private String name;
+    private int escape = NONE;
+    private int escapeHigh;
+    private byte escapeFirst;
+    private long size;
+    private int count;
+
+    /**
+     * @param charset   the charset of the decoded bytes
+     * @param maxFields the maximum number of fields, or -1 for no limit
+     * @param maxSize   the maximum body size in bytes, or -1 for no limit
+     */
+    FormUrlDecoder(Charset charset, int maxFields, long maxSize) {
+        this.charset = charset;
+        this.maxFields = maxFields;
+        this.maxSize = maxSize;
+    }
+
+    void decode(Buffer chunk) {
+        int len = chunk.length();
+        size += len;
+        if (maxSize >= 0 && size > maxSize) {
+            throw new IllegalStateException("Form body exceeds the maximum size of " + maxSize);
+        }
+        for (int i = 0; i < len; i++) {
+            decode(chunk.getByte(i));
+        }
+    }
+
+    /**
+     * Completes the last field
+     *
+     * @return the decoded fields in body order
+     */
+    Map<String, List<String>> end() {
+        flushEscape();
+        endField();
+        return fields;
+    }
+
+    private void decode(byte b) {
+        switch (escape) {
+            case PERCENT: {
+                int digit = hex(b);
+                if (digit >= 0) {
+                    escapeHigh = digit;
+                    escapeFirst = b;
+                    escape = PERCENT_HEX;
+                    return;
+                }
+                flushEscape();
+                break;
+            }
+            case PERCENT_HEX: {
+                int digit = hex(b);
+                if (digit >= 0) {
+                    escape = NONE;
+                    append((byte) (escapeHigh << 4 | digit));
+                    return;
+                }
+                flushEscape();
+                break;
+            }
+            default:
+                break;
+        }
+
+        switch (b) {
+            case '&':
+                endField();
+                break;
+            case '=':
+                if (name == null) {
+                    name = token();
+                } else {
+                    append(b);
+                }
+                break;
+            case '+':
+                append((byte) ' ');
+                break;
+            case '%':
+                escape = PERCENT;
+                break;
+            default:
+                append(b);
+                break;
+        }
+    }
+
+    /**
+     * Appends an incomplete escape literally
+     */
+    private void flushEscape() {
+        if (escape == NONE) {
+            return;
+        }
+        append((byte) '%');
+        if (escape == PERCENT_HEX) {
+            append(escapeFirst);
+        }
+        escape = NONE;
+    }
+
+    private void endField() {
+        String value;
+        if (name == null) {
+            if (length == 0) {
+                // Empty field, e.g. "a=1&&b=2"
+                return;
+            }
+            name = token();
+            value = "";
+        } else {
+            value = token();
+        }
+        if (name.isEmpty()) {
+            name = null;
+            return;
+        }
+
+        if (maxFields >= 0 && ++count > maxFields) {
+            throw new IllegalStateException("Form body exceeds the maximum of " + maxFields + " fields");
+        }
+        fields.computeIfAbsent(name, k -> new ArrayList<>(1)).add(value);
+        name = null;
+    }
+
+    private String token() {
+        String s = new String(token, 0, length, charset);
+        length = 0;
+        return s;
+    }
+
+    private void append(byte b) {
+        if (length == token.length) {
+            token = Arrays.copyOf(token, length * 2);
+        }
+        token[length++] = b;
+    }
+
+    private static int hex(byte b) {
+        if (b >= '0' && b <= '9') {
+            return b - '0';
+        }
+        if (b >= 'a' && b <= 'f') {
+            return b - 'a' + 10;
+        }
+        if (b >= 'A' && b <= 'F') {
+            return b - 'A' + 10;
+        }
+        return -1;
+    }
+
+}
@@ -0,0 +1,20 @@
+package com.englishtown.vertx.http.impl;
+
+/**
+ * The forwarding headers the trusted proxies maintain.  Only that family is honored: a proxy that appends to one
+ * family passes the other through untouched, so its values would come straight from the client.
+ */
+public enum ForwardedHeaderFormat {
+
+    /**
+     * The RFC 7239 <code>Forwarded</code> header
+     */
+    FORWARDED,
+
+    /**
+     * The de facto <code>X-Forwarded-For</code>, <code>X-Forwarded-Proto</code> and <code>X-Forwarded-Host</code>
+     * headers
+     */
+    X_FORWARDED
+
+}
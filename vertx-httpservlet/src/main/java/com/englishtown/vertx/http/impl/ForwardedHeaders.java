@@ -0,0 +1,173 @@
+package com.englishtown.vertx.http.impl;
+
+import io.vertx.core.MultiMap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Client address, scheme and host as reported by trusted proxies in the <code>Forwarded</code> (RFC 7239) or
+ * <code>X-Forwarded-For</code>/<code>-Proto</code>/<code>-Host</code> headers.
+ * <p>
+ * The hops are walked from the closest proxy towards the client, the client is the first hop that is not a trusted
+ * proxy.  Scheme and host are taken from the same hop, so a value injected by the client before the first trusted
+ * proxy is ignored.  Only the header family the proxies maintain is read, see {@link ForwardedHeaderFormat}.
+ */
+final class ForwardedHeaders {
+
+    private final String remoteAddr;
+    private final String scheme;
+    private final String host;
+
+    private ForwardedHeaders(String remoteAddr, String scheme, String host) {
+        this.remoteAddr = remoteAddr;
+        this.scheme = scheme;
+        this.host = host;
+    }
+
+    /**
+     * Resolves the forwarded headers of a request
+     *
+     * @param headers the request headers
+     * @param peer    the address of the directly connected peer
+     * @param proxies the trusted proxies
+     * @param format  the header family the proxies maintain
+     * @return the forwarded values, or null if the peer is not a trusted proxy or the request was not forwarded
+     */
+    static ForwardedHeaders resolve(MultiMap headers, String peer, TrustedProxies proxies,
+                                    ForwardedHeaderFormat format) {
+        if (!proxies.isTrusted(peer)) {
+            return null;
+        }
+
+        if (format == ForwardedHeaderFormat.FORWARDED) {
+            return resolveForwarded(headers.getAll("Forwarded"), proxies);
+        }
+
+        List<String> hops = split(headers.getAll("X-Forwarded-For"));
+        if (hops.isEmpty()) {
+            return null;
+        }
+        for (int i = 0; i < hops.size(); i++) {
+            hops.set(i, stripPort(hops.get(i)));
+        }
+        int index = clientIndex(hops, proxies);
+        String scheme = hopValue(split(headers.getAll("X-Forwarded-Proto")), hops.size(), index);
+        String host = hopValue(split(headers.getAll("X-Forwarded-Host")), hops.size(), index);
+        return new ForwardedHeaders(hops.get(index), scheme, host);
+    }
+
+    private static ForwardedHeaders resolveForwarded(List<String> values, TrustedProxies proxies) {
+        List<String> elements = split(values);
+        if (elements.isEmpty()) {
+            return null;
+        }
+        List<String> hops = new ArrayList<>(elements.size());
+        for (String element : elements) {
+            String address = parameter(element, "for");
+            hops.add(address == null ? "" : stripPort(address));
+        }
+        int index = clientIndex(hops, proxies);
+        String element = elements.get(index);
+        String address = hops.get(index);
+        return new ForwardedHeaders(address.isEmpty() ? null : address, parameter(element, "proto"),
+                parameter(element, "host"));
+    }
+
+    /**
+     * @return the index of the rightmost hop that is not a trusted proxy, or 0 if all are trusted
+     */
+    private static int clientIndex(List<String> hops, TrustedProxies proxies) {
+        int index = hops.size() - 1;
+        while (index > 0 && proxies.isTrusted(hops.get(index))) {
+            index--;
+        }
+        return index;
+    }
+
+    /**
+     * Proxies append to each list in step, when the counts do not match the lists cannot be aligned and only the
+     * value of the closest proxy is used
+     */
+    private static String hopValue(List<String> values, int hops, int index) {
+        if (values.isEmpty()) {
+            return null;
+        }
+        return values.size() == hops ? values.get(index) : values.get(values.size() - 1);
+    }
+
+    /**
+     * @return the value of a <code>name=value</code> pair of a Forwarded element, unquoted
+     */
+    private static String parameter(String element, String name) {
+        int start = 0;
+        int len = element.length();
+        while (start < len) {
+            int end = element.indexOf(';', start);
+            if (end < 0) {
+                end = len;
+            }
+            int eq = element.indexOf('=', start);
+            if (eq > start && eq < end && element.substring(start, eq).trim().equalsIgnoreCase(name)) {
+                String value = element.substring(eq + 1, end).trim();
+                if (value.length() >= 2 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"') {
+                    value = value.substring(1, value.length() - 1);
+                }
+                return value;
+            }
+            start = end + 1;
+        }
+        return null;
+    }
+
+    /**
+     * Strips the port and brackets of a node, e.g. <code>[2001:db8::1]:4711</code> or <code>192.0.2.43:47011</code>
+     */
+    private static String stripPort(String node) {
+        if (node.startsWith("[")) {
+            int end = node.indexOf(']');
+            return end < 0 ? node : node.substring(1, end);
+        }
+        int colon = node.indexOf(':');
+        return colon >= 0 && colon == node.lastIndexOf(':') ? node.substring(0, colon) : node;
+    }
+
+    /**
+     * Splits comma separated header values over all header lines.  Quoted Forwarded values never contain a comma in
+     * practice, so quotes are not tracked.
+     */
+    private static List<String> split(List<String> values) {
+        if (values.isEmpty()) {
+            return values;
+        }
+        List<String> parts = new ArrayList<>(4);
+        for (String value : values) {
+            int start = 0;
+            while (start <= value.length()) {
+                int end = value.indexOf(',', start);
+                if (end < 0) {
+                    end = value.length();
+                }
+                String part = value.substring(start, end).trim();
+                if (!part.isEmpty()) {
+                    parts.add(part);
+                }
+                start = end + 1;
+            }
+        }
+        return parts;
+    }
+
+    String getRemoteAddr() {
+        return remoteAddr;
+    }
+
+    String getScheme() {
+        return scheme;
+    }
+
+    String getHost() {
+        return host;
+    }
+
+}
@@ -0,0 +1,108 @@
+package com.englishtown.vertx.http.impl;
+
+import io.vertx.core.MultiMap;
+
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * {@link Enumeration} views over the entries of a vert.x {@link MultiMap}.
+ * <p>
+ * {@link MultiMap#names()} and {@link MultiMap#getAll(String)} copy the underlying Netty headers into a new set or
+ * list on every call.  These views walk the header entries in request order instead and look ahead for the next
+ * match, so nothing is copied.  Like the Netty iterators they are not safe against concurrent modification of the
+ * headers, which do not change once the request has been received.
+ */
+abstract class HeaderEnumeration implements Enumeration<String> {
+
+    private final Iterator<Map.Entry<String, String>> entries;
+    private String next;
+
+    private HeaderEnumeration(MultiMap headers) {
+        this.entries = headers.iterator();
+    }
+
+    /**
+     * @return the distinct header names, case insensitive, in order of first occurrence
+     */
+    static Enumeration<String> names(MultiMap headers) {
+        return new Names(headers);
+    }
+
+    /**
+     * @return the values of all headers with the given name, case insensitive, in request order
+     */
+    static Enumeration<String> values(MultiMap headers, String name) {
+        return new Values(headers, name);
+    }
+
+    /**
+     * @return the string to return for the entry, or null to skip it
+     */
+    abstract String accept(Map.Entry<String, String> entry);
+
+    @Override
+    public boolean hasMoreElements() {
+        while (next == null && entries.hasNext()) {
+            next = accept(entries.next());
+        }
+        return next != null;
+    }
+
+    @Override
+    public String nextElement() {
+        if (!hasMoreElements()) {
+            throw new NoSuchElementException();
+        }
+        String value = next;
+        next = null;
+        return value;
+    }
+
+    private static final class Names extends HeaderEnumeration {
+
+        // Names returned so far, requests carry few enough headers for a linear scan to beat hashing
+        private String[] seen = new String[16];
+        private int count;
+
+        private Names(MultiMap headers) {
+            super(headers);
+        }
+
+        @Override
+        String accept(Map.Entry<String, String> entry) {
+            String name = entry.getKey();
+            for (int i = 0; i < count; i++) {
+                if (seen[i].equalsIgnoreCase(name)) {
+                    return null;
+                }
+            }
+            if (count == seen.length) {
+                seen = Arrays.copyOf(seen, count * 2);
+            }
+            seen[count++] = name;
+            return name;
+        }
+
+    }
+
+    private static final class Values extends HeaderEnumeration {
+
+        private final String name;
+
+        private Values(MultiMap headers, String name) {
+            super(headers);
+            this.name = name;
+        }
+
+        @Override
+        String accept(Map.Entry<String, String> entry) {
+            return name.equalsIgnoreCase(entry.getKey()) ? entry.getValue() : null;
+        }
+
+    }
+
+}
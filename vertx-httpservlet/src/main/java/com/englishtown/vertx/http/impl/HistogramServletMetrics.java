@@ -0,0 +1,106 @@
+package com.englishtown.vertx.http.impl;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.json.JsonObject;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link ServletMetrics} recording into {@link LatencyHistogram}s and byte counters.
+ * <p>
+ * {@link #toJson()} takes a snapshot in the shape of the vert.x metrics services, {@link #publish} sends it on the
+ * event bus periodically so it can be picked up like other vert.x metrics.
+ */
+public class HistogramServletMetrics implements ServletMetrics {
+
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram service = new LatencyHistogram();
+    private final LatencyHistogram bodyRead = new LatencyHistogram();
+    private final LatencyHistogram responseFlush = new LatencyHistogram();
+    private final LongAdder bytesIn = new LongAdder();
+    private final LongAdder bytesOut = new LongAdder();
+    private final LongAdder asyncTimeouts = new LongAdder();
+
+    @Override
+    public void queueWait(HttpServerRequest request, Object token, long nanos) {
+        queueWait.record(nanos);
+    }
+
+    @Override
+    public void service(HttpServerRequest request, Object token, long nanos) {
+        service.record(nanos);
+    }
+
+    @Override
+    public void bodyRead(HttpServerRequest request, Object token, long nanos, long bytes) {
+        bodyRead.record(nanos);
+        bytesIn.add(bytes);
+    }
+
+    @Override
+    public void responseFlush(HttpServerRequest request, Object token, long nanos, long bytes) {
+        responseFlush.record(nanos);
+        bytesOut.add(bytes);
+    }
+
+    @Override
+    public void asyncTimeout(HttpServerRequest request, long timeout) {
+        asyncTimeouts.increment();
+    }
+
+    public LatencyHistogram getQueueWait() {
+        return queueWait;
+    }
+
+    public LatencyHistogram getService() {
+        return service;
+    }
+
+    public LatencyHistogram getBodyRead() {
+        return bodyRead;
+    }
+
+    public LatencyHistogram getResponseFlush() {
+        return responseFlush;
+    }
+
+    public long getBytesIn() {
+        return bytesIn.sum();
+    }
+
+    public long getBytesOut() {
+        return bytesOut.sum();
+    }
+
+    public long getAsyncTimeouts() {
+        return asyncTimeouts.sum();
+    }
+
+    /**
+     * @return a snapshot of all histograms and counters, durations are in nanoseconds
+     */
+    public JsonObject toJson() {
+        return new JsonObject()
+                .put("queueWait", queueWait.toJson())
+                .put("service", service.toJson())
+                .put("bodyRead", bodyRead.toJson())
+                .put("responseFlush", responseFlush.toJson())
+                .put("bytesIn", getBytesIn())
+                .put("bytesOut", getBytesOut())
+                .put("asyncTimeouts", getAsyncTimeouts());
+    }
+
+    /**
+     * Publishes {@link #toJson()} on the event bus at a fixed interval
+     *
+     * @param vertx    the vert.x instance
+     * @param address  the event bus address
+     * @param interval the interval in milliseconds
+     * @return the id of the periodic timer, cancel it to stop publishing
+     */
+    public long publish(Vertx vertx, String address, long interval) {
+        return vertx.setPeriodic(interval, id -> vertx.eventBus().publish(address, toJson()));
+    }
+
+}
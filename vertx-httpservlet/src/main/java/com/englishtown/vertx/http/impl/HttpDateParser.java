@@ -0,0 +1,286 @@
+package com.englishtown.vertx.http.impl;
+
+/**
+ * Thread safe parser for the three HTTP-date formats accepted by RFC 7231:
+ * <ul>
+ * <li>IMF-fixdate / RFC 1123: <code>Sun, 06 Nov 1994 08:49:37 GMT</code></li>
+ * <li>RFC 850: <code>Sunday, 06-Nov-94 08:49:37 GMT</code></li>
+ * <li>ANSI C asctime(): <code>Sun Nov  6 08:49:37 1994</code></li>
+ * </ul>
+ * Parsing works directly on the characters of the header value and does not allocate.  Recently parsed values are
+ * kept in a small shared {@link LookupCache} so repeated headers like <code>If-Modified-Since</code> are resolved by a lookup.
+ */
+public final class HttpDateParser {
+
+    /**
+     * Returned by {@link #parse(String)} when the value is not a valid HTTP-date
+     */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    private static final LookupCache<String, Long> CACHE = new LookupCache<>(16, 4);
+
+    private static final String MONTHS = "JanFebMarAprMayJunJulAugSepOctNovDec";
+
+    private HttpDateParser() {
+    }
+
+    /**
+     * Parses an HTTP-date
+     *
+     * @param value the header value
+     * @return the number of milliseconds since January 1, 1970 GMT, or {@link #INVALID} if the value is not a
+     * valid HTTP-date
+     */
+    public static long parse(String value) {
+        if (value == null) {
+            return INVALID;
+        }
+
+        Long cached = CACHE.get(value);
+        if (cached != null) {
+            return cached;
+        }
+
+        long millis = parseUncached(value);
+        if (millis != INVALID) {
+            CACHE.put(value, millis);
+        }
+        return millis;
+    }
+
+    static long parseUncached(CharSequence s) {
+        int len = s.length();
+        int pos = 0;
+
+        // Skip leading whitespace and the day name
+        while (pos < len && s.charAt(pos) == ' ') {
+            pos++;
+        }
+        int nameStart = pos;
+        while (pos < len && isAlpha(s.charAt(pos))) {
+            pos++;
+        }
+        if (pos - nameStart < 3 || pos >= len) {
+            return INVALID;
+        }
+
+        if (s.charAt(pos) == ',') {
+            pos++;
+            if (pos >= len || s.charAt(pos) != ' ') {
+                return INVALID;
+            }
+            pos++;
+            // RFC 1123 uses "06 Nov 1994", RFC 850 uses "06-Nov-94"
+            int dayStart = pos;
+            int day = 0;
+            while (pos < len && isDigit(s.charAt(pos))) {
+                day = day * 10 + (s.charAt(pos++) - '0');
+            }
+            if (pos == dayStart || pos - dayStart > 2 || pos >= len) {
+                return INVALID;
+            }
+            char separator = s.charAt(pos);
+            if (separator != ' ' && separator != '-') {
+                return INVALID;
+            }
+            pos++;
+            int month = parseMonth(s, pos);
+            pos += 3;
+            if (month < 0 || pos >= len || s.charAt(pos) != separator) {
+                return INVALID;
+            }
+            pos++;
+            int yearStart = pos;
+            int year = 0;
+            while (pos < len && isDigit(s.charAt(pos))) {
+                year = year * 10 + (s.charAt(pos++) - '0');
+            }
+            int yearDigits = pos - yearStart;
+            if (yearDigits == 2) {
+                year = rfc850Year(year, currentYear());
+            } else if (yearDigits != 4) {
+                return INVALID;
+            }
+            if (pos >= len || s.charAt(pos) != ' ') {
+                return INVALID;
+            }
+            pos++;
+            long seconds = parseTime(s, pos);
+            if (seconds < 0) {
+                return INVALID;
+            }
+            pos += 8;
+            if (!isGmt(s, pos, len)) {
+                return INVALID;
+            }
+            return toMillis(year, month, day, seconds);
+        }
+
+        // asctime: "Sun Nov  6 08:49:37 1994"
+        if (s.charAt(pos) != ' ') {
+            return INVALID;
+        }
+        pos++;
+        int month = parseMonth(s, pos);
+        pos += 3;
+        if (month < 0 || pos >= len || s.charAt(pos) != ' ') {
+            return INVALID;
+        }
+        pos++;
+        if (pos < len && s.charAt(pos) == ' ') {
+            pos++;
+        }
+        int dayStart = pos;
+        int day = 0;
+        while (pos < len && isDigit(s.charAt(pos))) {
+            day = day * 10 + (s.charAt(pos++) - '0');
+        }
+        if (pos == dayStart || pos - dayStart > 2 || pos >= len || s.charAt(pos) != ' ') {
+            return INVALID;
+        }
+        pos++;
+        long seconds = parseTime(s, pos);
+        if (seconds < 0) {
+            return INVALID;
+        }
+        pos += 8;
+        if (pos >= len || s.charAt(pos) != ' ') {
+            return INVALID;
+        }
+        pos++;
+        int yearStart = pos;
+        int year = 0;
+        while (pos < len && isDigit(s.charAt(pos))) {
+            year = year * 10 + (s.charAt(pos++) - '0');
+        }
+        if (pos - yearStart != 4 || !isTrailingSpace(s, pos, len)) {
+            return INVALID;
+        }
+        return toMillis(year, month, day, seconds);
+    }
+
+    private static int parseMonth(CharSequence s, int pos) {
+        if (pos + 3 > s.length()) {
+            return -1;
+        }
+        char c0 = s.charAt(pos);
+        char c1 = s.charAt(pos + 1);
+        char c2 = s.charAt(pos + 2);
+        for (int i = 0; i < 12; i++) {
+            int m = i * 3;
+            if (MONTHS.charAt(m) == c0 && MONTHS.charAt(m + 1) == c1 && MONTHS.charAt(m + 2) == c2) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Parses "HH:mm:ss" starting at pos, returns the seconds of day or -1
+     */
+    private static long parseTime(CharSequence s, int pos) {
+        if (pos + 8 > s.length()) {
+            return -1;
+        }
+        int hour = twoDigits(s, pos);
+        int minute = twoDigits(s, pos + 3);
+        int second = twoDigits(s, pos + 6);
+        if (hour < 0 || minute < 0 || second < 0 || s.charAt(pos + 2) != ':' || s.charAt(pos + 5) != ':'
+                || hour > 23 || minute > 59 || second > 60) {
+            return -1;
+        }
+        return hour * 3600L + minute * 60L + second;
+    }
+
+    private static int twoDigits(CharSequence s, int pos) {
+        char c0 = s.charAt(pos);
+        char c1 = s.charAt(pos + 1);
+        if (!isDigit(c0) || !isDigit(c1)) {
+            return -1;
+        }
+        return (c0 - '0') * 10 + (c1 - '0');
+    }
+
+    private static boolean isGmt(CharSequence s, int pos, int len) {
+        if (pos + 4 > len || s.charAt(pos) != ' '
+                || s.charAt(pos + 1) != 'G' || s.charAt(pos + 2) != 'M' || s.charAt(pos + 3) != 'T') {
+            return false;
+        }
+        return isTrailingSpace(s, pos + 4, len);
+    }
+
+    private static boolean isTrailingSpace(CharSequence s, int pos, int len) {
+        for (int i = pos; i < len; i++) {
+            if (s.charAt(i) != ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Expands an RFC 850 two digit year.  RFC 7231 section 7.1.1.1 reads a year that appears to be more than 50 years
+     * in the future as the most recent year in the past with the same last two digits, so the year is taken from the
+     * 100 year window ending 50 years after the current one.
+     */
+    static int rfc850Year(int twoDigits, int currentYear) {
+        int year = currentYear - currentYear % 100 + twoDigits;
+        if (year > currentYear + 50) {
+            year -= 100;
+        } else if (year <= currentYear - 50) {
+            year += 100;
+        }
+        return year;
+    }
+
+    /**
+     * @return the current UTC year, derived from the clock without allocating
+     */
+    private static int currentYear() {
+        // Civil from days, the inverse of toMillis()
+        long z = Math.floorDiv(System.currentTimeMillis(), 86400000L) + 719468L;
+        long era = Math.floorDiv(z, 146097L);
+        long doe = z - era * 146097L;
+        long yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        long doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        long mp = (5 * doy + 2) / 153;
+        return (int) (yoe + era * 400 + (mp >= 10 ? 1 : 0));
+    }
+
+    private static int daysInMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return year % 4 == 0 && (year % 100 != 0 || year % 400 == 0) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static long toMillis(int year, int month, int day, long secondOfDay) {
+        if (day < 1 || day > daysInMonth(year, month)) {
+            return INVALID;
+        }
+        // Days from civil, see http://howardhinnant.github.io/date_algorithms.html
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yoe = y - era * 400;
+        int doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        long days = era * 146097L + doe - 719468L;
+        return (days * 86400L + secondOfDay) * 1000L;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isAlpha(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+}
@@ -0,0 +1,54 @@
+package com.englishtown.vertx.http.impl;
+
+import io.vertx.core.shareddata.LocalMap;
+
+import java.util.function.UnaryOperator;
+
+/**
+ * Single node {@link SessionStore} on a vert.x {@link LocalMap}.  Snapshots are stored by reference and shared by all
+ * verticles of the node, so this store needs no near-cache.
+ */
+final class LocalSessionStore implements SessionStore {
+
+    private final LocalMap<String, SessionData> map;
+
+    LocalSessionStore(LocalMap<String, SessionData> map) {
+        this.map = map;
+    }
+
+    @Override
+    public SessionData get(String id) {
+        return map.get(id);
+    }
+
+    @Override
+    public void put(SessionData data) {
+        map.put(data.getId(), data);
+    }
+
+    @Override
+    public void update(String id, UnaryOperator<SessionData> update) {
+        // Compare and set so concurrent requests on the same session never lose each other's attributes
+        while (true) {
+            SessionData current = map.get(id);
+            if (current == null || map.replaceIfPresent(id, current, update.apply(current))) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void remove(String id) {
+        map.remove(id);
+    }
+
+    @Override
+    public void sweep(long now) {
+        for (SessionData data : map.values()) {
+            if (data.isExpired(now)) {
+                map.removeIfPresent(data.getId(), data);
+            }
+        }
+    }
+
+}
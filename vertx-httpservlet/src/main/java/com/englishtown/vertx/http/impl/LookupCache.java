@@ -0,0 +1,136 @@
+package com.englishtown.vertx.http.impl;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * Small fixed size cache shared by all threads, for values that are looked up on every request but cheap to
+ * recompute on a miss.
+ * <p>
+ * The table is set associative: a key hashes to a set of a few slots and only competes with the keys of its own set.
+ * A full set evicts an entry that was not read since the set was last swept, approximating least recently used
+ * without tracking order.  Reads and updates take no locks.  Entries are immutable apart from their reference bit, so
+ * a racy read either sees a complete entry or a different/null one, and racing updates at worst drop an entry that is
+ * recomputed on its next miss.
+ * <p>
+ * Keys are compared with <code>equals</code>, or by identity and held weakly for a cache created with
+ * {@link #withWeakIdentityKeys}, so an entry does not keep its key alive.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+final class LookupCache<K, V> {
+
+    private final Entry<V>[] slots;
+    private final int ways;
+    private final int setMask;
+    private final boolean weakIdentityKeys;
+
+    /**
+     * @param sets the number of sets, a power of two
+     * @param ways the number of slots per set
+     */
+    LookupCache(int sets, int ways) {
+        this(sets, ways, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    private LookupCache(int sets, int ways, boolean weakIdentityKeys) {
+        if (Integer.bitCount(sets) != 1 || ways < 1) {
+            throw new IllegalArgumentException("sets must be a power of two and ways positive");
+        }
+        this.slots = (Entry<V>[]) new Entry[sets * ways];
+        this.ways = ways;
+        this.setMask = sets - 1;
+        this.weakIdentityKeys = weakIdentityKeys;
+    }
+
+    /**
+     * Creates a cache that compares keys by identity and only holds weak references to them
+     *
+     * @param sets the number of sets, a power of two
+     * @param ways the number of slots per set
+     */
+    static <K, V> LookupCache<K, V> withWeakIdentityKeys(int sets, int ways) {
+        return new LookupCache<>(sets, ways, true);
+    }
+
+    /**
+     * @return the cached value, or null if the key is not cached
+     */
+    V get(K key) {
+        int hash = hash(key);
+        int base = (hash & setMask) * ways;
+        for (int i = base; i < base + ways; i++) {
+            Entry<V> entry = slots[i];
+            if (entry != null && entry.hash == hash && matches(entry, key)) {
+                if (!entry.used) {
+                    // Only written when it changes so hot entries are not written on every read
+                    entry.used = true;
+                }
+                return entry.value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Caches the value, replacing the entry of the same key, a free slot of the key's set, or else the first entry of
+     * the set that was not read since the last sweep
+     */
+    void put(K key, V value) {
+        int hash = hash(key);
+        int base = (hash & setMask) * ways;
+        int slot = -1;
+        for (int i = base; i < base + ways; i++) {
+            Entry<V> entry = slots[i];
+            if (entry == null || isStale(entry) || (entry.hash == hash && matches(entry, key))) {
+                slot = i;
+                break;
+            }
+        }
+        if (slot < 0) {
+            // Sweep the set, giving every entry read since the last sweep a second chance
+            for (int i = base; i < base + ways; i++) {
+                Entry<V> entry = slots[i];
+                if (entry == null || !entry.used) {
+                    slot = i;
+                    break;
+                }
+                entry.used = false;
+            }
+            if (slot < 0) {
+                slot = base;
+            }
+        }
+        slots[slot] = new Entry<>(weakIdentityKeys ? new WeakReference<>(key) : key, hash, value);
+    }
+
+    private int hash(K key) {
+        int h = weakIdentityKeys ? System.identityHashCode(key) : key.hashCode();
+        // Spread the high bits, String hashes of similar header values differ mostly in the low ones
+        return h ^ (h >>> 16);
+    }
+
+    private boolean matches(Entry<V> entry, K key) {
+        return weakIdentityKeys ? ((WeakReference<?>) entry.key).get() == key : entry.key.equals(key);
+    }
+
+    private boolean isStale(Entry<V> entry) {
+        return weakIdentityKeys && ((WeakReference<?>) entry.key).get() == null;
+    }
+
+    private static final class Entry<V> {
+        private final Object key;
+        private final int hash;
+        private final V value;
+        // Reference bit, racy by design
+        private boolean used;
+
+        private Entry(Object key, int hash, V value) {
+            this.key = key;
+            this.hash = hash;
+            this.value = value;
+        }
+    }
+
+}
@@ -0,0 +1,354 @@
+package com.englishtown.vertx.http.impl;
+
+import javax.servlet.MultipartConfigElement;
+import javax.servlet.http.Part;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Streaming multipart/form-data parser.
+ * <p>
+ * Parts are read from the body stream through a fixed size buffer.  Each part is kept in memory until it grows past
+ * the {@link MultipartConfigElement#getFileSizeThreshold()}, then the buffered bytes and the rest of the part are
+ * written to a temp file in {@link MultipartConfigElement#getLocation()}.  Size limits are checked before bytes are
+ * buffered or written, violations throw an {@link IllegalStateException} as required by
+ * {@link javax.servlet.http.HttpServletRequest#getParts()}.
+ */
+final class MultipartParser {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int MAX_HEADER_SIZE = 16 * 1024;
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+
+    private final InputStream in;
+    private final byte[] delimiter;
+    private final long maxFileSize;
+    private final long maxRequestSize;
+    private final int fileSizeThreshold;
+    private final File location;
+
+    private final byte[] buf;
+    private int start;
+    private int end;
+    private long total;
+
+    MultipartParser(InputStream in, String boundary, MultipartConfigElement config) {
+        this.in = in;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        this.maxFileSize = config.getMaxFileSize();
+        this.maxRequestSize = config.getMaxRequestSize();
+        this.fileSizeThreshold = Math.max(0, config.getFileSizeThreshold());
+
+        String location = config.getLocation();
+        File tmpDir = new File(System.getProperty("java.io.tmpdir"));
+        if (location == null || location.isEmpty()) {
+            this.location = tmpDir;
+        } else {
+            File file = new File(location);
+            this.location = file.isAbsolute() ? file : new File(tmpDir, location);
+        }
+
+        this.buf = new byte[Math.max(BUFFER_SIZE, delimiter.length * 2)];
+    }
+
+    List<Part> parse() throws IOException {
+        List<Part> parts = new ArrayList<>();
+
+        try {
+            // Pretend the body starts with a CRLF so the first boundary matches the delimiter like all others
+            buf[0] = CR;
+            buf[1] = LF;
+            end = 2;
+
+            // Skip the preamble
+            readBody(null);
+
+            while (true) {
+                if (!ensure(2)) {
+                    throw new IOException("Unexpected end of multipart body");
+                }
+                if (buf[start] == '-' && buf[start + 1] == '-') {
+                    // Close delimiter, the epilogue is ignored
+                    break;
+                }
+                // Skip transport padding and the CRLF ending the boundary line
+                String padding = readLine();
+                if (!padding.trim().isEmpty()) {
+                    throw new IOException("Invalid multipart boundary line");
+                }
+
+                Map<String, List<String>> headers = readHeaders();
+                String disposition = first(headers, "content-disposition");
+                VertxPart part = new VertxPart(headers,
+                        dispositionParameter(disposition, "name"),
+                        dispositionParameter(disposition, "filename"),
+                        location);
+                parts.add(part);
+
+                PartSink sink = new PartSink(part);
+                try {
+                    readBody(sink);
+                    sink.finish();
+                } catch (IOException | RuntimeException e) {
+                    sink.abort();
+                    throw e;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            for (Part part : parts) {
+                try {
+                    part.delete();
+                } catch (IOException ignore) {
+                    // Best effort
+                }
+            }
+            throw e;
+        }
+
+        return Collections.unmodifiableList(parts);
+    }
+
+    /**
+     * Passes bytes up to the next delimiter to the sink and consumes the delimiter
+     */
+    private void readBody(PartSink sink) throws IOException {
+        while (true) {
+            int index = indexOfDelimiter();
+            if (index >= 0) {
+                if (sink != null) {
+                    sink.write(buf, start, index - start);
+                }
+                start = index + delimiter.length;
+                return;
+            }
+
+            // Keep a possible partial delimiter at the end of the buffer
+            int safe = end - delimiter.length + 1;
+            if (safe > start) {
+                if (sink != null) {
+                    sink.write(buf, start, safe - start);
+                }
+                start = safe;
+            }
+            if (!fill()) {
+                throw new IOException("Unexpected end of multipart body");
+            }
+        }
+    }
+
+    private int indexOfDelimiter() {
+        byte first = delimiter[0];
+        int last = end - delimiter.length;
+        outer:
+        for (int i = start; i <= last; i++) {
+            if (buf[i] != first) {
+                continue;
+            }
+            for (int j = 1; j < delimiter.length; j++) {
+                if (buf[i + j] != delimiter[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private Map<String, List<String>> readHeaders() throws IOException {
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        int size = 0;
+        String line;
+        while (!(line = readLine()).isEmpty()) {
+            size += line.length();
+            if (size > MAX_HEADER_SIZE) {
+                throw new IOException("Multipart headers too large");
+            }
+            int colon = line.indexOf(':');
+            if (colon <= 0) {
+                continue;
+            }
+            String name = line.substring(0, colon).trim().toLowerCase(Locale.ENGLISH);
+            headers.computeIfAbsent(name, k -> new ArrayList<>(1)).add(line.substring(colon + 1).trim());
+        }
+        return headers;
+    }
+
+    private String readLine() throws IOException {
+        int from = start;
+        while (true) {
+            for (int i = from; i < end - 1; i++) {
+                if (buf[i] == CR && buf[i + 1] == LF) {
+                    String line = new String(buf, start, i - start, StandardCharsets.UTF_8);
+                    start = i + 2;
+                    return line;
+                }
+            }
+            if (end - start >= MAX_HEADER_SIZE) {
+                throw new IOException("Multipart header line too long");
+            }
+            int scanned = end - start;
+            if (!fill()) {
+                throw new IOException("Unexpected end of multipart body");
+            }
+            from = start + Math.max(0, scanned - 1);
+        }
+    }
+
+    private boolean ensure(int n) throws IOException {
+        while (end - start < n) {
+            if (!fill()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compacts the buffer and reads more bytes from the stream
+     *
+     * @return false at the end of the stream
+     */
+    private boolean fill() throws IOException {
+        if (start > 0) {
+            System.arraycopy(buf, start, buf, 0, end - start);
+            end -= start;
+            start = 0;
+        }
+        if (end == buf.length) {
+            // Nothing was consumed, reading zero bytes would never make progress
+            throw new IOException("Multipart buffer full");
+        }
+        int n = in.read(buf, end, buf.length - end);
+        if (n < 0) {
+            return false;
+        }
+        total += n;
+        if (maxRequestSize >= 0 && total > maxRequestSize) {
+            throw new IllegalStateException("Multipart request exceeds the maximum size of " + maxRequestSize);
+        }
+        end += n;
+        return true;
+    }
+
+    private static String first(Map<String, List<String>> headers, String name) {
+        List<String> values = headers.get(name);
+        return values == null ? null : values.get(0);
+    }
+
+    /**
+     * Extracts a parameter like <code>name="field"</code> from a Content-Disposition header
+     */
+    static String dispositionParameter(String disposition, String name) {
+        if (disposition == null) {
+            return null;
+        }
+        int len = disposition.length();
+        int pos = disposition.indexOf(';');
+        while (pos >= 0 && pos < len) {
+            pos++;
+            while (pos < len && disposition.charAt(pos) == ' ') {
+                pos++;
+            }
+            int eq = disposition.indexOf('=', pos);
+            if (eq < 0) {
+                return null;
+            }
+            boolean match = disposition.substring(pos, eq).trim().equalsIgnoreCase(name);
+            pos = eq + 1;
+            String value;
+            if (pos < len && disposition.charAt(pos) == '"') {
+                StringBuilder sb = new StringBuilder();
+                pos++;
+                while (pos < len && disposition.charAt(pos) != '"') {
+                    char c = disposition.charAt(pos++);
+                    if (c == '\\' && pos < len) {
+                        c = disposition.charAt(pos++);
+                    }
+                    sb.append(c);
+                }
+                value = sb.toString();
+                pos = disposition.indexOf(';', pos);
+            } else {
+                int semi = disposition.indexOf(';', pos);
+                value = disposition.substring(pos, semi < 0 ? len : semi).trim();
+                pos = semi;
+            }
+            if (match) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Collects the content of one part, in memory up to the threshold and in a temp file above it
+     */
+    private final class PartSink {
+
+        private final VertxPart part;
+        private byte[] memory = new byte[0];
+        private long size;
+        private File file;
+        private OutputStream out;
+
+        private PartSink(VertxPart part) {
+            this.part = part;
+        }
+
+        void write(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return;
+            }
+            size += len;
+            if (maxFileSize >= 0 && size > maxFileSize) {
+                throw new IllegalStateException("Part " + part.getName() + " exceeds the maximum size of " + maxFileSize);
+            }
+
+            if (out != null) {
+                out.write(b, off, len);
+                return;
+            }
+
+            if (size <= fileSizeThreshold) {
+                if (size > memory.length) {
+                    memory = Arrays.copyOf(memory, (int) Math.min(fileSizeThreshold, Math.max(size, memory.length * 2L)));
+                }
+                System.arraycopy(b, off, memory, (int) size - len, len);
+                return;
+            }
+
+            // Spill what was buffered so far and continue on disk
+            file = File.createTempFile("vertx-part-", ".tmp", location);
+            out = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+            out.write(memory, 0, (int) (size - len));
+            out.write(b, off, len);
+            memory = null;
+        }
+
+        void finish() throws IOException {
+            if (out != null) {
+                out.close();
+                part.setFile(file, size);
+            } else {
+                part.setData(memory, (int) size);
+            }
+        }
+
+        void abort() {
+            try {
+                if (out != null) {
+                    out.close();
+                }
+            } catch (IOException ignore) {
+                // Best effort
+            }
+            if (file != null && !file.delete()) {
+                file.deleteOnExit();
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,359 @@
+package com.englishtown.vertx.http.impl;
+
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+import javax.servlet.DispatcherType;
+import javax.servlet.MultipartConfigElement;
+import javax.servlet.Servlet;
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * vert.x request handler that runs a blocking {@link Servlet}, or the servlets and filters of a
+ * {@link VertxServletContext} routed by URL pattern.
+ * <p>
+ * The request and response wrappers are created on the event loop, where the streaming body is attached, then
+ * {@link Servlet#service} runs on a virtual thread per request when the JVM supports them (Java 21+), otherwise on a
+ * fixed pool of platform threads.  Blocking body reads wait on a lock condition rather than a monitor, so they park
+ * the virtual thread instead of pinning its carrier.  The servlet or context must be initialized by the caller.
+ * <p>
+ * With {@link #setRecycling(boolean) recycling} enabled the wrappers are reset and reused from a per event loop pool
+ * once the response ends, so a servlet must not keep a reference to the request or response after
+ * {@link Servlet#service} returns or the async context completes.  {@link #setRecyclingDebug(boolean)} turns such a
+ * use into an {@link IllegalStateException}.
+ */
+public class ServletHandler implements Handler<HttpServerRequest> {
+
+    public static final int DEFAULT_POOL_SIZE = 20;
+
+    private static final Logger logger = LoggerFactory.getLogger(ServletHandler.class);
+
+    // One of servlet and servletContext is set
+    private final Servlet servlet;
+    private final VertxServletContext servletContext;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private MultipartConfigElement multipartConfig;
+    private int maxFormFields = FormUrlDecoder.DEFAULT_MAX_FIELDS;
+    private long maxFormSize = FormUrlDecoder.DEFAULT_MAX_SIZE;
+    private boolean recycling;
+    private boolean recyclingDebug;
+    private WrapperPool pool;
+    private VertxSessionManager sessionManager;
+    private TrustedProxies trustedProxies;
+    private ForwardedHeaderFormat forwardedHeaderFormat = ForwardedHeaderFormat.X_FORWARDED;
+    private ServletMetrics metrics;
+
+    public ServletHandler(Servlet servlet) {
+        this(servlet, null, defaultExecutor(), true);
+    }
+
+    public ServletHandler(Servlet servlet, ExecutorService executor) {
+        this(servlet, null, executor, false);
+    }
+
+    public ServletHandler(VertxServletContext servletContext) {
+        this(null, servletContext, defaultExecutor(), true);
+    }
+
+    public ServletHandler(VertxServletContext servletContext, ExecutorService executor) {
+        this(null, servletContext, executor, false);
+    }
+
+    private ServletHandler(Servlet servlet, VertxServletContext servletContext, ExecutorService executor,
+                           boolean ownsExecutor) {
+        this.servlet = servlet;
+        this.servletContext = servletContext;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    /**
+     * Creates a virtual thread per task executor if the JVM supports it, otherwise a fixed pool of
+     * {@link #DEFAULT_POOL_SIZE} daemon threads
+     *
+     * @return the executor
+     */
+    public static ExecutorService defaultExecutor() {
+        try {
+            // Looked up reflectively so the module still builds and runs on Java 8
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return Executors.newFixedThreadPool(DEFAULT_POOL_SIZE, new ServletThreadFactory());
+        }
+    }
+
+    /**
+     * Sets the multipart configuration applied to each request
+     *
+     * @param multipartConfig the multipart configuration
+     * @return this handler
+     */
+    public ServletHandler setMultipartConfig(MultipartConfigElement multipartConfig) {
+        this.multipartConfig = multipartConfig;
+        return this;
+    }
+
+    /**
+     * Sets the limits applied when request parameters are decoded from an application/x-www-form-urlencoded body
+     *
+     * @param maxFields the maximum number of form fields, or -1 for no limit
+     * @param maxSize   the maximum body size in bytes, or -1 for no limit
+     * @return this handler
+     */
+    public ServletHandler setFormLimits(int maxFields, long maxSize) {
+        this.maxFormFields = maxFields;
+        this.maxFormSize = maxSize;
+        return this;
+    }
+
+    /**
+     * Sets the session manager backing {@link javax.servlet.http.HttpServletRequest#getSession()}, overriding the one
+     * of the servlet context.  Requests have no session without one.
+     *
+     * @param sessionManager the session manager
+     * @return this handler
+     */
+    public ServletHandler setSessionManager(VertxSessionManager sessionManager) {
+        this.sessionManager = sessionManager;
+        return this;
+    }
+
+    /**
+     * Sets the proxies whose <code>Forwarded</code> and <code>X-Forwarded-*</code> headers are honored, the headers
+     * are ignored without them
+     *
+     * @param trustedProxies the trusted proxies
+     * @return this handler
+     */
+    public ServletHandler setTrustedProxies(TrustedProxies trustedProxies) {
+        this.trustedProxies = trustedProxies;
+        return this;
+    }
+
+    /**
+     * Selects the forwarding headers the trusted proxies maintain, defaults to
+     * {@link ForwardedHeaderFormat#X_FORWARDED}.  The other family is ignored, a proxy passes it through from the
+     * client untouched.
+     *
+     * @param forwardedHeaderFormat the header family
+     * @return this handler
+     */
+    public ServletHandler setForwardedHeaderFormat(ForwardedHeaderFormat forwardedHeaderFormat) {
+        this.forwardedHeaderFormat = forwardedHeaderFormat;
+        return this;
+    }
+
+    /**
+     * Sets the metrics that receive queue wait, body read, service and response flush timings.  Without metrics no
+     * timestamps are taken.
+     *
+     * @param metrics the metrics, or null to disable them
+     * @return this handler
+     */
+    public ServletHandler setMetrics(ServletMetrics metrics) {
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * Enables reuse of the request and response wrappers from a per event loop pool, disabled by default
+     *
+     * @param recycling true to recycle wrappers
+     * @return this handler
+     */
+    public ServletHandler setRecycling(boolean recycling) {
+        this.recycling = recycling;
+        updatePool();
+        return this;
+    }
+
+    /**
+     * Makes any use of a recycled request or response throw an {@link IllegalStateException} carrying the stack trace
+     * of the release.  Recycled wrappers are discarded instead of reused, so this is meant for tests only.
+     *
+     * @param recyclingDebug true to detect use after recycle
+     * @return this handler
+     */
+    public ServletHandler setRecyclingDebug(boolean recyclingDebug) {
+        this.recyclingDebug = recyclingDebug;
+        updatePool();
+        return this;
+    }
+
+    private void updatePool() {
+        pool = recycling ? new WrapperPool(WrapperPool.DEFAULT_MAX_SIZE, recyclingDebug) : null;
+    }
+
+    @Override
+    public void handle(HttpServerRequest request) {
+        VertxHttpServletRequest servletRequest;
+        VertxHttpServletResponse servletResponse;
+        if (pool != null) {
+            servletRequest = pool.acquire(Vertx.currentContext(), request);
+            servletResponse = (VertxHttpServletResponse) servletRequest.getServletResponse();
+        } else {
+            servletRequest = new VertxHttpServletRequest(request);
+            servletResponse = new VertxHttpServletResponse(request.response());
+            servletRequest.setServletResponse(servletResponse);
+        }
+        servletRequest.setAsyncDispatcher(path -> dispatch(servletRequest, servletResponse, DispatcherType.ASYNC, path));
+        if (multipartConfig != null) {
+            servletRequest.setMultipartConfig(multipartConfig);
+        }
+        servletRequest.setFormLimits(maxFormFields, maxFormSize);
+        VertxSessionManager sessionManager = this.sessionManager;
+        if (sessionManager == null && servletContext != null) {
+            sessionManager = servletContext.getSessionManager();
+        }
+        if (sessionManager != null) {
+            servletRequest.setSessionManager(sessionManager);
+        }
+        if (trustedProxies != null) {
+            servletRequest.setTrustedProxies(trustedProxies);
+            servletRequest.setForwardedHeaderFormat(forwardedHeaderFormat);
+        }
+        if (metrics != null) {
+            servletRequest.setMetrics(metrics);
+            servletResponse.setMetrics(metrics, request);
+        }
+
+        // Attach the body stream before leaving the event loop so no chunk is dropped
+        servletRequest.bodyStream();
+
+        dispatch(servletRequest, servletResponse, DispatcherType.REQUEST, null);
+    }
+
+    /**
+     * @param path the path of an {@link javax.servlet.AsyncContext#dispatch(String)} within the servlet context, or
+     *             null to dispatch the request URI.  A handler without a servlet context always dispatches to its
+     *             servlet.
+     */
+    private void dispatch(VertxHttpServletRequest servletRequest, VertxHttpServletResponse servletResponse,
+                          DispatcherType dispatcherType, String path) {
+        ServletMetrics metrics = this.metrics;
+        Object queueToken = metrics == null ? null
+                : metrics.begin(ServletMetrics.Phase.QUEUE_WAIT, servletRequest.getHttpServerRequest());
+        long queued = metrics == null ? 0 : System.nanoTime();
+        try {
+            executor.execute(() -> service(servletRequest, servletResponse, dispatcherType, path, queued, queueToken));
+        } catch (RejectedExecutionException e) {
+            HttpServerRequest request = servletRequest.getHttpServerRequest();
+            if (!request.response().ended()) {
+                request.response().setStatusCode(503).end();
+            }
+            servletRequest.release();
+        }
+    }
+
+    private void service(VertxHttpServletRequest servletRequest, VertxHttpServletResponse servletResponse,
+                         DispatcherType dispatcherType, String path, long queued, Object queueToken) {
+        servletRequest.setDispatcherType(dispatcherType);
+        servletRequest.beginService();
+        try {
+            invoke(servletRequest, servletResponse, dispatcherType, path, queued, queueToken);
+        } catch (Throwable t) {
+            if (servletRequest.endService()) {
+                // The async context still completes the response, or fails it on timeout
+                logError(servletRequest, t);
+                return;
+            }
+            handleError(servletRequest, servletResponse, t);
+            return;
+        }
+
+        if (servletRequest.endService()) {
+            // The async context completes the response
+            return;
+        }
+        try {
+            servletResponse.finish();
+        } catch (Throwable t) {
+            handleError(servletRequest, servletResponse, t);
+            return;
+        }
+        servletRequest.releaseAfterService();
+    }
+
+    private void invoke(VertxHttpServletRequest servletRequest, VertxHttpServletResponse servletResponse,
+                        DispatcherType dispatcherType, String path, long queued, Object queueToken)
+            throws ServletException, IOException {
+        ServletMetrics metrics = this.metrics;
+        if (metrics == null || queued == 0) {
+            invoke(servletRequest, servletResponse, dispatcherType, path);
+            return;
+        }
+        HttpServerRequest request = servletRequest.getHttpServerRequest();
+        metrics.queueWait(request, queueToken, System.nanoTime() - queued);
+        Object token = metrics.begin(ServletMetrics.Phase.SERVICE, request);
+        long start = System.nanoTime();
+        try {
+            invoke(servletRequest, servletResponse, dispatcherType, path);
+        } finally {
+            metrics.service(request, token, System.nanoTime() - start);
+        }
+    }
+
+    private void invoke(VertxHttpServletRequest servletRequest, VertxHttpServletResponse servletResponse,
+                        DispatcherType dispatcherType, String path) throws ServletException, IOException {
+        if (servletContext != null) {
+            servletContext.service(servletRequest, servletResponse, dispatcherType, path);
+        } else {
+            servlet.service(servletRequest, servletResponse);
+        }
+    }
+
+    private void handleError(VertxHttpServletRequest servletRequest, VertxHttpServletResponse servletResponse,
+                             Throwable t) {
+        logError(servletRequest, t);
+        try {
+            if (!servletResponse.isCommitted()) {
+                servletResponse.sendError(500);
+            } else {
+                // Too late for an error status, abort the response so the client sees a failure
+                servletRequest.getHttpServerRequest().response().close();
+            }
+        } catch (Throwable ignore) {
+            // The connection is already gone
+        } finally {
+            servletRequest.releaseAfterService();
+        }
+    }
+
+    private void logError(VertxHttpServletRequest servletRequest, Throwable t) {
+        logger.error("Servlet " + (servlet != null ? servlet : servletContext) + " failed to service "
+                + servletRequest.getRequestURI(), t);
+    }
+
+    /**
+     * Shuts down the executor if it was created by this handler
+     */
+    public void close() {
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    private static final class ServletThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "vertx-servlet-thread-" + count.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.englishtown.vertx.http.impl;
+
+import io.vertx.core.http.HttpServerRequest;
+
+/**
+ * Receives timings and byte counts from the servlet bridge, see {@link ServletHandler#setMetrics(ServletMetrics)}.
+ * <p>
+ * Called from event loop and servlet threads concurrently, implementations must be thread safe and should not block.
+ * Each measured {@link Phase} is reported twice: {@link #begin} when it starts and the method named after it when it
+ * ends, with the token <code>begin</code> returned.  The token lets an implementation carry state from one to the
+ * other, e.g. a profiler event that was begun, while plain counters ignore it and use the measured duration.  A phase
+ * may end on another thread than the one it began on.  Without metrics the bridge takes no timestamps at all.
+ */
+public interface ServletMetrics {
+
+    /**
+     * The measured phases of a request
+     */
+    enum Phase {
+        /**
+         * From handing the request to the executor to a servlet thread picking it up
+         */
+        QUEUE_WAIT,
+        /**
+         * {@link javax.servlet.Servlet#service}
+         */
+        SERVICE,
+        /**
+         * From attaching the body stream to receiving the end of the request body
+         */
+        BODY_READ,
+        /**
+         * Flushing the buffered output and ending the response
+         */
+        RESPONSE_FLUSH
+    }
+
+    /**
+     * Called on the thread that starts a phase, right before it starts
+     *
+     * @param phase   the phase
+     * @param request the vert.x request
+     * @return a token handed to the method that ends the phase, may be null
+     */
+    default Object begin(Phase phase, HttpServerRequest request) {
+        return null;
+    }
+
+    /**
+     * Time a request waited for a servlet thread after it was handed to the executor
+     *
+     * @param request the vert.x request
+     * @param token   the token returned by {@link #begin} for {@link Phase#QUEUE_WAIT}
+     * @param nanos   the wait in nanoseconds
+     */
+    void queueWait(HttpServerRequest request, Object token, long nanos);
+
+    /**
+     * Time spent in {@link javax.servlet.Servlet#service}
+     *
+     * @param request the vert.x request
+     * @param token   the token returned by {@link #begin} for {@link Phase#SERVICE}
+     * @param nanos   the duration in nanoseconds
+     */
+    void service(HttpServerRequest request, Object token, long nanos);
+
+    /**
+     * Time from attaching the body stream to receiving the end of the request body
+     *
+     * @param request the vert.x request
+     * @param token   the token returned by {@link #begin} for {@link Phase#BODY_READ}
+     * @param nanos   the duration in nanoseconds
+     * @param bytes   the size of the body
+     */
+    void bodyRead(HttpServerRequest request, Object token, long nanos, long bytes);
+
+    /**
+     * Time taken to flush the buffered output and end the response
+     *
+     * @param request the vert.x request
+     * @param token   the token returned by {@link #begin} for {@link Phase#RESPONSE_FLUSH}
+     * @param nanos   the duration in nanoseconds
+     * @param bytes   the number of bytes written for the whole response
+     */
+    void responseFlush(HttpServerRequest request, Object token, long nanos, long bytes);
+
+    /**
+     * An async request timed out before it was completed or dispatched
+     *
+     * @param request the vert.x request
+     * @param timeout the timeout in milliseconds
+     */
+    void asyncTimeout(HttpServerRequest request, long timeout);
+
+}
@@ -0,0 +1,94 @@
+package com.englishtown.vertx.http.impl;
+
+import io.vertx.core.shareddata.Shareable;
+
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable snapshot of a session as kept in the session store.
+ * <p>
+ * {@link Shareable} so a {@link io.vertx.core.shareddata.LocalMap} stores it by reference, {@link Serializable} for
+ * cluster wide maps.  Updates create a new snapshot, requests working on the same session merge their changes into
+ * the latest one rather than overwriting each other.
+ */
+final class SessionData implements Shareable, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String id;
+    private final long creationTime;
+    private final long lastAccessedTime;
+    private final int maxInactiveInterval;
+    private final Map<String, Object> attributes;
+
+    SessionData(String id, long creationTime, long lastAccessedTime, int maxInactiveInterval,
+                Map<String, Object> attributes) {
+        this.id = id;
+        this.creationTime = creationTime;
+        this.lastAccessedTime = lastAccessedTime;
+        this.maxInactiveInterval = maxInactiveInterval;
+        this.attributes = attributes;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    long getCreationTime() {
+        return creationTime;
+    }
+
+    long getLastAccessedTime() {
+        return lastAccessedTime;
+    }
+
+    int getMaxInactiveInterval() {
+        return maxInactiveInterval;
+    }
+
+    Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * @return the time the session expires in milliseconds, or {@link Long#MAX_VALUE} if it never does
+     */
+    long getExpiryTime() {
+        return maxInactiveInterval <= 0 ? Long.MAX_VALUE : lastAccessedTime + maxInactiveInterval * 1000L;
+    }
+
+    boolean isExpired(long now) {
+        return getExpiryTime() <= now;
+    }
+
+    /**
+     * Applies the changes of one request to this snapshot
+     *
+     * @param changed attributes set by the request
+     * @param removed attributes removed by the request
+     * @return the new snapshot
+     */
+    SessionData merge(long lastAccessedTime, int maxInactiveInterval, Map<String, Object> changed, Set<String> removed) {
+        Map<String, Object> merged = attributes;
+        if (!changed.isEmpty() || !removed.isEmpty()) {
+            merged = new HashMap<>(attributes);
+            merged.keySet().removeAll(removed);
+            merged.putAll(changed);
+            merged = Collections.unmodifiableMap(merged);
+        }
+        return new SessionData(id, creationTime, Math.max(lastAccessedTime, this.lastAccessedTime), maxInactiveInterval,
+                merged);
+    }
+
+    /**
+     * @return a copy of this snapshot under a new id
+     */
+    SessionData withId(String id) {
+        return new SessionData(id, creationTime, lastAccessedTime, maxInactiveInterval, attributes);
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.englishtown.vertx.http.impl;
+
+import java.util.function.UnaryOperator;
+
+/**
+ * Storage of {@link SessionData} snapshots behind {@link VertxSessionManager}
+ */
+interface SessionStore {
+
+    /**
+     * Looks up a session, blocking the calling servlet thread if the store is remote
+     *
+     * @return the session, or null if it does not exist
+     */
+    SessionData get(String id);
+
+    /**
+     * Stores a new session
+     */
+    void put(SessionData data);
+
+    /**
+     * Replaces a stored session with the result of the update, does nothing if the session no longer exists.  May
+     * complete asynchronously and may be called from the event loop.
+     */
+    void update(String id, UnaryOperator<SessionData> update);
+
+    /**
+     * Removes a session, may complete asynchronously and may be called from the event loop
+     */
+    void remove(String id);
+
+    /**
+     * Drops expired sessions, called periodically on the event loop
+     *
+     * @param now the current time in milliseconds
+     */
+    void sweep(long now);
+
+}
@@ -0,0 +1,209 @@
+package com.englishtown.vertx.http.impl;
+
+import io.netty.util.NetUtil;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Immutable set of trusted proxy addresses in CIDR notation, e.g. <code>10.0.0.0/8</code>, <code>192.168.1.7</code>
+ * or <code>fd00::/8</code>.
+ * <p>
+ * The ranges are compiled into network/mask arrays per address family when the set is created, matching an address
+ * parses it once and compares it against each masked network without allocating for IPv4.  Only address literals
+ * are matched, they are parsed without {@link java.net.InetAddress} so a host name or malformed value never triggers
+ * a DNS lookup.
+ */
+public final class TrustedProxies {
+
+    private final int[] v4Networks;
+    private final int[] v4Masks;
+    // IPv6 addresses as pairs of longs, high half at 2 * i and low half at 2 * i + 1
+    private final long[] v6Networks;
+    private final long[] v6Masks;
+
+    private TrustedProxies(int[] v4Networks, int[] v4Masks, long[] v6Networks, long[] v6Masks) {
+        this.v4Networks = v4Networks;
+        this.v4Masks = v4Masks;
+        this.v6Networks = v6Networks;
+        this.v6Masks = v6Masks;
+    }
+
+    /**
+     * Compiles a set of trusted proxies
+     *
+     * @param cidrs addresses or CIDR ranges
+     * @return the trusted proxies
+     * @throws IllegalArgumentException if an entry is not an address literal or CIDR range
+     */
+    public static TrustedProxies of(String... cidrs) {
+        return of(Arrays.asList(cidrs));
+    }
+
+    /**
+     * Compiles a set of trusted proxies
+     *
+     * @param cidrs addresses or CIDR ranges
+     * @return the trusted proxies
+     * @throws IllegalArgumentException if an entry is not an address literal or CIDR range
+     */
+    public static TrustedProxies of(Collection<String> cidrs) {
+        int[] v4Networks = new int[cidrs.size()];
+        int[] v4Masks = new int[cidrs.size()];
+        long[] v6Networks = new long[cidrs.size() * 2];
+        long[] v6Masks = new long[cidrs.size() * 2];
+        int v4 = 0;
+        int v6 = 0;
+
+        for (String cidr : cidrs) {
+            String trimmed = cidr.trim();
+            int slash = trimmed.indexOf('/');
+            String address = slash < 0 ? trimmed : trimmed.substring(0, slash);
+            byte[] bytes = toBytes(address);
+            if (bytes == null) {
+                throw new IllegalArgumentException("Invalid trusted proxy address: " + cidr);
+            }
+            int bits = bytes.length * 8;
+            int prefix = bits;
+            if (slash >= 0) {
+                try {
+                    prefix = Integer.parseInt(trimmed.substring(slash + 1));
+                } catch (NumberFormatException e) {
+                    prefix = -1;
+                }
+                if (prefix < 0 || prefix > bits) {
+                    throw new IllegalArgumentException("Invalid trusted proxy prefix length: " + cidr);
+                }
+            }
+
+            if (bytes.length == 4) {
+                int mask = prefix == 0 ? 0 : -1 << (32 - prefix);
+                v4Masks[v4] = mask;
+                v4Networks[v4] = toInt(bytes) & mask;
+                v4++;
+            } else {
+                long maskHi = prefix == 0 ? 0 : prefix >= 64 ? -1L : -1L << (64 - prefix);
+                long maskLo = prefix <= 64 ? 0 : prefix == 128 ? -1L : -1L << (128 - prefix);
+                v6Masks[v6 * 2] = maskHi;
+                v6Masks[v6 * 2 + 1] = maskLo;
+                v6Networks[v6 * 2] = toLong(bytes, 0) & maskHi;
+                v6Networks[v6 * 2 + 1] = toLong(bytes, 8) & maskLo;
+                v6++;
+            }
+        }
+
+        return new TrustedProxies(Arrays.copyOf(v4Networks, v4), Arrays.copyOf(v4Masks, v4),
+                Arrays.copyOf(v6Networks, v6 * 2), Arrays.copyOf(v6Masks, v6 * 2));
+    }
+
+    /**
+     * @param address an IPv4 or IPv6 address literal, IPv6 optionally in brackets
+     * @return true if the address is in one of the trusted ranges, false if not or if it is not an address literal
+     */
+    public boolean isTrusted(String address) {
+        if (address == null || address.isEmpty()) {
+            return false;
+        }
+
+        long v4 = parseIPv4(address);
+        if (v4 >= 0) {
+            return matchesIPv4((int) v4);
+        }
+        if (address.indexOf(':') < 0) {
+            return false;
+        }
+
+        byte[] bytes = toBytes(address);
+        if (bytes == null) {
+            return false;
+        }
+        if (bytes.length == 4) {
+            // IPv4 mapped IPv6 address
+            return matchesIPv4(toInt(bytes));
+        }
+        long hi = toLong(bytes, 0);
+        long lo = toLong(bytes, 8);
+        for (int i = 0; i < v6Networks.length; i += 2) {
+            if ((hi & v6Masks[i]) == v6Networks[i] && (lo & v6Masks[i + 1]) == v6Networks[i + 1]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean matchesIPv4(int address) {
+        for (int i = 0; i < v4Networks.length; i++) {
+            if ((address & v4Masks[i]) == v4Networks[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the address as an unsigned int, or -1 if it is not a dotted quad
+     */
+    static long parseIPv4(String s) {
+        int len = s.length();
+        long address = 0;
+        int octets = 0;
+        int value = -1;
+        for (int i = 0; i <= len; i++) {
+            char c = i < len ? s.charAt(i) : '.';
+            if (c >= '0' && c <= '9') {
+                value = value < 0 ? c - '0' : value * 10 + (c - '0');
+                if (value > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && value >= 0 && octets < 4) {
+                address = (address << 8) | value;
+                octets++;
+                value = -1;
+            } else {
+                return -1;
+            }
+        }
+        return octets == 4 ? address : -1;
+    }
+
+    private static byte[] toBytes(String address) {
+        long v4 = parseIPv4(address);
+        if (v4 >= 0) {
+            return new byte[]{(byte) (v4 >>> 24), (byte) (v4 >>> 16), (byte) (v4 >>> 8), (byte) v4};
+        }
+        if (address.indexOf(':') < 0) {
+            return null;
+        }
+        // A pure literal parser, InetAddress.getByName would resolve any value that is not a valid literal
+        byte[] bytes = NetUtil.createByteArrayFromIpAddressString(address);
+        if (bytes == null || bytes.length != 16) {
+            return bytes;
+        }
+        return isIPv4Mapped(bytes) ? Arrays.copyOfRange(bytes, 12, 16) : bytes;
+    }
+
+    /**
+     * @return true for <code>::ffff:a.b.c.d</code>, which is matched against the IPv4 ranges
+     */
+    private static boolean isIPv4Mapped(byte[] bytes) {
+        for (int i = 0; i < 10; i++) {
+            if (bytes[i] != 0) {
+                return false;
+            }
+        }
+        return bytes[10] == (byte) 0xFF && bytes[11] == (byte) 0xFF;
+    }
+
+    private static int toInt(byte[] bytes) {
+        return (bytes[0] & 0xFF) << 24 | (bytes[1] & 0xFF) << 16 | (bytes[2] & 0xFF) << 8 | (bytes[3] & 0xFF);
+    }
+
+    private static long toLong(byte[] bytes, int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            value = value << 8 | (bytes[i] & 0xFF);
+        }
+        return value;
+    }
+
+}
@@ -0,0 +1,266 @@
+package com.englishtown.vertx.http.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Servlet spec URL pattern table: exact (<code>/a/b</code>), prefix (<code>/a/*</code>), extension
+ * (<code>*.jsp</code>), default (<code>/</code>) and context root (empty string) patterns.
+ * <p>
+ * Exact and prefix patterns are kept in a trie of path segments, so a lookup walks the path once whatever the number
+ * of patterns and records the longest prefix match on the way.  Extensions are a hash lookup on the last segment.
+ * Built before the context starts and only read afterwards.
+ */
+final class UrlPatternMatcher<T> {
+
+    private final Node<T> root = new Node<>();
+    private final Map<String, T> extensions = new HashMap<>();
+    private T defaultTarget;
+    private T contextRoot;
+
+    /**
+     * @return the target mapped to exactly this pattern, or null
+     */
+    T get(String pattern) {
+        switch (kind(pattern)) {
+            case CONTEXT_ROOT:
+                return contextRoot;
+            case DEFAULT:
+                return defaultTarget;
+            case EXTENSION:
+                return extensions.get(pattern.substring(2));
+            case PREFIX:
+                Node<T> prefixNode = node(pattern.substring(0, pattern.length() - 2), false);
+                return prefixNode == null ? null : prefixNode.prefix;
+            default:
+                Node<T> exactNode = node(pattern, false);
+                return exactNode == null ? null : exactNode.exact;
+        }
+    }
+
+    /**
+     * Maps a pattern, replacing any previous target
+     *
+     * @throws IllegalArgumentException if the pattern is not a valid URL pattern
+     */
+    void put(String pattern, T target) {
+        switch (kind(pattern)) {
+            case CONTEXT_ROOT:
+                contextRoot = target;
+                break;
+            case DEFAULT:
+                defaultTarget = target;
+                break;
+            case EXTENSION:
+                extensions.put(pattern.substring(2), target);
+                break;
+            case PREFIX:
+                node(pattern.substring(0, pattern.length() - 2), true).prefix = target;
+                break;
+            default:
+                node(pattern, true).exact = target;
+                break;
+        }
+    }
+
+    /**
+     * @return the target mapped to the pattern, mapping a new one first if there is none
+     */
+    T computeIfAbsent(String pattern, Supplier<T> supplier) {
+        T target = get(pattern);
+        if (target == null) {
+            target = supplier.get();
+            put(pattern, target);
+        }
+        return target;
+    }
+
+    /**
+     * Finds the most specific mapping for a path: exact, then longest prefix, then extension, then default
+     *
+     * @param path the decoded path within the context, starting with a slash
+     * @return the match, or null if no pattern matches
+     */
+    Match<T> match(String path) {
+        if (contextRoot != null && path.equals("/")) {
+            return new Match<>(contextRoot, "", "/");
+        }
+
+        int len = path.length();
+        T prefix = root.prefix;
+        int prefixEnd = 0;
+        Node<T> node = root;
+        int pos = 1;
+        while (pos <= len) {
+            int end = path.indexOf('/', pos);
+            if (end < 0) {
+                end = len;
+            }
+            node = node.child(path, pos, end);
+            if (node == null) {
+                break;
+            }
+            if (end == len && node.exact != null) {
+                return new Match<>(node.exact, path, null);
+            }
+            if (node.prefix != null) {
+                prefix = node.prefix;
+                prefixEnd = end;
+            }
+            pos = end + 1;
+        }
+        if (prefix != null) {
+            return new Match<>(prefix, path.substring(0, prefixEnd), prefixEnd == len ? null : path.substring(prefixEnd));
+        }
+
+        T extension = extension(path);
+        if (extension != null) {
+            return new Match<>(extension, path, null);
+        }
+        return defaultTarget == null ? null : new Match<>(defaultTarget, path, null);
+    }
+
+    /**
+     * Passes every target whose pattern matches the path to the consumer, as needed for filter mappings.  The default
+     * pattern matches every path.
+     *
+     * @param path the decoded path within the context, starting with a slash
+     */
+    void matchAll(String path, Consumer<T> consumer) {
+        if (contextRoot != null && path.equals("/")) {
+            consumer.accept(contextRoot);
+        }
+
+        int len = path.length();
+        Node<T> node = root;
+        if (node.prefix != null) {
+            consumer.accept(node.prefix);
+        }
+        int pos = 1;
+        while (pos <= len) {
+            int end = path.indexOf('/', pos);
+            if (end < 0) {
+                end = len;
+            }
+            node = node.child(path, pos, end);
+            if (node == null) {
+                break;
+            }
+            if (end == len && node.exact != null) {
+                consumer.accept(node.exact);
+            }
+            if (node.prefix != null) {
+                consumer.accept(node.prefix);
+            }
+            pos = end + 1;
+        }
+
+        T extension = extension(path);
+        if (extension != null) {
+            consumer.accept(extension);
+        }
+        if (defaultTarget != null) {
+            consumer.accept(defaultTarget);
+        }
+    }
+
+    private T extension(String path) {
+        if (extensions.isEmpty()) {
+            return null;
+        }
+        int dot = path.lastIndexOf('.');
+        if (dot < 0 || dot < path.lastIndexOf('/')) {
+            return null;
+        }
+        return extensions.get(path.substring(dot + 1));
+    }
+
+    private Node<T> node(String path, boolean create) {
+        Node<T> node = root;
+        int len = path.length();
+        int pos = 1;
+        while (pos <= len) {
+            int end = path.indexOf('/', pos);
+            if (end < 0) {
+                end = len;
+            }
+            Node<T> child = node.child(path, pos, end);
+            if (child == null) {
+                if (!create) {
+                    return null;
+                }
+                child = new Node<>();
+                if (node.children == null) {
+                    node.children = new HashMap<>();
+                }
+                node.children.put(path.substring(pos, end), child);
+            }
+            node = child;
+            pos = end + 1;
+        }
+        return node;
+    }
+
+    private enum Kind {
+        CONTEXT_ROOT, DEFAULT, EXTENSION, PREFIX, EXACT
+    }
+
+    private static Kind kind(String pattern) {
+        if (pattern.isEmpty()) {
+            return Kind.CONTEXT_ROOT;
+        }
+        if (pattern.equals("/")) {
+            return Kind.DEFAULT;
+        }
+        if (pattern.startsWith("*.") && pattern.length() > 2 && pattern.indexOf('/') < 0) {
+            return Kind.EXTENSION;
+        }
+        if (pattern.startsWith("/") && pattern.indexOf('*') < 0) {
+            return Kind.EXACT;
+        }
+        if (pattern.startsWith("/") && pattern.endsWith("/*") && pattern.indexOf('*') == pattern.length() - 1) {
+            return Kind.PREFIX;
+        }
+        throw new IllegalArgumentException("Invalid URL pattern: " + pattern);
+    }
+
+    private static final class Node<T> {
+        private Map<String, Node<T>> children;
+        private T exact;
+        private T prefix;
+
+        private Node<T> child(String path, int start, int end) {
+            return children == null ? null : children.get(path.substring(start, end));
+        }
+    }
+
+    /**
+     * A matched target with the servlet path and path info the mapping implies
+     */
+    static final class Match<T> {
+        private final T target;
+        private final String servletPath;
+        private final String pathInfo;
+
+        Match(T target, String servletPath, String pathInfo) {
+            this.target = target;
+            this.servletPath = servletPath;
+            this.pathInfo = pathInfo;
+        }
+
+        T getTarget() {
+            return target;
+        }
+
+        String getServletPath() {
+            return servletPath;
+        }
+
+        String getPathInfo() {
+            return pathInfo;
+        }
+    }
+
+}
@@ -0,0 +1,395 @@
+package com.englishtown.vertx.http.impl;
+
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.http.HttpServerResponse;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link AsyncContext} bound to the vert.x context that received the request.
+ * <p>
+ * The timeout is a vert.x timer on the owning event loop and the {@link AsyncListener} callbacks run on that event
+ * loop, except {@link AsyncListener#onStartAsync}, which runs inside the <code>startAsync()</code> call that starts a
+ * new cycle.  An open async request costs a timer and this object rather than a parked thread.
+ * <p>
+ * A request keeps one async context.  Calling <code>startAsync()</code> again during an async dispatch starts a new
+ * cycle on it, {@link #restart}, with the timeout unchanged.  When an async dispatch returns without doing so the
+ * container ends the response and {@link #dispatchReturned()} notifies the listeners of the completion.
+ * <p>
+ * As the spec requires, {@link #complete()} and {@link #dispatch()} called before the container dispatch that started
+ * async has returned only take effect once it returns, so either the container or this context ends and releases the
+ * request, never both.
+ */
+public class VertxAsyncContext implements AsyncContext {
+
+    public static final long DEFAULT_TIMEOUT = 30000;
+
+    private final VertxHttpServletRequest vertxRequest;
+    private final HttpServerResponse vertxResponse;
+    private final Context context;
+    // Replaced when startAsync() starts a new cycle, see restart()
+    private volatile ServletRequest request;
+    private volatile ServletResponse response;
+    private final List<Registration> listeners = new ArrayList<>(2);
+
+    // Guarded by this, complete()/dispatch() may be called from any thread
+    private long timeout = DEFAULT_TIMEOUT;
+    private long timerId = -1;
+    private boolean completed;
+    private boolean dispatched;
+    // True until the container dispatch that started async returns, see serviceReturned()
+    private boolean inService;
+    private Runnable pending;
+
+    VertxAsyncContext(VertxHttpServletRequest vertxRequest, HttpServerResponse vertxResponse, Context context,
+                      ServletRequest request, ServletResponse response) {
+        this.vertxRequest = vertxRequest;
+        this.vertxResponse = vertxResponse;
+        this.context = context;
+        this.request = request;
+        this.response = response;
+        this.inService = vertxRequest.isInService();
+    }
+
+    /**
+     * Schedules the timeout timer, called by {@link VertxHttpServletRequest#startAsync()}.  When started during a
+     * container dispatch the timer is only armed once it returns, so a {@link #setTimeout(long)} that follows
+     * startAsync() is honored.
+     */
+    void start() {
+        synchronized (this) {
+            if (inService) {
+                return;
+            }
+        }
+        scheduleTimer();
+    }
+
+    /**
+     * Starts a new async cycle during an async dispatch, called by {@link VertxHttpServletRequest#startAsync()} before
+     * {@link #start()}.  The listeners of the previous cycle get {@link AsyncListener#onStartAsync} and, as the spec
+     * requires, only receive events of the new cycle if they add themselves again.
+     */
+    void restart(ServletRequest request, ServletResponse response) {
+        List<Registration> registrations;
+        synchronized (this) {
+            this.request = request;
+            this.response = response;
+            completed = false;
+            dispatched = false;
+            inService = vertxRequest.isInService();
+            pending = null;
+            registrations = new ArrayList<>(listeners);
+            listeners.clear();
+        }
+        fire(registrations, Event.START_ASYNC, null);
+    }
+
+    /**
+     * Called by the container once it ended the response of an async dispatch that did not start a new cycle.  Fires
+     * {@link AsyncListener#onComplete} on the owning context, then releases the request.
+     *
+     * @return false if this context was already completed, the caller then releases the request itself
+     */
+    boolean dispatchReturned() {
+        synchronized (this) {
+            if (completed) {
+                return false;
+            }
+            completed = true;
+        }
+        context.runOnContext(v -> {
+            cancelTimer();
+            fire(Event.COMPLETE, null);
+            vertxRequest.release();
+        });
+        return true;
+    }
+
+    /**
+     * (Re)arms the timer on the owning context with the timeout current when it runs
+     */
+    private void scheduleTimer() {
+        context.runOnContext(v -> {
+            cancelTimer();
+            synchronized (this) {
+                if (completed || dispatched || timeout <= 0) {
+                    return;
+                }
+                timerId = context.owner().setTimer(timeout, id -> handleTimeout());
+            }
+        });
+    }
+
+    /**
+     * Called by the container once the dispatch that started async has returned, runs a {@link #complete()} or
+     * {@link #dispatch()} that was called meanwhile
+     *
+     * @return true if this context now owns the response, false if it was started by an earlier dispatch and the
+     * caller must end the response itself
+     */
+    boolean serviceReturned() {
+        Runnable action;
+        synchronized (this) {
+            if (!inService) {
+                return false;
+            }
+            inService = false;
+            action = pending;
+            pending = null;
+        }
+        if (action != null) {
+            action.run();
+        } else {
+            scheduleTimer();
+        }
+        return true;
+    }
+
+    synchronized boolean isCompleted() {
+        return completed;
+    }
+
+    synchronized boolean isDispatched() {
+        return dispatched;
+    }
+
+    private void handleTimeout() {
+        synchronized (this) {
+            if (completed) {
+                return;
+            }
+            timerId = -1;
+        }
+
+        ServletMetrics metrics = vertxRequest.getMetrics();
+        if (metrics != null) {
+            metrics.asyncTimeout(vertxRequest.getHttpServerRequest(), getTimeout());
+        }
+        fire(Event.TIMEOUT, null);
+
+        boolean complete;
+        synchronized (this) {
+            complete = !completed && !dispatched;
+        }
+        if (complete) {
+            // No listener completed or dispatched, fail the request as the spec requires
+            if (!response.isCommitted() && response instanceof HttpServletResponse) {
+                ((HttpServletResponse) response).setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            }
+            complete();
+        }
+    }
+
+    @Override
+    public ServletRequest getRequest() {
+        return request;
+    }
+
+    @Override
+    public ServletResponse getResponse() {
+        return response;
+    }
+
+    @Override
+    public boolean hasOriginalRequestAndResponse() {
+        return request == vertxRequest && (response instanceof VertxHttpServletResponse);
+    }
+
+    /**
+     * Re-runs the servlet through the dispatcher set by {@link ServletHandler}.  Without one there is no servlet to
+     * dispatch to and the response is completed like {@link #complete()}.
+     */
+    @Override
+    public void dispatch() {
+        dispatch(null, null);
+    }
+
+    @Override
+    public void dispatch(String path) {
+        dispatch(null, path);
+    }
+
+    @Override
+    public void dispatch(ServletContext servletContext, String path) {
+        synchronized (this) {
+            if (dispatched || completed) {
+                throw new IllegalStateException("Async request already dispatched or completed");
+            }
+            dispatched = true;
+        }
+        Handler<String> dispatcher = vertxRequest.getAsyncDispatcher();
+        if (dispatcher == null) {
+            complete();
+            return;
+        }
+        synchronized (this) {
+            if (inService) {
+                pending = () -> runDispatch(dispatcher, path);
+                return;
+            }
+        }
+        runDispatch(dispatcher, path);
+    }
+
+    private void runDispatch(Handler<String> dispatcher, String path) {
+        context.runOnContext(v -> {
+            cancelTimer();
+            dispatcher.handle(path);
+        });
+    }
+
+    private void cancelTimer() {
+        long id;
+        synchronized (this) {
+            id = timerId;
+            timerId = -1;
+        }
+        if (id >= 0) {
+            context.owner().cancelTimer(id);
+        }
+    }
+
+    @Override
+    public void complete() {
+        synchronized (this) {
+            if (completed) {
+                return;
+            }
+            completed = true;
+            if (inService) {
+                pending = this::runComplete;
+                return;
+            }
+        }
+        runComplete();
+    }
+
+    private void runComplete() {
+        context.runOnContext(v -> {
+            cancelTimer();
+            fire(Event.COMPLETE, null);
+            endResponse();
+            vertxRequest.release();
+        });
+    }
+
+    private void endResponse() {
+        try {
+            if (response instanceof VertxHttpServletResponse) {
+                ((VertxHttpServletResponse) response).finish();
+            } else {
+                response.flushBuffer();
+                if (!vertxResponse.ended() && !vertxResponse.closed()) {
+                    vertxResponse.end();
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            fire(Event.ERROR, e);
+            if (!vertxResponse.closed()) {
+                vertxResponse.close();
+            }
+        }
+    }
+
+    @Override
+    public void start(Runnable run) {
+        context.owner().executeBlocking(future -> {
+            run.run();
+            future.complete();
+        }, false, null);
+    }
+
+    @Override
+    public void addListener(AsyncListener listener) {
+        addListener(listener, request, response);
+    }
+
+    @Override
+    public synchronized void addListener(AsyncListener listener, ServletRequest servletRequest, ServletResponse servletResponse) {
+        if (completed) {
+            throw new IllegalStateException("Async request already completed");
+        }
+        listeners.add(new Registration(listener, servletRequest, servletResponse));
+    }
+
+    @Override
+    public <T extends AsyncListener> T createListener(Class<T> clazz) throws ServletException {
+        try {
+            return clazz.newInstance();
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new ServletException(e);
+        }
+    }
+
+    @Override
+    public void setTimeout(long timeout) {
+        synchronized (this) {
+            this.timeout = timeout;
+            if (timerId < 0) {
+                // Not armed yet, the timer picks up the new timeout when it is
+                return;
+            }
+        }
+        scheduleTimer();
+    }
+
+    @Override
+    public synchronized long getTimeout() {
+        return timeout;
+    }
+
+    private void fire(Event event, Throwable throwable) {
+        List<Registration> registrations;
+        synchronized (this) {
+            registrations = new ArrayList<>(listeners);
+        }
+        fire(registrations, event, throwable);
+    }
+
+    private void fire(List<Registration> registrations, Event event, Throwable throwable) {
+        for (Registration registration : registrations) {
+            AsyncEvent asyncEvent = new AsyncEvent(this, registration.request, registration.response, throwable);
+            try {
+                switch (event) {
+                    case COMPLETE:
+                        registration.listener.onComplete(asyncEvent);
+                        break;
+                    case TIMEOUT:
+                        registration.listener.onTimeout(asyncEvent);
+                        break;
+                    case START_ASYNC:
+                        registration.listener.onStartAsync(asyncEvent);
+                        break;
+                    default:
+                        registration.listener.onError(asyncEvent);
+                        break;
+                }
+            } catch (IOException | RuntimeException ignore) {
+                // A failing listener must not prevent the others or the response from completing
+            }
+        }
+    }
+
+    private enum Event {
+        COMPLETE, TIMEOUT, ERROR, START_ASYNC
+    }
+
+    private static final class Registration {
+        private final AsyncListener listener;
+        private final ServletRequest request;
+        private final ServletResponse response;
+
+        private Registration(AsyncListener listener, ServletRequest request, ServletResponse response) {
+            this.listener = listener;
+            this.request = request;
+            this.response = response;
+        }
+    }
+
+}
@@ -0,0 +1,48 @@
+package com.englishtown.vertx.http.impl;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Filters mapped to a request followed by the servlet it maps to, built per dispatch by {@link VertxServletContext}
+ */
+final class VertxFilterChain implements FilterChain {
+
+    private final List<VertxFilterRegistration> filters;
+    private final VertxServletRegistration servlet;
+    private int position;
+
+    VertxFilterChain(List<VertxFilterRegistration> filters, VertxServletRegistration servlet) {
+        this.filters = filters;
+        this.servlet = servlet;
+    }
+
+    /**
+     * @return true if the servlet and every filter of the chain support async processing
+     */
+    boolean isAsyncSupported() {
+        if (!servlet.isAsyncSupported()) {
+            return false;
+        }
+        for (VertxFilterRegistration filter : filters) {
+            if (!filter.isAsyncSupported()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response) throws IOException, ServletException {
+        if (position < filters.size()) {
+            filters.get(position++).getFilter().doFilter(request, response, this);
+        } else {
+            servlet.getServlet().service(request, response);
+        }
+    }
+
+}
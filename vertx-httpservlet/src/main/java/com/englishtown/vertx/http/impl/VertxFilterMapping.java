@@ -0,0 +1,47 @@
+package com.englishtown.vertx.http.impl;
+
+import javax.servlet.DispatcherType;
+import java.util.Comparator;
+import java.util.EnumSet;
+
+/**
+ * One <code>addMappingFor*</code> call of a {@link VertxFilterRegistration}, with its own dispatcher types
+ */
+final class VertxFilterMapping {
+
+    /**
+     * Mapping order of the spec: mappings added with <code>isMatchAfter</code> false come before all others, each
+     * group in the order the mappings were added
+     */
+    static final Comparator<VertxFilterMapping> ORDER = Comparator.comparing((VertxFilterMapping m) -> m.matchAfter)
+            .thenComparingInt(m -> m.sequence);
+
+    private static final EnumSet<DispatcherType> DEFAULT_DISPATCHER_TYPES = EnumSet.of(DispatcherType.REQUEST);
+
+    private final VertxFilterRegistration filter;
+    private final EnumSet<DispatcherType> dispatcherTypes;
+    private final boolean matchAfter;
+    private final int sequence;
+
+    /**
+     * @param dispatcherTypes the dispatcher types, null for {@link DispatcherType#REQUEST} only
+     * @param sequence        the number of mappings added to the context before this one
+     */
+    VertxFilterMapping(VertxFilterRegistration filter, EnumSet<DispatcherType> dispatcherTypes, boolean matchAfter,
+                       int sequence) {
+        this.filter = filter;
+        this.dispatcherTypes = dispatcherTypes == null || dispatcherTypes.isEmpty()
+                ? DEFAULT_DISPATCHER_TYPES : EnumSet.copyOf(dispatcherTypes);
+        this.matchAfter = matchAfter;
+        this.sequence = sequence;
+    }
+
+    VertxFilterRegistration getFilter() {
+        return filter;
+    }
+
+    boolean appliesTo(DispatcherType dispatcherType) {
+        return dispatcherTypes.contains(dispatcherType);
+    }
+
+}
@@ -0,0 +1,137 @@
+package com.englishtown.vertx.http.impl;
+
+import javax.servlet.*;
+import java.util.*;
+
+/**
+ * Filter registered with a {@link VertxServletContext}, doubles as its {@link FilterConfig}
+ */
+final class VertxFilterRegistration implements FilterRegistration.Dynamic, FilterConfig {
+
+    private final VertxServletContext context;
+    private final String name;
+    private final String className;
+    private Filter filter;
+    private final Map<String, String> initParameters = new LinkedHashMap<>();
+    private final Set<String> urlPatternMappings = new LinkedHashSet<>();
+    private final Set<String> servletNameMappings = new LinkedHashSet<>();
+    private boolean asyncSupported;
+
+    VertxFilterRegistration(VertxServletContext context, String name, String className, Filter filter) {
+        this.context = context;
+        this.name = name;
+        this.className = className;
+        this.filter = filter;
+    }
+
+    /**
+     * Creates the filter if it was registered by class name and initializes it
+     */
+    void init() throws ServletException {
+        if (filter == null) {
+            filter = context.createFilter(context.loadClass(className, Filter.class));
+        }
+        filter.init(this);
+    }
+
+    Filter getFilter() {
+        return filter;
+    }
+
+    boolean isAsyncSupported() {
+        return asyncSupported;
+    }
+
+    @Override
+    public void addMappingForServletNames(EnumSet<DispatcherType> dispatcherTypes, boolean isMatchAfter,
+                                          String... servletNames) {
+        context.checkNotStarted();
+        servletNameMappings.addAll(Arrays.asList(servletNames));
+        context.mapFilterToServletNames(this, dispatcherTypes, isMatchAfter, servletNames);
+    }
+
+    @Override
+    public Collection<String> getServletNameMappings() {
+        return Collections.unmodifiableSet(servletNameMappings);
+    }
+
+    @Override
+    public void addMappingForUrlPatterns(EnumSet<DispatcherType> dispatcherTypes, boolean isMatchAfter,
+                                         String... urlPatterns) {
+        context.checkNotStarted();
+        urlPatternMappings.addAll(Arrays.asList(urlPatterns));
+        context.mapFilterToUrlPatterns(this, dispatcherTypes, isMatchAfter, urlPatterns);
+    }
+
+    @Override
+    public Collection<String> getUrlPatternMappings() {
+        return Collections.unmodifiableSet(urlPatternMappings);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getFilterName() {
+        return name;
+    }
+
+    @Override
+    public ServletContext getServletContext() {
+        return context;
+    }
+
+    @Override
+    public String getClassName() {
+        return className;
+    }
+
+    @Override
+    public boolean setInitParameter(String name, String value) {
+        if (name == null || value == null) {
+            throw new IllegalArgumentException("Init parameter name and value cannot be null");
+        }
+        context.checkNotStarted();
+        return initParameters.putIfAbsent(name, value) == null;
+    }
+
+    @Override
+    public String getInitParameter(String name) {
+        return initParameters.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getInitParameterNames() {
+        return Collections.enumeration(initParameters.keySet());
+    }
+
+    @Override
+    public Set<String> setInitParameters(Map<String, String> initParameters) {
+        Set<String> conflicts = new HashSet<>();
+        for (Map.Entry<String, String> entry : initParameters.entrySet()) {
+            if (this.initParameters.containsKey(entry.getKey())) {
+                conflicts.add(entry.getKey());
+            }
+        }
+        if (conflicts.isEmpty()) {
+            for (Map.Entry<String, String> entry : initParameters.entrySet()) {
+                setInitParameter(entry.getKey(), entry.getValue());
+            }
+        }
+        return conflicts;
+    }
+
+    @Override
+    public Map<String, String> getInitParameters() {
+        return Collections.unmodifiableMap(initParameters);
+    }
+
+    @Override
+    public void setAsyncSupported(boolean isAsyncSupported) {
+        context.checkNotStarted();
+        this.asyncSupported = isAsyncSupported;
+    }
+
+}
@@ -1,9 +1,13 @@
 package com.englishtown.vertx.http.impl;
 
-import io.netty.handler.codec.http.CookieDecoder;
-import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpMethod;
 import io.vertx.core.http.HttpServerRequest;
-import io.vertx.core.net.SocketAddress;
 
 import javax.servlet.*;
 import javax.servlet.http.*;
@@ -12,10 +16,10 @@ import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
 import java.security.Principal;
-import java.text.DateFormat;
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.*;
 
 /**
@@ -23,21 +27,75 @@ import java.util.*;
  */
 public class VertxHttpServletRequest implements HttpServletRequest {
 
-    private final HttpServerRequest request;
-    private final URI requestUri;
-    private final Map<String, List<String>> formParams;
-    private final DateFormat dateFormat = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.ENGLISH);
+    // Not final so pooled wrappers can be reused, see recycle()
+    private HttpServerRequest request;
+    private Map<String, List<String>> formParams;
+    private Context context;
+
+    // Lazily resolved by resolveAuthority(), scheme doubles as the "resolved" flag
+    private String scheme;
+    private String serverName;
+    private int serverPort;
+    private String requestPath;
+    private URI uri;
+    private Cookie[] cookies;
+    private List<Locale> locales;
+    private Map<String, String[]> parameters;
+    private VertxServletInputStream inputStream;
+    private boolean inputStreamUsed;
+    private BufferedReader reader;
+    private String characterEncoding;
+    private MultipartConfigElement multipartConfig;
+    private int maxFormFields = FormUrlDecoder.DEFAULT_MAX_FIELDS;
+    private long maxFormSize = FormUrlDecoder.DEFAULT_MAX_SIZE;
+    private Collection<Part> parts;
+    private AttributeStore attributes;
+    private ServletResponse servletResponse;
+    private VertxAsyncContext asyncContext;
+    private Handler<String> asyncDispatcher;
+    private DispatcherType dispatcherType = DispatcherType.REQUEST;
+    private Handler<VertxHttpServletRequest> recycler;
+    private VertxSessionManager sessionManager;
+    private VertxHttpSession session;
+    private boolean sessionResolved;
+    private ConnectionInfo connectionInfo;
+    private TrustedProxies trustedProxies;
+    private ForwardedHeaderFormat forwardedHeaderFormat = ForwardedHeaderFormat.X_FORWARDED;
+    private ForwardedHeaders forwarded;
+    private boolean forwardedResolved;
+    private ServletMetrics metrics;
+    private VertxServletContext servletContext;
+    private String servletPath;
+    private String pathInfo;
+    private boolean asyncSupported = true;
+    private boolean inService;
 
     private static final String[] EMPTY_STRING_ARRAY = new String[0];
+    private static final String X509_CERTIFICATE_ATTRIBUTE = "javax.servlet.request.X509Certificate";
+    private static final String FORM_URLENCODED = "application/x-www-form-urlencoded";
+    private static final List<Locale> DEFAULT_LOCALES = Collections.singletonList(Locale.US);
 
     public VertxHttpServletRequest(HttpServerRequest request) {
-        this(request, new HashMap<>());
+        this(request, Collections.emptyMap());
     }
 
     public VertxHttpServletRequest(HttpServerRequest request, Map<String, List<String>> formParams) {
         this.request = request;
-        this.requestUri = parseUri(request);
         this.formParams = formParams;
+        this.context = Vertx.currentContext();
+    }
+
+    /**
+     * Returns the full request {@link URI}.  The URI is only built on the first call, the servlet accessors for the
+     * scheme, server name, port and path do not need it.
+     *
+     * @return the request URI
+     */
+    public URI getURI() {
+        if (uri == null) {
+            uri = parseUri(request);
+        }
+        return uri;
     }
 
     private URI parseUri(HttpServerRequest request) {
@@ -85,6 +143,136 @@ public class VertxHttpServletRequest implements HttpServletRequest {
         return URI.create(sb.toString());
     }
 
+    /**
+     * Resolves scheme, server name, port and path from the request line and Host header.  Falls back to a single pass
+     * over {@link HttpServerRequest#absoluteURI()} when the request does not provide a scheme or host.
+     */
+    private void resolveAuthority() {
+        if (scheme != null) {
+            return;
+        }
+
+        String scheme = request.scheme();
+        String host = request.host();
+        String path = request.path();
+
+        if (scheme == null || host == null) {
+            String absoluteUri = request.absoluteURI();
+            if (absoluteUri != null) {
+                int schemeEnd = absoluteUri.indexOf("://");
+                if (schemeEnd > 0) {
+                    int hostStart = schemeEnd + 3;
+                    int hostEnd = hostStart;
+                    int len = absoluteUri.length();
+                    while (hostEnd < len) {
+                        char c = absoluteUri.charAt(hostEnd);
+                        if (c == '/' || c == '?' || c == '#') {
+                            break;
+                        }
+                        hostEnd++;
+                    }
+                    if (scheme == null) {
+                        scheme = absoluteUri.substring(0, schemeEnd);
+                    }
+                    if (host == null) {
+                        host = absoluteUri.substring(hostStart, hostEnd);
+                    }
+                    if (path == null) {
+                        int pathEnd = hostEnd;
+                        while (pathEnd < len) {
+                            char c = absoluteUri.charAt(pathEnd);
+                            if (c == '?' || c == '#') {
+                                break;
+                            }
+                            pathEnd++;
+                        }
+                        path = pathEnd > hostEnd ? absoluteUri.substring(hostEnd, pathEnd) : "/";
+                    }
+                }
+            }
+        }
+
+        ForwardedHeaders forwarded = forwarded();
+        if (forwarded != null) {
+            if (forwarded.getScheme() != null) {
+                scheme = forwarded.getScheme();
+            }
+            if (forwarded.getHost() != null) {
+                host = forwarded.getHost();
+            }
+        }
+
+        int port = -1;
+        if (host != null) {
+            // Split host:port, skipping the colons of an IPv6 literal like [::1]:8080
+            int portStart = host.lastIndexOf(':');
+            if (portStart > host.lastIndexOf(']')) {
+                port = parsePort(host, portStart + 1);
+                host = host.substring(0, portStart);
+            }
+        }
+
+        this.serverName = host;
+        this.serverPort = port;
+        this.requestPath = path;
+        this.scheme = scheme == null ? "http" : scheme;
+    }
+
+    /**
+     * Resolves the forwarded headers once per request if trusted proxies are set
+     */
+    private ForwardedHeaders forwarded() {
+        if (!forwardedResolved) {
+            forwardedResolved = true;
+            if (trustedProxies != null) {
+                forwarded = ForwardedHeaders.resolve(request.headers(), connectionInfo().getRemoteAddr(),
+                        trustedProxies, forwardedHeaderFormat);
+            }
+        }
+        return forwarded;
+    }
+
+    /**
+     * Enables the <code>Forwarded</code> and <code>X-Forwarded-*</code> headers.  When the request comes from one
+     * of the trusted proxies, {@link #getRemoteAddr()}, {@link #getScheme()}, {@link #isSecure()} and
+     * {@link #getServerName()} report the client side values the proxies forwarded instead of the connection's.
+     *
+     * @param trustedProxies the trusted proxies, or null to ignore the headers
+     */
+    public void setTrustedProxies(TrustedProxies trustedProxies) {
+        this.trustedProxies = trustedProxies;
+    }
+
+    /**
+     * Selects the forwarding headers the trusted proxies maintain, the other family is ignored.  Defaults to
+     * {@link ForwardedHeaderFormat#X_FORWARDED}.
+     *
+     * @param forwardedHeaderFormat the header family
+     */
+    public void setForwardedHeaderFormat(ForwardedHeaderFormat forwardedHeaderFormat) {
+        this.forwardedHeaderFormat = forwardedHeaderFormat;
+    }
+
+    private static int parsePort(String s, int start) {
+        int len = s.length();
+        if (start >= len) {
+            return -1;
+        }
+        int port = 0;
+        for (int i = start; i < len; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            port = port * 10 + (c - '0');
+            if (port > 0xFFFF) {
+                // Out of range, the scheme's default port applies like for any other malformed port
+                return -1;
+            }
+        }
+        return port;
+    }
+
     /**
      * Returns the name of the authentication scheme used to protect
      * the servlet. All servlet containers support basic, form and client
@@ -118,18 +306,36 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public Cookie[] getCookies() {
-        String header = request.headers().get(HttpHeaders.Names.COOKIE);
-        if (header == null || header.isEmpty()) {
-            return new Cookie[0];
+        if (cookies == null) {
+            cookies = CookieParser.parse(request.headers().get(HttpHeaderNames.COOKIE));
         }
-        Set<io.netty.handler.codec.http.Cookie> nettyCookies = CookieDecoder.decode(header);
-        Cookie[] cookies = new Cookie[nettyCookies.size()];
-        int index = 0;
-        for (io.netty.handler.codec.http.Cookie nc : nettyCookies) {
-            cookies[index] = new Cookie(nc.getName(), nc.getValue());
-            index++;
+        // The parsed cookies are shared by every call, hand out copies the caller may modify
+        Cookie[] copy = new Cookie[cookies.length];
+        for (int i = 0; i < cookies.length; i++) {
+            copy[i] = (Cookie) cookies[i].clone();
         }
-        return cookies;
+        return copy;
+    }
+
+    /**
+     * Returns the first <code>Cookie</code> with the specified name the client
+     * sent with this request.  Unlike {@link #getCookies()} this does not
+     * create <code>Cookie</code> objects for the other cookies in the header.
+     *
+     * @param name the cookie name
+     * @return the <code>Cookie</code>, or <code>null</code> if the request
+     * has no cookie with that name
+     */
+    public Cookie getCookie(String name) {
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (cookie.getName().equals(name)) {
+                    return (Cookie) cookie.clone();
+                }
+            }
+            return null;
+        }
+        return CookieParser.find(request.headers().get(HttpHeaderNames.COOKIE), name);
     }
 
     /**
@@ -168,13 +374,11 @@ public class VertxHttpServletRequest implements HttpServletRequest {
         if (header == null) {
             return -1;
         }
-        synchronized (this) {
-            try {
-                return dateFormat.parse(header).getTime();
-            } catch (ParseException e) {
-                throw new IllegalArgumentException(e);
-            }
+        long date = HttpDateParser.parse(header);
+        if (date == HttpDateParser.INVALID) {
+            throw new IllegalArgumentException("Invalid date header " + name + ": " + header);
         }
+        return date;
     }
 
     /**
@@ -199,6 +403,18 @@ public class VertxHttpServletRequest implements HttpServletRequest {
         return request.headers().get(name);
     }
 
+    /**
+     * Returns the value of the specified request header like {@link #getHeader(String)}.  Passing a pre-built
+     * {@link io.netty.util.AsciiString}, e.g. from {@link HttpHeaderNames}, avoids converting and hashing the name
+     * on every lookup.
+     *
+     * @param name the header name, case insensitive
+     * @return the header value, or null if the request does not have a header of that name
+     */
+    public String getHeader(CharSequence name) {
+        return request.headers().get(name);
+    }
+
     /**
      * Returns all the values of the specified request header
      * as an <code>Enumeration</code> of <code>String</code> objects.
@@ -225,7 +441,7 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public Enumeration<String> getHeaders(String name) {
-        return Collections.enumeration(request.headers().getAll(name));
+        return HeaderEnumeration.values(request.headers(), name);
     }
 
     /**
@@ -247,7 +463,7 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public Enumeration<String> getHeaderNames() {
-        return Collections.enumeration(request.headers().names());
+        return HeaderEnumeration.names(request.headers());
     }
 
     /**
@@ -275,7 +491,53 @@ public class VertxHttpServletRequest implements HttpServletRequest {
         if (header == null) {
             return -1;
         }
-        return Integer.parseInt(header);
+        long value = parseLong(header);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("For input string: \"" + header + "\"");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Parses a decimal header value directly from its characters, ignoring surrounding whitespace
+     *
+     * @throws NumberFormatException if the value is not a number or does not fit in a <code>long</code>
+     */
+    private static long parseLong(String value) {
+        int start = 0;
+        int end = value.length();
+        while (start < end && (value.charAt(start) == ' ' || value.charAt(start) == '\t')) {
+            start++;
+        }
+        while (end > start && (value.charAt(end - 1) == ' ' || value.charAt(end - 1) == '\t')) {
+            end--;
+        }
+
+        boolean negative = false;
+        if (start < end && (value.charAt(start) == '-' || value.charAt(start) == '+')) {
+            negative = value.charAt(start) == '-';
+            start++;
+        }
+        if (start == end) {
+            throw new NumberFormatException("For input string: \"" + value + "\"");
+        }
+
+        // Accumulate negatively so Long.MIN_VALUE does not overflow
+        long result = 0;
+        for (int i = start; i < end; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9 || result < (Long.MIN_VALUE + digit) / 10) {
+                throw new NumberFormatException("For input string: \"" + value + "\"");
+            }
+            result = result * 10 - digit;
+        }
+        if (!negative) {
+            if (result == Long.MIN_VALUE) {
+                throw new NumberFormatException("For input string: \"" + value + "\"");
+            }
+            result = -result;
+        }
+        return result;
     }
 
     /**
@@ -315,7 +577,7 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public String getPathInfo() {
-        return request.path();
+        return servletContext == null ? request.path() : pathInfo;
     }
 
     /**
@@ -364,7 +626,7 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public String getContextPath() {
-        return null;
+        return servletContext == null ? null : servletContext.getContextPath();
     }
 
     /**
@@ -458,7 +720,11 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public String getRequestedSessionId() {
-        return null;
+        if (sessionManager == null) {
+            return null;
+        }
+        Cookie cookie = getCookie(sessionManager.getCookieName());
+        return cookie == null ? null : cookie.getValue();
     }
 
     /**
@@ -486,10 +752,8 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public String getRequestURI() {
-        if (requestUri == null) {
-            return null;
-        }
-        return requestUri.getPath();
+        resolveAuthority();
+        return requestPath;
     }
 
     /**
@@ -544,7 +808,7 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public String getServletPath() {
-        return null;
+        return servletContext == null ? null : servletPath;
     }
 
     /**
@@ -575,7 +839,47 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public HttpSession getSession(boolean create) {
-        return null;
+        if (session != null && !session.isInvalidated()) {
+            return session;
+        }
+        if (sessionManager == null) {
+            return null;
+        }
+        if (!sessionResolved) {
+            sessionResolved = true;
+            String id = getRequestedSessionId();
+            if (id != null) {
+                session = sessionManager.getSession(id, servletContext);
+                if (session != null) {
+                    return session;
+                }
+            }
+        }
+        if (!create) {
+            return null;
+        }
+
+        if (servletResponse != null && servletResponse.isCommitted()) {
+            throw new IllegalStateException("Cannot create a session after the response has been committed");
+        }
+        session = sessionManager.createSession(servletContext);
+        addSessionCookie();
+        return session;
+    }
+
+    private void addSessionCookie() {
+        if (servletResponse instanceof HttpServletResponse) {
+            ((HttpServletResponse) servletResponse).addCookie(sessionManager.createCookie(session.getId(), isSecure()));
+        }
+    }
+
+    /**
+     * Sets the session manager backing {@link #getSession()}, without one the request has no session
+     *
+     * @param sessionManager the session manager
+     */
+    public void setSessionManager(VertxSessionManager sessionManager) {
+        this.sessionManager = sessionManager;
     }
 
     /**
@@ -588,7 +892,7 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public HttpSession getSession() {
-        return null;
+        return getSession(true);
     }
 
     /**
@@ -602,7 +906,12 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public String changeSessionId() {
-        return null;
+        if (getSession(false) == null) {
+            throw new IllegalStateException("No session associated with the request");
+        }
+        String id = sessionManager.changeSessionId(session);
+        addSessionCookie();
+        return id;
     }
 
     /**
@@ -621,7 +930,9 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public boolean isRequestedSessionIdValid() {
-        return false;
+        String id = getRequestedSessionId();
+        HttpSession session = id == null ? null : getSession(false);
+        return session != null && id.equals(session.getId());
     }
 
     /**
@@ -634,7 +945,7 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public boolean isRequestedSessionIdFromCookie() {
-        return false;
+        return getRequestedSessionId() != null;
     }
 
     /**
@@ -772,7 +1083,197 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public Collection<Part> getParts() throws IOException, ServletException {
-        return null;
+        if (parts == null) {
+            String contentType = getContentType();
+            if (contentType == null || !contentType.regionMatches(true, 0, "multipart/form-data", 0, 19)) {
+                throw new ServletException("Content-Type is not multipart/form-data");
+            }
+            if (multipartConfig == null) {
+                throw new IllegalStateException("No multipart config set for this request");
+            }
+            String boundary = contentTypeParameter(contentType, "boundary");
+            if (boundary == null) {
+                throw new ServletException("Missing multipart boundary");
+            }
+            long maxRequestSize = multipartConfig.getMaxRequestSize();
+            if (maxRequestSize >= 0 && getContentLengthLong() > maxRequestSize) {
+                throw new IllegalStateException("Multipart request exceeds the maximum size of " + maxRequestSize);
+            }
+            parts = new MultipartParser(bodyStream(), boundary, multipartConfig).parse();
+        }
+        return parts;
+    }
+
+    /**
+     * Sets the multipart configuration used by {@link #getParts()}, e.g. from the servlet's
+     * {@link javax.servlet.annotation.MultipartConfig} annotation.  Parts larger than the file size threshold are
+     * written to temp files in the configured location.
+     *
+     * @param multipartConfig the multipart configuration
+     */
+    public void setMultipartConfig(MultipartConfigElement multipartConfig) {
+        this.multipartConfig = multipartConfig;
+    }
+
+    /**
+     * Sets the limits applied when the parameters are decoded from an application/x-www-form-urlencoded body.
+     * Exceeding them makes the <code>getParameter*</code> methods throw an {@link IllegalStateException}.
+     *
+     * @param maxFields the maximum number of form fields, or -1 for no limit
+     * @param maxSize   the maximum body size in bytes, or -1 for no limit
+     */
+    public void setFormLimits(int maxFields, long maxSize) {
+        this.maxFormFields = maxFields;
+        this.maxFormSize = maxSize;
+    }
+
+    /**
+     * Releases resources held by this request, e.g. the temp files of multipart parts.  Call it once the response
+     * has ended.
+     */
+    public void release() {
+        if (parts != null) {
+            for (Part part : parts) {
+                try {
+                    part.delete();
+                } catch (IOException ignore) {
+                    // Best effort
+                }
+            }
+            parts = null;
+        }
+        if (session != null) {
+            sessionManager.commit(session);
+            session = null;
+        }
+        Handler<VertxHttpServletRequest> recycler = this.recycler;
+        if (recycler != null) {
+            this.recycler = null;
+            recycler.handle(this);
+        }
+    }
+
+    /**
+     * Sets the handler {@link #release()} passes this wrapper to for reuse
+     */
+    void setRecycler(Handler<VertxHttpServletRequest> recycler) {
+        this.recycler = recycler;
+    }
+
+    /**
+     * Clears all per request state so the wrapper can be pooled.  The vert.x request is replaced by the given one,
+     * usually null or a guard that fails any use after recycling.
+     */
+    void recycle(HttpServerRequest request) {
+        this.request = request;
+        this.formParams = Collections.emptyMap();
+        this.context = null;
+        scheme = null;
+        serverName = null;
+        serverPort = 0;
+        requestPath = null;
+        uri = null;
+        cookies = null;
+        locales = null;
+        parameters = null;
+        inputStream = null;
+        inputStreamUsed = false;
+        reader = null;
+        characterEncoding = null;
+        multipartConfig = null;
+        maxFormFields = FormUrlDecoder.DEFAULT_MAX_FIELDS;
+        maxFormSize = FormUrlDecoder.DEFAULT_MAX_SIZE;
+        parts = null;
+        attributes = null;
+        asyncContext = null;
+        asyncDispatcher = null;
+        dispatcherType = DispatcherType.REQUEST;
+        recycler = null;
+        sessionManager = null;
+        session = null;
+        sessionResolved = false;
+        connectionInfo = null;
+        trustedProxies = null;
+        forwardedHeaderFormat = ForwardedHeaderFormat.X_FORWARDED;
+        forwarded = null;
+        forwardedResolved = false;
+        metrics = null;
+        servletContext = null;
+        servletPath = null;
+        pathInfo = null;
+        asyncSupported = true;
+        inService = false;
+    }
+
+    /**
+     * Sets the metrics the body stream reports to, must be called before the body stream is attached
+     */
+    void setMetrics(ServletMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    ServletMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the context the request was routed by, {@link #getServletPath()} and {@link #getPathInfo()} then return
+     * the mapped values instead of the whole path
+     */
+    void setServletContext(VertxServletContext servletContext) {
+        this.servletContext = servletContext;
+    }
+
+    void setServletPath(String servletPath, String pathInfo) {
+        this.servletPath = servletPath;
+        this.pathInfo = pathInfo;
+    }
+
+    void setAsyncSupported(boolean asyncSupported) {
+        this.asyncSupported = asyncSupported;
+    }
+
+    /**
+     * Marks the start of a container dispatch, an async context started during it defers complete() and dispatch()
+     * until {@link #endService()}
+     */
+    void beginService() {
+        inService = true;
+    }
+
+    /**
+     * Marks the end of a container dispatch and runs a complete() or dispatch() deferred meanwhile
+     *
+     * @return true if an async context started during the dispatch owns the response, false if the caller must end
+     * and release it
+     */
+    boolean endService() {
+        inService = false;
+        VertxAsyncContext asyncContext = this.asyncContext;
+        return asyncContext != null && asyncContext.serviceReturned();
+    }
+
+    boolean isInService() {
+        return inService;
+    }
+
+    /**
+     * Releases this request once the container ended its response.  After an async dispatch that did not start a new
+     * async cycle the listeners of the async context are notified of the completion first.
+     */
+    void releaseAfterService() {
+        VertxAsyncContext asyncContext = this.asyncContext;
+        if (asyncContext == null || !asyncContext.dispatchReturned()) {
+            release();
+        }
+    }
+
+    /**
+     * Binds a recycled wrapper to a new vert.x request
+     */
+    void reuse(HttpServerRequest request, Context context) {
+        this.request = request;
+        this.context = context;
     }
 
     /**
@@ -798,6 +1299,11 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public Part getPart(String name) throws IOException, ServletException {
+        for (Part part : getParts()) {
+            if (name.equals(part.getName())) {
+                return part;
+            }
+        }
         return null;
     }
 
@@ -842,7 +1348,11 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public Object getAttribute(String name) {
-        return null;
+        Object value = attributes == null ? null : attributes.get(name);
+        if (value == null && X509_CERTIFICATE_ATTRIBUTE.equals(name)) {
+            value = connectionInfo().getPeerCertificates(request);
+        }
+        return value;
     }
 
     /**
@@ -856,7 +1366,7 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public Enumeration<String> getAttributeNames() {
-        return null;
+        return attributes == null ? Collections.emptyEnumeration() : attributes.names();
     }
 
     /**
@@ -870,7 +1380,10 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public String getCharacterEncoding() {
-        return null;
+        if (characterEncoding == null) {
+            characterEncoding = contentTypeParameter(getContentType(), "charset");
+        }
+        return characterEncoding;
     }
 
     /**
@@ -886,7 +1399,51 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public void setCharacterEncoding(String env) throws UnsupportedEncodingException {
+        if (reader != null) {
+            // Has no effect once the body is being read
+            return;
+        }
+        try {
+            if (!Charset.isSupported(env)) {
+                throw new UnsupportedEncodingException(env);
+            }
+        } catch (IllegalCharsetNameException e) {
+            throw new UnsupportedEncodingException(env);
+        }
+        characterEncoding = env;
+    }
 
+    /**
+     * Extracts a parameter of a content type, e.g. the charset of <code>text/plain; charset="UTF-8"</code>
+     */
+    private static String contentTypeParameter(String contentType, String name) {
+        if (contentType == null) {
+            return null;
+        }
+        int len = contentType.length();
+        int index = contentType.indexOf(';');
+        while (index >= 0) {
+            int start = index + 1;
+            while (start < len && contentType.charAt(start) == ' ') {
+                start++;
+            }
+            index = contentType.indexOf(';', start);
+            int nameLen = name.length();
+            if (contentType.regionMatches(true, start, name, 0, nameLen)
+                    && start + nameLen < len && contentType.charAt(start + nameLen) == '=') {
+                int end = index < 0 ? len : index;
+                start += nameLen + 1;
+                while (end > start && contentType.charAt(end - 1) == ' ') {
+                    end--;
+                }
+                if (end - start >= 2 && contentType.charAt(start) == '"' && contentType.charAt(end - 1) == '"') {
+                    start++;
+                    end--;
+                }
+                return start < end ? contentType.substring(start, end) : null;
+            }
+        }
+        return null;
     }
 
     /**
@@ -900,7 +1457,8 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public int getContentLength() {
-        return getIntHeader(HttpHeaders.Names.CONTENT_LENGTH);
+        long length = getContentLengthLong();
+        return length > Integer.MAX_VALUE ? -1 : (int) length;
     }
 
     /**
@@ -914,11 +1472,11 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public long getContentLengthLong() {
-        String header = request.headers().get(HttpHeaders.Names.CONTENT_LENGTH);
+        String header = request.headers().get(HttpHeaderNames.CONTENT_LENGTH);
         if (header == null) {
             return -1;
         }
-        return Long.parseLong(header);
+        return parseLong(header);
     }
 
     /**
@@ -931,7 +1489,7 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public String getContentType() {
-        return request.headers().get(HttpHeaders.Names.CONTENT_TYPE);
+        return request.headers().get(HttpHeaderNames.CONTENT_TYPE);
     }
 
     /**
@@ -947,7 +1505,25 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public ServletInputStream getInputStream() throws IOException {
-        return null;
+        if (reader != null) {
+            throw new IllegalStateException("getReader() has already been called");
+        }
+        inputStreamUsed = true;
+        return bodyStream();
+    }
+
+    /**
+     * Returns the streaming body, attaching it to the vert.x request on first use.  Attach it on the event loop
+     * before handing the request to another thread, vert.x drops body chunks that arrive without a data handler.
+     */
+    VertxServletInputStream bodyStream() {
+        if (inputStream == null) {
+            inputStream = new VertxServletInputStream(request);
+            if (metrics != null) {
+                inputStream.setMetrics(metrics);
+            }
+        }
+        return inputStream;
     }
 
     /**
@@ -976,15 +1552,8 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public String getParameter(String name) {
-        String value = request.params().get(name);
-        if (value != null) {
-            return value;
-        }
-        List<String> values = formParams.get(name);
-        if (values != null && !values.isEmpty()) {
-            return values.get(0);
-        }
-        return null;
+        String[] values = parameters().get(name);
+        return values == null ? null : values[0];
     }
 
     /**
@@ -1000,11 +1569,7 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public Enumeration<String> getParameterNames() {
-        List<String> names = new ArrayList<>(request.params().names());
-        if (!formParams.isEmpty()) {
-            names.addAll(formParams.keySet());
-        }
-        return Collections.enumeration(names);
+        return Collections.enumeration(parameters().keySet());
     }
 
     /**
@@ -1023,20 +1588,9 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public String[] getParameterValues(String name) {
-
-        List<String> values = request.params().getAll(name);
-        if (!formParams.isEmpty()) {
-            List<String> formValues = formParams.get(name);
-            if (formValues != null && !formValues.isEmpty()) {
-                values.addAll(formValues);
-            }
-        }
-
-        if (values != null && !values.isEmpty()) {
-            return values.toArray(new String[values.size()]);
-        }
-
-        return EMPTY_STRING_ARRAY;
+        String[] values = parameters().get(name);
+        // The indexed arrays are shared by every call, hand out a copy the caller may modify
+        return values == null ? EMPTY_STRING_ARRAY : values.clone();
     }
 
     /**
@@ -1049,37 +1603,105 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      * @return an immutable java.util.Map containing parameter names as
      * keys and parameter values as map values. The keys in the parameter
      * map are of type String. The values in the parameter map are of type
-     * String array.
+     * String array.  The arrays are shared with this request's parameter index and must not be modified,
+     * {@link #getParameterValues} returns a copy.
      */
     @Override
     public Map<String, String[]> getParameterMap() {
-        Map<String, List<String>> map = new HashMap<>();
+        return parameters();
+    }
 
-        for (Map.Entry<String, String> e : request.params()) {
-            List<String> values = map.get(e.getKey());
-            if (values == null) {
-                values = new ArrayList<>();
-                map.put(e.getKey(), values);
+    /**
+     * Returns the merged query and form parameter index, built on first access.  Without form parameters from the
+     * caller a POSTed application/x-www-form-urlencoded body is decoded here, unless the servlet already started
+     * reading the body itself.
+     * <p>
+     * On the event loop the body can only be decoded once it has been received in full, waiting for the rest would
+     * block the loop.  Asking for parameters there any earlier fails rather than returning the query parameters
+     * alone, read them from a servlet thread or after the request ended instead.
+     *
+     * @throws IllegalStateException on the event loop if the form body has not been received yet
+     */
+    private Map<String, String[]> parameters() {
+        if (parameters == null) {
+            if (formParams.isEmpty() && isFormBody()) {
+                VertxServletInputStream in = bodyStream();
+                if (!in.isReceived() && Context.isOnEventLoopThread()) {
+                    throw new IllegalStateException("Form body not received yet, parameters cannot be read on the "
+                            + "event loop");
+                }
+                formParams = decodeForm(in);
             }
-            values.add(e.getValue());
+            parameters = index(formParams);
+        }
+        return parameters;
+    }
+
+    private Map<String, String[]> index(Map<String, List<String>> form) {
+        Map<String, String[]> map = new LinkedHashMap<>();
+
+        for (Map.Entry<String, String> e : request.params()) {
+            map.put(e.getKey(), append(map.get(e.getKey()), e.getValue()));
         }
 
-        for (Map.Entry<String, List<String>> e : formParams.entrySet()) {
-            List<String> values = map.get(e.getKey());
-            if (values == null) {
-                values = new ArrayList<>();
-                map.put(e.getKey(), values);
+        for (Map.Entry<String, List<String>> e : form.entrySet()) {
+            for (String value : e.getValue()) {
+                map.put(e.getKey(), append(map.get(e.getKey()), value));
             }
-            values.addAll(e.getValue());
         }
 
-        Map<String, String[]> arrayMap = new HashMap<>();
+        return Collections.unmodifiableMap(map);
+    }
 
-        for (Map.Entry<String, List<String>> e : map.entrySet()) {
-            arrayMap.put(e.getKey(), e.getValue().toArray(new String[e.getValue().size()]));
+    private boolean isFormBody() {
+        if (request.method() != HttpMethod.POST || inputStreamUsed || reader != null) {
+            return false;
         }
+        String contentType = getContentType();
+        return contentType != null && contentType.regionMatches(true, 0, FORM_URLENCODED, 0, FORM_URLENCODED.length());
+    }
 
-        return arrayMap;
+    private Map<String, List<String>> decodeForm(VertxServletInputStream in) {
+        MultiMap attributes = request.formAttributes();
+        if (!attributes.isEmpty()) {
+            // vert.x already decoded the body, setExpectMultipart(true) was called before it arrived
+            Map<String, List<String>> form = new LinkedHashMap<>();
+            for (String name : attributes.names()) {
+                form.put(name, attributes.getAll(name));
+            }
+            return form;
+        }
+        if (maxFormSize >= 0 && getContentLengthLong() > maxFormSize) {
+            throw new IllegalStateException("Form body exceeds the maximum size of " + maxFormSize);
+        }
+        Charset charset = StandardCharsets.UTF_8;
+        String encoding = getCharacterEncoding();
+        if (encoding != null) {
+            try {
+                charset = Charset.forName(encoding);
+            } catch (IllegalArgumentException ignore) {
+                // Unknown charset in the Content-Type, keep the default
+            }
+        }
+        FormUrlDecoder decoder = new FormUrlDecoder(charset, maxFormFields, maxFormSize);
+        try {
+            Buffer chunk;
+            while ((chunk = in.readChunk()) != null) {
+                decoder.decode(chunk);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to read the form body", e);
+        }
+        return decoder.end();
+    }
+
+    private static String[] append(String[] values, String value) {
+        if (values == null) {
+            return new String[]{value};
+        }
+        String[] copy = Arrays.copyOf(values, values.length + 1);
+        copy[values.length] = value;
+        return copy;
     }
 
     /**
@@ -1109,7 +1731,8 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public String getScheme() {
-        return requestUri.getScheme();
+        resolveAuthority();
+        return scheme;
     }
 
     /**
@@ -1122,7 +1745,8 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public String getServerName() {
-        return requestUri.getHost();
+        resolveAuthority();
+        return serverName;
     }
 
     /**
@@ -1135,8 +1759,9 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public int getServerPort() {
-        int port = requestUri.getPort();
-        if (port == 0) {
+        resolveAuthority();
+        int port = serverPort;
+        if (port <= 0) {
             return ("https".equals(getScheme())) ? 443 : 80;
         }
         return port;
@@ -1159,7 +1784,20 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public BufferedReader getReader() throws IOException {
-        return null;
+        if (reader == null) {
+            if (inputStreamUsed) {
+                throw new IllegalStateException("getInputStream() has already been called");
+            }
+            String encoding = getCharacterEncoding();
+            Charset charset;
+            try {
+                charset = encoding == null ? StandardCharsets.ISO_8859_1 : Charset.forName(encoding);
+            } catch (IllegalArgumentException e) {
+                throw new UnsupportedEncodingException(encoding);
+            }
+            reader = new BufferedReader(new VertxServletReader(bodyStream(), charset));
+        }
+        return reader;
     }
 
     /**
@@ -1173,11 +1811,11 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public String getRemoteAddr() {
-        SocketAddress address = request.remoteAddress();
-        if (address == null) {
-            return null;
+        ForwardedHeaders forwarded = forwarded();
+        if (forwarded != null && forwarded.getRemoteAddr() != null) {
+            return forwarded.getRemoteAddr();
         }
-        return address.toString();
+        return connectionInfo().getRemoteAddr();
     }
 
     /**
@@ -1218,7 +1856,17 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public void setAttribute(String name, Object o) {
-        throw new RuntimeException("Not implemented");
+        if (name == null) {
+            throw new IllegalArgumentException("Attribute name cannot be null");
+        }
+        if (o == null) {
+            removeAttribute(name);
+            return;
+        }
+        if (attributes == null) {
+            attributes = new AttributeStore();
+        }
+        attributes.put(name, o);
     }
 
     /**
@@ -1236,7 +1884,9 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public void removeAttribute(String name) {
-        throw new RuntimeException("Not implemented");
+        if (attributes != null) {
+            attributes.remove(name);
+        }
     }
 
     /**
@@ -1249,11 +1899,7 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public Locale getLocale() {
-        String header = request.headers().get(HttpHeaders.Names.ACCEPT_LANGUAGE);
-        if (header == null) {
-            return Locale.US;
-        }
-        return new Locale(header);
+        return locales().get(0);
     }
 
     /**
@@ -1270,9 +1916,15 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public Enumeration<Locale> getLocales() {
-        List<Locale> list = new ArrayList<>();
-        list.add(getLocale());
-        return Collections.enumeration(list);
+        return Collections.enumeration(locales());
+    }
+
+    private List<Locale> locales() {
+        if (locales == null) {
+            List<Locale> parsed = AcceptLanguageParser.parse(request.headers().get(HttpHeaderNames.ACCEPT_LANGUAGE));
+            locales = parsed.isEmpty() ? DEFAULT_LOCALES : parsed;
+        }
+        return locales;
     }
 
     /**
@@ -1316,7 +1968,7 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public RequestDispatcher getRequestDispatcher(String path) {
-        return null;
+        return servletContext == null ? null : servletContext.getRequestDispatcher(this, path);
     }
 
     /**
@@ -1338,7 +1990,7 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public int getRemotePort() {
-        return 0;
+        return connectionInfo().getRemotePort();
     }
 
     /**
@@ -1351,7 +2003,8 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public String getLocalName() {
-        return null;
+        // No reverse lookup on the request path, the address stands in for the name
+        return connectionInfo().getLocalAddr();
     }
 
     /**
@@ -1364,7 +2017,7 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public String getLocalAddr() {
-        return null;
+        return connectionInfo().getLocalAddr();
     }
 
     /**
@@ -1376,7 +2029,14 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public int getLocalPort() {
-        return 0;
+        return connectionInfo().getLocalPort();
+    }
+
+    private ConnectionInfo connectionInfo() {
+        if (connectionInfo == null) {
+            connectionInfo = ConnectionInfo.of(request);
+        }
+        return connectionInfo;
     }
 
     /**
@@ -1389,7 +2049,7 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public ServletContext getServletContext() {
-        return null;
+        return servletContext;
     }
 
     /**
@@ -1435,7 +2095,10 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public AsyncContext startAsync() throws IllegalStateException {
-        return null;
+        if (servletResponse == null) {
+            servletResponse = new VertxHttpServletResponse(request.response());
+        }
+        return startAsync(this, servletResponse);
     }
 
     /**
@@ -1502,7 +2165,22 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public AsyncContext startAsync(ServletRequest servletRequest, ServletResponse servletResponse) throws IllegalStateException {
-        return null;
+        if (context == null) {
+            throw new IllegalStateException("Request was not received on a vert.x context");
+        }
+        if (!asyncSupported) {
+            throw new IllegalStateException("A filter or servlet of this request does not support async");
+        }
+        if (asyncContext == null) {
+            asyncContext = new VertxAsyncContext(this, request.response(), context, servletRequest, servletResponse);
+        } else if (asyncContext.isDispatched()) {
+            // A new cycle during an async dispatch keeps the listeners and timeout of the context
+            asyncContext.restart(servletRequest, servletResponse);
+        } else {
+            throw new IllegalStateException("startAsync() has already been called");
+        }
+        asyncContext.start();
+        return asyncContext;
     }
 
     /**
@@ -1523,7 +2201,7 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public boolean isAsyncStarted() {
-        return false;
+        return asyncContext != null && !asyncContext.isCompleted() && !asyncContext.isDispatched();
     }
 
     /**
@@ -1540,7 +2218,7 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public boolean isAsyncSupported() {
-        return false;
+        return context != null && asyncSupported;
     }
 
     /**
@@ -1559,7 +2237,24 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public AsyncContext getAsyncContext() {
-        return null;
+        if (asyncContext == null) {
+            throw new IllegalStateException("startAsync() has not been called");
+        }
+        return asyncContext;
+    }
+
+    /**
+     * Sets the servlet response paired with this request, used by {@link #startAsync()}.  Defaults to a
+     * {@link VertxHttpServletResponse} over the vert.x response.
+     *
+     * @param servletResponse the servlet response
+     */
+    public void setServletResponse(ServletResponse servletResponse) {
+        this.servletResponse = servletResponse;
+    }
+
+    ServletResponse getServletResponse() {
+        return servletResponse;
     }
 
     /**
@@ -1593,6 +2288,29 @@ public class VertxHttpServletRequest implements HttpServletRequest {
      */
     @Override
     public DispatcherType getDispatcherType() {
-        return null;
+        return dispatcherType;
+    }
+
+    void setDispatcherType(DispatcherType dispatcherType) {
+        this.dispatcherType = dispatcherType;
+    }
+
+    /**
+     * Sets the handler that re-runs the servlet when {@link AsyncContext#dispatch()} is called, it receives the
+     * dispatch path or null for the original path
+     */
+    void setAsyncDispatcher(Handler<String> asyncDispatcher) {
+        this.asyncDispatcher = asyncDispatcher;
+    }
+
+    Handler<String> getAsyncDispatcher() {
+        return asyncDispatcher;
+    }
+
+    /**
+     * @return the wrapped vert.x request
+     */
+    public HttpServerRequest getHttpServerRequest() {
+        return request;
     }
 }
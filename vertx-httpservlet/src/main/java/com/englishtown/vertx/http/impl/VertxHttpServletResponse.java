@@ -0,0 +1,725 @@
+package com.englishtown.vertx.http.impl;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.cookie.DefaultCookie;
+import io.netty.handler.codec.http.cookie.ServerCookieEncoder;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.Locale;
+
+/**
+ * HttpServletResponse wrapper over a vert.x {@link io.vertx.core.http.HttpServerResponse}
+ * <p>
+ * Output is buffered in a pooled Netty {@link ByteBuf} that is handed to {@link HttpServerResponse#write(Buffer)}
+ * without copying once the buffer size is reached, the next write allocates a fresh one.  Netty releases a written
+ * buffer once it is flushed to the socket, this class only releases a buffer vert.x refused and the one still held
+ * when the wrapper is recycled.  A response that fits in the buffer is sent with a
+ * <code>Content-Length</code> header, a larger one switches to chunked transfer encoding unless the servlet set the
+ * content length itself.  Call {@link #finish()} once the servlet is done to flush and end the vert.x response.
+ */
+public class VertxHttpServletResponse implements HttpServletResponse {
+
+    public static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+
+    private static final DateTimeFormatter DATE_FORMAT =
+            DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.ENGLISH).withZone(ZoneOffset.UTC);
+
+    // Not final so pooled wrappers can be reused, see recycle()
+    private HttpServerResponse response;
+    private final ByteBufAllocator allocator;
+    private Context context;
+    private final int defaultBufferSize;
+
+    private int bufferSize;
+    private ByteBuf buffer;
+    private boolean committed;
+    private boolean finished;
+    private long contentLength = -1;
+
+    private String contentType;
+    private String characterEncoding;
+    private Locale locale;
+
+    private VertxServletOutputStream outputStream;
+    private PrintWriter writer;
+    private ServletMetrics metrics;
+    private HttpServerRequest metricsRequest;
+
+    public VertxHttpServletResponse(HttpServerResponse response) {
+        this(response, DEFAULT_BUFFER_SIZE);
+    }
+
+    public VertxHttpServletResponse(HttpServerResponse response, int bufferSize) {
+        this(response, bufferSize, PooledByteBufAllocator.DEFAULT);
+    }
+
+    public VertxHttpServletResponse(HttpServerResponse response, int bufferSize, ByteBufAllocator allocator) {
+        this.response = response;
+        this.bufferSize = bufferSize;
+        this.defaultBufferSize = bufferSize;
+        this.allocator = allocator;
+        this.context = Vertx.currentContext();
+    }
+
+    /**
+     * Clears all per response state and releases the output buffer so the wrapper can be pooled.  The vert.x
+     * response is replaced by the given one, usually null or a guard that fails any use after recycling.
+     */
+    void recycle(HttpServerResponse response) {
+        releaseBuffer();
+        this.response = response;
+        this.context = null;
+        bufferSize = defaultBufferSize;
+        committed = false;
+        finished = false;
+        contentLength = -1;
+        contentType = null;
+        characterEncoding = null;
+        locale = null;
+        outputStream = null;
+        writer = null;
+        metrics = null;
+        metricsRequest = null;
+    }
+
+    /**
+     * Sets the metrics {@link #finish()} reports to
+     *
+     * @param request the vert.x request reported with the response
+     */
+    void setMetrics(ServletMetrics metrics, HttpServerRequest request) {
+        this.metrics = metrics;
+        this.metricsRequest = request;
+    }
+
+    /**
+     * Binds a recycled wrapper to a new vert.x response
+     */
+    void reuse(HttpServerResponse response, Context context) {
+        this.response = response;
+        this.context = context;
+    }
+
+    /**
+     * Flushes any buffered output and ends the vert.x response.  Subsequent calls have no effect.
+     *
+     * @throws IOException if the response could not be written
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        if (metrics == null) {
+            endResponse();
+            return;
+        }
+        Object token = metrics.begin(ServletMetrics.Phase.RESPONSE_FLUSH, metricsRequest);
+        long start = System.nanoTime();
+        try {
+            endResponse();
+        } finally {
+            metrics.responseFlush(metricsRequest, token, System.nanoTime() - start, response.bytesWritten());
+        }
+    }
+
+    private void endResponse() throws IOException {
+        flushWriter();
+        finished = true;
+
+        if (!committed) {
+            committed = true;
+            int length = buffer == null ? 0 : buffer.readableBytes();
+            if (contentLength < 0 && !response.isChunked()) {
+                response.headers().set(HttpHeaderNames.CONTENT_LENGTH, String.valueOf(length));
+            }
+            if (length > 0) {
+                ByteBuf last = takeBuffer();
+                try {
+                    response.end(Buffer.buffer(last));
+                } catch (RuntimeException e) {
+                    last.release();
+                    throw e;
+                }
+                return;
+            }
+        } else if (buffer != null && buffer.isReadable()) {
+            writeBuffer();
+        }
+        releaseBuffer();
+        response.end();
+    }
+
+    /**
+     * @return true once {@link #finish()} was called
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    void write(int b) throws IOException {
+        checkNotFinished();
+        if (buffer == null) {
+            buffer = allocator.buffer(bufferSize);
+        }
+        buffer.writeByte(b);
+        if (buffer.readableBytes() >= bufferSize) {
+            flushBuffer();
+        }
+    }
+
+    void write(byte[] b, int off, int len) throws IOException {
+        checkNotFinished();
+        while (len > 0) {
+            if (buffer == null) {
+                buffer = allocator.buffer(bufferSize);
+            }
+            int n = Math.min(len, bufferSize - buffer.readableBytes());
+            buffer.writeBytes(b, off, n);
+            off += n;
+            len -= n;
+            if (buffer.readableBytes() >= bufferSize) {
+                flushBuffer();
+            }
+        }
+    }
+
+    private void checkNotFinished() throws IOException {
+        if (finished) {
+            throw new IOException("Response already finished");
+        }
+    }
+
+    /**
+     * Detaches the output buffer, the next write allocates a new one
+     */
+    private ByteBuf takeBuffer() {
+        ByteBuf buf = buffer;
+        buffer = null;
+        return buf;
+    }
+
+    /**
+     * Hands the output buffer to vert.x, which releases it once written.  It is only released here if the write fails.
+     */
+    private void writeBuffer() {
+        ByteBuf buf = takeBuffer();
+        try {
+            response.write(Buffer.buffer(buf));
+        } catch (RuntimeException e) {
+            buf.release();
+            throw e;
+        }
+    }
+
+    private void releaseBuffer() {
+        if (buffer != null) {
+            buffer.release();
+            buffer = null;
+        }
+    }
+
+    private void commit() {
+        if (committed) {
+            return;
+        }
+        committed = true;
+        if (contentLength < 0) {
+            response.setChunked(true);
+        }
+    }
+
+    @Override
+    public void addCookie(Cookie cookie) {
+        if (committed) {
+            return;
+        }
+        DefaultCookie nettyCookie = new DefaultCookie(cookie.getName(), cookie.getValue());
+        if (cookie.getDomain() != null) {
+            nettyCookie.setDomain(cookie.getDomain());
+        }
+        if (cookie.getPath() != null) {
+            nettyCookie.setPath(cookie.getPath());
+        }
+        if (cookie.getMaxAge() >= 0) {
+            nettyCookie.setMaxAge(cookie.getMaxAge());
+        }
+        nettyCookie.setSecure(cookie.getSecure());
+        nettyCookie.setHttpOnly(cookie.isHttpOnly());
+        response.headers().add(HttpHeaderNames.SET_COOKIE, ServerCookieEncoder.STRICT.encode(nettyCookie));
+    }
+
+    @Override
+    public boolean containsHeader(String name) {
+        return response.headers().contains(name);
+    }
+
+    @Override
+    public String encodeURL(String url) {
+        return url;
+    }
+
+    @Override
+    public String encodeRedirectURL(String url) {
+        return url;
+    }
+
+    @Override
+    @Deprecated
+    public String encodeUrl(String url) {
+        return encodeURL(url);
+    }
+
+    @Override
+    @Deprecated
+    public String encodeRedirectUrl(String url) {
+        return encodeRedirectURL(url);
+    }
+
+    @Override
+    public void sendError(int sc, String msg) throws IOException {
+        if (committed) {
+            throw new IllegalStateException("Response already committed");
+        }
+        resetBuffer();
+        setStatus(sc);
+        if (msg != null) {
+            response.setStatusMessage(msg);
+            setContentType("text/plain; charset=UTF-8");
+            byte[] bytes = msg.getBytes(StandardCharsets.UTF_8);
+            write(bytes, 0, bytes.length);
+        }
+        finish();
+    }
+
+    @Override
+    public void sendError(int sc) throws IOException {
+        sendError(sc, null);
+    }
+
+    @Override
+    public void sendRedirect(String location) throws IOException {
+        if (committed) {
+            throw new IllegalStateException("Response already committed");
+        }
+        resetBuffer();
+        setStatus(SC_FOUND);
+        response.headers().set(HttpHeaderNames.LOCATION, location);
+        finish();
+    }
+
+    @Override
+    public void setDateHeader(String name, long date) {
+        setHeader(name, DATE_FORMAT.format(Instant.ofEpochMilli(date)));
+    }
+
+    @Override
+    public void addDateHeader(String name, long date) {
+        addHeader(name, DATE_FORMAT.format(Instant.ofEpochMilli(date)));
+    }
+
+    @Override
+    public void setHeader(String name, String value) {
+        if (committed) {
+            return;
+        }
+        if (HttpHeaderNames.CONTENT_TYPE.contentEqualsIgnoreCase(name)) {
+            setContentType(value);
+            return;
+        }
+        if (HttpHeaderNames.CONTENT_LENGTH.contentEqualsIgnoreCase(name)) {
+            setContentLengthLong(value == null ? -1 : Long.parseLong(value));
+            return;
+        }
+        if (value == null) {
+            response.headers().remove(name);
+        } else {
+            response.headers().set(name, value);
+        }
+    }
+
+    @Override
+    public void addHeader(String name, String value) {
+        if (committed) {
+            return;
+        }
+        if (HttpHeaderNames.CONTENT_TYPE.contentEqualsIgnoreCase(name)
+                || HttpHeaderNames.CONTENT_LENGTH.contentEqualsIgnoreCase(name)) {
+            setHeader(name, value);
+            return;
+        }
+        response.headers().add(name, value);
+    }
+
+    @Override
+    public void setIntHeader(String name, int value) {
+        setHeader(name, String.valueOf(value));
+    }
+
+    @Override
+    public void addIntHeader(String name, int value) {
+        addHeader(name, String.valueOf(value));
+    }
+
+    @Override
+    public void setStatus(int sc) {
+        if (committed) {
+            return;
+        }
+        response.setStatusCode(sc);
+    }
+
+    @Override
+    @Deprecated
+    public void setStatus(int sc, String sm) {
+        if (committed) {
+            return;
+        }
+        response.setStatusCode(sc);
+        response.setStatusMessage(sm);
+    }
+
+    @Override
+    public int getStatus() {
+        return response.getStatusCode();
+    }
+
+    @Override
+    public String getHeader(String name) {
+        return response.headers().get(name);
+    }
+
+    @Override
+    public Collection<String> getHeaders(String name) {
+        return response.headers().getAll(name);
+    }
+
+    @Override
+    public Collection<String> getHeaderNames() {
+        return response.headers().names();
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        return characterEncoding == null ? StandardCharsets.ISO_8859_1.name() : characterEncoding;
+    }
+
+    @Override
+    public String getContentType() {
+        if (contentType == null) {
+            return null;
+        }
+        return characterEncoding == null ? contentType : contentType + ";charset=" + characterEncoding;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("getWriter() has already been called");
+        }
+        if (outputStream == null) {
+            outputStream = new VertxServletOutputStream();
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            if (outputStream != null) {
+                throw new IllegalStateException("getOutputStream() has already been called");
+            }
+            Charset charset;
+            try {
+                charset = Charset.forName(getCharacterEncoding());
+            } catch (IllegalArgumentException e) {
+                throw new UnsupportedEncodingException(getCharacterEncoding());
+            }
+            if (characterEncoding == null) {
+                // Make the charset explicit now that it can no longer change
+                setCharacterEncoding(charset.name());
+            }
+            outputStream = new VertxServletOutputStream();
+            writer = new PrintWriter(new OutputStreamWriter(outputStream, charset), false);
+        }
+        return writer;
+    }
+
+    @Override
+    public void setCharacterEncoding(String charset) {
+        if (committed || writer != null) {
+            return;
+        }
+        characterEncoding = charset;
+        updateContentTypeHeader();
+    }
+
+    @Override
+    public void setContentLength(int len) {
+        setContentLengthLong(len);
+    }
+
+    @Override
+    public void setContentLengthLong(long len) {
+        if (committed) {
+            return;
+        }
+        contentLength = len;
+        if (len < 0) {
+            response.headers().remove(HttpHeaderNames.CONTENT_LENGTH);
+        } else {
+            response.headers().set(HttpHeaderNames.CONTENT_LENGTH, String.valueOf(len));
+        }
+    }
+
+    @Override
+    public void setContentType(String type) {
+        if (committed) {
+            return;
+        }
+        if (type == null) {
+            contentType = null;
+            if (writer == null) {
+                characterEncoding = null;
+            }
+            updateContentTypeHeader();
+            return;
+        }
+
+        int index = type.indexOf(';');
+        if (index < 0) {
+            contentType = type;
+        } else {
+            contentType = type.substring(0, index).trim();
+            int charsetIndex = type.toLowerCase(Locale.ENGLISH).indexOf("charset=", index);
+            if (charsetIndex >= 0 && writer == null) {
+                int end = type.indexOf(';', charsetIndex);
+                String charset = type.substring(charsetIndex + 8, end < 0 ? type.length() : end).trim();
+                if (charset.length() >= 2 && charset.startsWith("\"") && charset.endsWith("\"")) {
+                    charset = charset.substring(1, charset.length() - 1);
+                }
+                characterEncoding = charset;
+            }
+        }
+        updateContentTypeHeader();
+    }
+
+    private void updateContentTypeHeader() {
+        String value = getContentType();
+        if (value == null) {
+            response.headers().remove(HttpHeaderNames.CONTENT_TYPE);
+        } else {
+            response.headers().set(HttpHeaderNames.CONTENT_TYPE, value);
+        }
+    }
+
+    @Override
+    public void setBufferSize(int size) {
+        if (buffer != null && buffer.isReadable()) {
+            throw new IllegalStateException("Content has already been written");
+        }
+        if (committed) {
+            throw new IllegalStateException("Response already committed");
+        }
+        releaseBuffer();
+        bufferSize = Math.max(size, 1);
+    }
+
+    @Override
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Commits the response and hands buffered output to vert.x.  The first flush switches to chunked transfer
+     * encoding unless a content length was set.
+     */
+    @Override
+    public void flushBuffer() throws IOException {
+        if (finished) {
+            return;
+        }
+        flushWriter();
+        commit();
+        if (buffer != null && buffer.isReadable()) {
+            writeBuffer();
+        }
+    }
+
+    /**
+     * Drops the characters still held by the writer's encoder.  Flushing them into the buffer instead could overflow
+     * it and commit the very output that is being reset.
+     */
+    private void discardWriter() {
+        if (writer != null) {
+            outputStream.flushing = true;
+            outputStream.discarding = true;
+            try {
+                writer.flush();
+            } finally {
+                outputStream.flushing = false;
+                outputStream.discarding = false;
+            }
+        }
+    }
+
+    /**
+     * Moves chars pending in the writer's encoder into the response buffer without committing the response
+     */
+    private void flushWriter() {
+        if (writer != null) {
+            // PrintWriter.flush() also flushes the output stream, which would otherwise call flushBuffer()
+            outputStream.flushing = true;
+            try {
+                writer.flush();
+            } finally {
+                outputStream.flushing = false;
+            }
+        }
+    }
+
+    @Override
+    public void resetBuffer() {
+        if (committed) {
+            throw new IllegalStateException("Response already committed");
+        }
+        discardWriter();
+        if (buffer != null) {
+            buffer.clear();
+        }
+    }
+
+    @Override
+    public boolean isCommitted() {
+        return committed;
+    }
+
+    @Override
+    public void reset() {
+        resetBuffer();
+        response.headers().clear();
+        response.setStatusCode(SC_OK);
+        contentLength = -1;
+        contentType = null;
+        if (writer == null) {
+            characterEncoding = null;
+        }
+        locale = null;
+    }
+
+    @Override
+    public void setLocale(Locale loc) {
+        if (committed) {
+            return;
+        }
+        locale = loc;
+        if (loc != null) {
+            response.headers().set(HttpHeaderNames.CONTENT_LANGUAGE, loc.toLanguageTag());
+        }
+    }
+
+    @Override
+    public Locale getLocale() {
+        return locale == null ? Locale.getDefault() : locale;
+    }
+
+    /**
+     * Output stream writing into the response buffer
+     */
+    private class VertxServletOutputStream extends ServletOutputStream {
+
+        private boolean flushing;
+        // Set while discardWriter() drains the writer, the bytes are dropped
+        private boolean discarding;
+        private WriteListener writeListener;
+
+        @Override
+        public void write(int b) throws IOException {
+            if (!discarding) {
+                VertxHttpServletResponse.this.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (off < 0 || len < 0 || len > b.length - off) {
+                throw new IndexOutOfBoundsException();
+            }
+            if (!discarding) {
+                VertxHttpServletResponse.this.write(b, off, len);
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (!flushing) {
+                flushBuffer();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (!flushing) {
+                finish();
+            }
+        }
+
+        @Override
+        public boolean isReady() {
+            if (!response.writeQueueFull()) {
+                return true;
+            }
+            if (writeListener != null) {
+                WriteListener listener = writeListener;
+                response.drainHandler(v -> notifyWritePossible(listener));
+            }
+            return false;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            if (writeListener == null) {
+                throw new NullPointerException("writeListener");
+            }
+            if (this.writeListener != null) {
+                throw new IllegalStateException("WriteListener already set");
+            }
+            this.writeListener = writeListener;
+            if (context == null) {
+                notifyWritePossible(writeListener);
+            } else {
+                context.runOnContext(v -> notifyWritePossible(writeListener));
+            }
+        }
+
+        private void notifyWritePossible(WriteListener listener) {
+            try {
+                listener.onWritePossible();
+            } catch (Throwable t) {
+                listener.onError(t);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,259 @@
+package com.englishtown.vertx.http.impl;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.HttpSession;
+import javax.servlet.http.HttpSessionBindingEvent;
+import javax.servlet.http.HttpSessionBindingListener;
+import javax.servlet.http.HttpSessionContext;
+import java.util.*;
+
+/**
+ * {@link HttpSession} view of a {@link SessionData} snapshot for the duration of one request.
+ * <p>
+ * Attribute changes are tracked locally and merged into the stored session by {@link VertxSessionManager} when the
+ * request is released, so only the attributes this request set or removed are written back.  A value mutated in place
+ * must be set again to be written to a clustered store.  Not thread safe, like the servlet request it belongs to.
+ */
+final class VertxHttpSession implements HttpSession {
+
+    private final VertxSessionManager manager;
+    private final ServletContext servletContext;
+    private SessionData data;
+    private final long accessedTime;
+    private final boolean isNew;
+    private int maxInactiveInterval;
+    private Map<String, Object> changed = Collections.emptyMap();
+    private Set<String> removed = Collections.emptySet();
+    private boolean invalidated;
+
+    VertxHttpSession(VertxSessionManager manager, ServletContext servletContext, SessionData data, long accessedTime,
+                     boolean isNew) {
+        this.manager = manager;
+        this.servletContext = servletContext;
+        this.data = data;
+        this.accessedTime = accessedTime;
+        this.isNew = isNew;
+        this.maxInactiveInterval = data.getMaxInactiveInterval();
+    }
+
+    SessionData getData() {
+        return data;
+    }
+
+    long getAccessedTime() {
+        return accessedTime;
+    }
+
+    Map<String, Object> getChanged() {
+        return changed;
+    }
+
+    Set<String> getRemoved() {
+        return removed;
+    }
+
+    boolean isDirty() {
+        return !changed.isEmpty() || !removed.isEmpty() || maxInactiveInterval != data.getMaxInactiveInterval();
+    }
+
+    boolean isInvalidated() {
+        return invalidated;
+    }
+
+    /**
+     * @return the stored snapshot with the changes of this request applied
+     */
+    SessionData snapshot() {
+        return data.merge(accessedTime, maxInactiveInterval, changed, removed);
+    }
+
+    /**
+     * Replaces the snapshot after the changes of this request were stored under a new id
+     */
+    void rebase(SessionData data) {
+        this.data = data;
+        changed = Collections.emptyMap();
+        removed = Collections.emptySet();
+    }
+
+    @Override
+    public long getCreationTime() {
+        checkValid();
+        return data.getCreationTime();
+    }
+
+    @Override
+    public String getId() {
+        return data.getId();
+    }
+
+    @Override
+    public long getLastAccessedTime() {
+        checkValid();
+        return data.getLastAccessedTime();
+    }
+
+    @Override
+    public ServletContext getServletContext() {
+        return servletContext;
+    }
+
+    @Override
+    public void setMaxInactiveInterval(int interval) {
+        maxInactiveInterval = interval;
+    }
+
+    @Override
+    public int getMaxInactiveInterval() {
+        return maxInactiveInterval;
+    }
+
+    /**
+     * @deprecated As of Version 2.1, this method is deprecated and has no replacement
+     */
+    @Override
+    @Deprecated
+    public HttpSessionContext getSessionContext() {
+        return null;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        checkValid();
+        if (name == null) {
+            return null;
+        }
+        Object value = changed.get(name);
+        if (value != null) {
+            return value;
+        }
+        return removed.contains(name) ? null : data.getAttributes().get(name);
+    }
+
+    /**
+     * @deprecated As of Version 2.2, this method is replaced by {@link #getAttribute}
+     */
+    @Override
+    @Deprecated
+    public Object getValue(String name) {
+        return getAttribute(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        checkValid();
+        return Collections.enumeration(attributeNames());
+    }
+
+    /**
+     * @deprecated As of Version 2.2, this method is replaced by {@link #getAttributeNames}
+     */
+    @Override
+    @Deprecated
+    public String[] getValueNames() {
+        checkValid();
+        Set<String> names = attributeNames();
+        return names.toArray(new String[names.size()]);
+    }
+
+    private Set<String> attributeNames() {
+        Set<String> names = new LinkedHashSet<>(data.getAttributes().keySet());
+        names.removeAll(removed);
+        names.addAll(changed.keySet());
+        return names;
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        checkValid();
+        if (name == null) {
+            throw new IllegalArgumentException("Attribute name cannot be null");
+        }
+        if (value == null) {
+            removeAttribute(name);
+            return;
+        }
+
+        Object previous = getAttribute(name);
+        if (changed.isEmpty()) {
+            changed = new HashMap<>(4);
+        }
+        changed.put(name, value);
+        if (!removed.isEmpty()) {
+            removed.remove(name);
+        }
+
+        if (value instanceof HttpSessionBindingListener && value != previous) {
+            ((HttpSessionBindingListener) value).valueBound(new HttpSessionBindingEvent(this, name, value));
+        }
+        if (previous instanceof HttpSessionBindingListener && previous != value) {
+            ((HttpSessionBindingListener) previous).valueUnbound(new HttpSessionBindingEvent(this, name, previous));
+        }
+    }
+
+    /**
+     * @deprecated As of Version 2.2, this method is replaced by {@link #setAttribute}
+     */
+    @Override
+    @Deprecated
+    public void putValue(String name, Object value) {
+        setAttribute(name, value);
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        checkValid();
+        Object previous = getAttribute(name);
+        if (previous == null) {
+            return;
+        }
+        if (!changed.isEmpty()) {
+            changed.remove(name);
+        }
+        if (data.getAttributes().containsKey(name)) {
+            if (removed.isEmpty()) {
+                removed = new HashSet<>(4);
+            }
+            removed.add(name);
+        }
+
+        if (previous instanceof HttpSessionBindingListener) {
+            ((HttpSessionBindingListener) previous).valueUnbound(new HttpSessionBindingEvent(this, name, previous));
+        }
+    }
+
+    /**
+     * @deprecated As of Version 2.2, this method is replaced by {@link #removeAttribute}
+     */
+    @Override
+    @Deprecated
+    public void removeValue(String name) {
+        removeAttribute(name);
+    }
+
+    @Override
+    public void invalidate() {
+        checkValid();
+        for (String name : attributeNames()) {
+            Object value = getAttribute(name);
+            if (value instanceof HttpSessionBindingListener) {
+                ((HttpSessionBindingListener) value).valueUnbound(new HttpSessionBindingEvent(this, name, value));
+            }
+        }
+        invalidated = true;
+        manager.invalidate(this);
+    }
+
+    @Override
+    public boolean isNew() {
+        checkValid();
+        return isNew;
+    }
+
+    private void checkValid() {
+        if (invalidated) {
+            throw new IllegalStateException("Session " + data.getId() + " has been invalidated");
+        }
+    }
+
+}
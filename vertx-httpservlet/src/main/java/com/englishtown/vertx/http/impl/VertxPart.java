@@ -0,0 +1,126 @@
+package com.englishtown.vertx.http.impl;
+
+import javax.servlet.http.Part;
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * A multipart/form-data {@link Part} held in memory or, above the configured threshold, in a temp file
+ */
+public class VertxPart implements Part {
+
+    private final Map<String, List<String>> headers;
+    private final String name;
+    private final String submittedFileName;
+    private final File location;
+
+    private byte[] data;
+    private File file;
+    private boolean temporary;
+    private long size;
+
+    VertxPart(Map<String, List<String>> headers, String name, String submittedFileName, File location) {
+        this.headers = headers;
+        this.name = name;
+        this.submittedFileName = submittedFileName;
+        this.location = location;
+    }
+
+    void setData(byte[] data, int length) {
+        this.data = length == data.length ? data : Arrays.copyOf(data, length);
+        this.size = length;
+    }
+
+    void setFile(File file, long size) {
+        this.file = file;
+        this.temporary = true;
+        this.size = size;
+    }
+
+    /**
+     * @return true if the content is held in memory rather than in a file
+     */
+    public boolean isInMemory() {
+        return file == null;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        if (file != null) {
+            return new FileInputStream(file);
+        }
+        return new ByteArrayInputStream(data == null ? new byte[0] : data);
+    }
+
+    @Override
+    public String getContentType() {
+        return getHeader("content-type");
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getSubmittedFileName() {
+        return submittedFileName;
+    }
+
+    @Override
+    public long getSize() {
+        return size;
+    }
+
+    @Override
+    public void write(String fileName) throws IOException {
+        File target = new File(fileName);
+        if (!target.isAbsolute()) {
+            target = new File(location, fileName);
+        }
+        if (file != null) {
+            if (temporary) {
+                Files.move(file.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                file = target;
+                temporary = false;
+            } else {
+                Files.copy(file.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } else {
+            try (OutputStream out = new FileOutputStream(target)) {
+                if (data != null) {
+                    out.write(data);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void delete() throws IOException {
+        data = null;
+        if (file != null && temporary) {
+            Files.deleteIfExists(file.toPath());
+            file = null;
+        }
+    }
+
+    @Override
+    public String getHeader(String name) {
+        List<String> values = headers.get(name.toLowerCase(Locale.ENGLISH));
+        return values == null ? null : values.get(0);
+    }
+
+    @Override
+    public Collection<String> getHeaders(String name) {
+        List<String> values = headers.get(name.toLowerCase(Locale.ENGLISH));
+        return values == null ? Collections.<String>emptyList() : values;
+    }
+
+    @Override
+    public Collection<String> getHeaderNames() {
+        return headers.keySet();
+    }
+
+}
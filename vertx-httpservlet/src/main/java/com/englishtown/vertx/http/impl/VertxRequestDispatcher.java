@@ -0,0 +1,385 @@
+package com.englishtown.vertx.http.impl;
+
+import io.vertx.core.buffer.Buffer;
+
+import javax.servlet.*;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * {@link RequestDispatcher} of a {@link VertxServletContext}, either for a path or for a named servlet.
+ * <p>
+ * The target sees the dispatching request through a thin wrapper that only overlays the path, query and dispatcher
+ * type, headers, attributes and already parsed parameters are read through from the dispatching request.  The
+ * <code>javax.servlet.forward.*</code>, <code>javax.servlet.include.*</code> and <code>javax.servlet.async.*</code>
+ * attributes are computed when they are read instead of being copied into the attributes up front.  The same overlay
+ * serves {@link AsyncContext#dispatch(String)}.
+ */
+final class VertxRequestDispatcher implements RequestDispatcher {
+
+    private static final String FORWARD_PREFIX = "javax.servlet.forward.";
+    private static final String INCLUDE_PREFIX = "javax.servlet.include.";
+    private static final String ASYNC_PREFIX = "javax.servlet.async.";
+    private static final String[] FORWARD_ATTRIBUTES = {FORWARD_REQUEST_URI, FORWARD_CONTEXT_PATH,
+            FORWARD_SERVLET_PATH, FORWARD_PATH_INFO, FORWARD_QUERY_STRING};
+    private static final String[] INCLUDE_ATTRIBUTES = {INCLUDE_REQUEST_URI, INCLUDE_CONTEXT_PATH,
+            INCLUDE_SERVLET_PATH, INCLUDE_PATH_INFO, INCLUDE_QUERY_STRING};
+    private static final String[] ASYNC_ATTRIBUTES = {AsyncContext.ASYNC_REQUEST_URI,
+            AsyncContext.ASYNC_CONTEXT_PATH, AsyncContext.ASYNC_SERVLET_PATH, AsyncContext.ASYNC_PATH_INFO,
+            AsyncContext.ASYNC_QUERY_STRING};
+
+    private final VertxServletContext context;
+    private final VertxServletRegistration servlet;
+    // All null for a named dispatcher, which keeps the path of the dispatching request
+    private final String path;
+    private final String requestURI;
+    private final String servletPath;
+    private final String pathInfo;
+    private final String queryString;
+
+    /**
+     * @param path        the decoded path within the context, used to match filters
+     * @param requestURI  the undecoded request URI including the context path
+     * @param queryString the query string of the dispatch path, or null
+     */
+    VertxRequestDispatcher(VertxServletContext context, VertxServletRegistration servlet, String path,
+                           String requestURI, String servletPath, String pathInfo, String queryString) {
+        this.context = context;
+        this.servlet = servlet;
+        this.path = path;
+        this.requestURI = requestURI;
+        this.servletPath = servletPath;
+        this.pathInfo = pathInfo;
+        this.queryString = queryString;
+    }
+
+    /**
+     * Creates a named dispatcher
+     */
+    VertxRequestDispatcher(VertxServletContext context, VertxServletRegistration servlet) {
+        this(context, servlet, null, null, null, null, null);
+    }
+
+    @Override
+    public void forward(ServletRequest request, ServletResponse response) throws ServletException, IOException {
+        if (response.isCommitted()) {
+            throw new IllegalStateException("Cannot forward after the response has been committed");
+        }
+        response.resetBuffer();
+
+        DispatchedRequest dispatched = new DispatchedRequest((HttpServletRequest) request, DispatcherType.FORWARD);
+        context.filterChain(path, servlet, DispatcherType.FORWARD).doFilter(dispatched, response);
+
+        if (!request.isAsyncStarted()) {
+            // The forward target produced the whole response
+            ServletResponse unwrapped = response;
+            while (unwrapped instanceof ServletResponseWrapper) {
+                unwrapped = ((ServletResponseWrapper) unwrapped).getResponse();
+            }
+            if (unwrapped instanceof VertxHttpServletResponse) {
+                ((VertxHttpServletResponse) unwrapped).finish();
+            } else {
+                response.flushBuffer();
+            }
+        }
+    }
+
+    @Override
+    public void include(ServletRequest request, ServletResponse response) throws ServletException, IOException {
+        DispatchedRequest dispatched = new DispatchedRequest((HttpServletRequest) request, DispatcherType.INCLUDE);
+        context.filterChain(path, servlet, DispatcherType.INCLUDE)
+                .doFilter(dispatched, new IncludedResponse((HttpServletResponse) response));
+    }
+
+    /**
+     * Runs an {@link AsyncContext#dispatch(String)} to the path of this dispatcher on the container's request
+     */
+    void dispatchAsync(VertxHttpServletRequest request, ServletResponse response)
+            throws ServletException, IOException {
+        DispatchedRequest dispatched = new DispatchedRequest(request, DispatcherType.ASYNC);
+        VertxFilterChain chain = context.filterChain(path, servlet, DispatcherType.ASYNC);
+        request.setAsyncSupported(chain.isAsyncSupported());
+        chain.doFilter(dispatched, response);
+    }
+
+    /**
+     * Path overlay over the dispatching request
+     */
+    private final class DispatchedRequest extends HttpServletRequestWrapper {
+
+        private final DispatcherType dispatcherType;
+        // Only the path of a forward or async dispatch is overlaid, an include keeps the path of the including request
+        private final boolean overlay;
+        private final String overlayPrefix;
+        private Map<String, String[]> parameters;
+
+        private DispatchedRequest(HttpServletRequest request, DispatcherType dispatcherType) {
+            super(request);
+            this.dispatcherType = dispatcherType;
+            this.overlay = requestURI != null && dispatcherType != DispatcherType.INCLUDE;
+            this.overlayPrefix = dispatcherType == DispatcherType.ASYNC ? ASYNC_PREFIX : FORWARD_PREFIX;
+        }
+
+        private HttpServletRequest original() {
+            return (HttpServletRequest) getRequest();
+        }
+
+        @Override
+        public DispatcherType getDispatcherType() {
+            return dispatcherType;
+        }
+
+        @Override
+        public String getRequestURI() {
+            return overlay ? requestURI : super.getRequestURI();
+        }
+
+        @Override
+        public StringBuffer getRequestURL() {
+            if (!overlay) {
+                return super.getRequestURL();
+            }
+            String scheme = getScheme();
+            StringBuffer url = new StringBuffer(scheme).append("://").append(getServerName());
+            int port = getServerPort();
+            if (port > 0 && !(port == 80 && "http".equals(scheme)) && !(port == 443 && "https".equals(scheme))) {
+                url.append(':').append(port);
+            }
+            return url.append(requestURI);
+        }
+
+        @Override
+        public String getServletPath() {
+            return overlay ? servletPath : super.getServletPath();
+        }
+
+        @Override
+        public String getPathInfo() {
+            return overlay ? pathInfo : super.getPathInfo();
+        }
+
+        @Override
+        public String getQueryString() {
+            return overlay && queryString != null ? queryString : super.getQueryString();
+        }
+
+        @Override
+        public RequestDispatcher getRequestDispatcher(String path) {
+            return context.getRequestDispatcher(this, path);
+        }
+
+        @Override
+        public Object getAttribute(String name) {
+            if (overlay && name.startsWith(overlayPrefix)) {
+                // A nested forward keeps the attributes of the first one
+                Object value = super.getAttribute(name);
+                return value != null ? value : originalAttribute(name.substring(overlayPrefix.length()));
+            }
+            if (name.startsWith(INCLUDE_PREFIX) && requestURI != null) {
+                return dispatcherType == DispatcherType.INCLUDE ? includeAttribute(name) : null;
+            }
+            return super.getAttribute(name);
+        }
+
+        @Override
+        public Enumeration<String> getAttributeNames() {
+            if (requestURI == null) {
+                return super.getAttributeNames();
+            }
+            Set<String> names = new LinkedHashSet<>();
+            for (Enumeration<String> e = super.getAttributeNames(); e.hasMoreElements(); ) {
+                names.add(e.nextElement());
+            }
+            names.addAll(Arrays.asList(FORWARD_ATTRIBUTES));
+            names.addAll(Arrays.asList(INCLUDE_ATTRIBUTES));
+            names.addAll(Arrays.asList(ASYNC_ATTRIBUTES));
+            names.removeIf(name -> getAttribute(name) == null);
+            return Collections.enumeration(names);
+        }
+
+        /**
+         * @param name the name of a forward or async attribute without its prefix
+         */
+        private Object originalAttribute(String name) {
+            HttpServletRequest original = original();
+            switch (name) {
+                case "request_uri":
+                    return original.getRequestURI();
+                case "context_path":
+                    return original.getContextPath();
+                case "servlet_path":
+                    return original.getServletPath();
+                case "path_info":
+                    return original.getPathInfo();
+                case "query_string":
+                    return original.getQueryString();
+                default:
+                    return null;
+            }
+        }
+
+        private Object includeAttribute(String name) {
+            switch (name) {
+                case INCLUDE_REQUEST_URI:
+                    return requestURI;
+                case INCLUDE_CONTEXT_PATH:
+                    return context.getContextPath();
+                case INCLUDE_SERVLET_PATH:
+                    return servletPath;
+                case INCLUDE_PATH_INFO:
+                    return pathInfo;
+                case INCLUDE_QUERY_STRING:
+                    return queryString;
+                default:
+                    return null;
+            }
+        }
+
+        @Override
+        public String getParameter(String name) {
+            String[] values = getParameterMap().get(name);
+            return values == null ? null : values[0];
+        }
+
+        @Override
+        public Map<String, String[]> getParameterMap() {
+            if (queryString == null) {
+                return super.getParameterMap();
+            }
+            if (parameters == null) {
+                parameters = mergeParameters();
+            }
+            return parameters;
+        }
+
+        @Override
+        public Enumeration<String> getParameterNames() {
+            return Collections.enumeration(getParameterMap().keySet());
+        }
+
+        @Override
+        public String[] getParameterValues(String name) {
+            return getParameterMap().get(name);
+        }
+
+        /**
+         * Parameters of the dispatch query string come first, followed by the already parsed ones of the request
+         */
+        private Map<String, String[]> mergeParameters() {
+            FormUrlDecoder decoder = new FormUrlDecoder(StandardCharsets.UTF_8, FormUrlDecoder.DEFAULT_MAX_FIELDS,
+                    FormUrlDecoder.DEFAULT_MAX_SIZE);
+            decoder.decode(Buffer.buffer(queryString));
+
+            Map<String, String[]> map = new LinkedHashMap<>();
+            for (Map.Entry<String, List<String>> e : decoder.end().entrySet()) {
+                map.put(e.getKey(), e.getValue().toArray(new String[0]));
+            }
+            for (Map.Entry<String, String[]> e : super.getParameterMap().entrySet()) {
+                String[] values = map.get(e.getKey());
+                if (values == null) {
+                    map.put(e.getKey(), e.getValue());
+                } else {
+                    String[] merged = Arrays.copyOf(values, values.length + e.getValue().length);
+                    System.arraycopy(e.getValue(), 0, merged, values.length, e.getValue().length);
+                    map.put(e.getKey(), merged);
+                }
+            }
+            return Collections.unmodifiableMap(map);
+        }
+
+    }
+
+    /**
+     * Response of an include, the included servlet can write the body but not change the status or headers
+     */
+    private static final class IncludedResponse extends HttpServletResponseWrapper {
+
+        private IncludedResponse(HttpServletResponse response) {
+            super(response);
+        }
+
+        @Override
+        public void setStatus(int sc) {
+        }
+
+        /**
+         * @deprecated As of version 2.1, due to ambiguous meaning of the message parameter
+         */
+        @Override
+        @Deprecated
+        public void setStatus(int sc, String sm) {
+        }
+
+        @Override
+        public void sendError(int sc, String msg) {
+        }
+
+        @Override
+        public void sendError(int sc) {
+        }
+
+        @Override
+        public void sendRedirect(String location) {
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+        }
+
+        @Override
+        public void addHeader(String name, String value) {
+        }
+
+        @Override
+        public void setIntHeader(String name, int value) {
+        }
+
+        @Override
+        public void addIntHeader(String name, int value) {
+        }
+
+        @Override
+        public void setDateHeader(String name, long date) {
+        }
+
+        @Override
+        public void addDateHeader(String name, long date) {
+        }
+
+        @Override
+        public void addCookie(Cookie cookie) {
+        }
+
+        @Override
+        public void setContentType(String type) {
+        }
+
+        @Override
+        public void setContentLength(int len) {
+        }
+
+        @Override
+        public void setContentLengthLong(long len) {
+        }
+
+        @Override
+        public void setCharacterEncoding(String charset) {
+        }
+
+        @Override
+        public void setLocale(Locale loc) {
+        }
+
+        @Override
+        public void reset() {
+        }
+
+    }
+
+}
@@ -0,0 +1,719 @@
+package com.englishtown.vertx.http.impl;
+
+import io.vertx.core.logging.Logger;
+import io.vertx.core.logging.LoggerFactory;
+
+import javax.servlet.*;
+import javax.servlet.descriptor.JspConfigDescriptor;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLDecoder;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link ServletContext} that routes requests to registered servlets and filters, pass it to
+ * {@link ServletHandler#ServletHandler(VertxServletContext)}.
+ * <p>
+ * Servlets and filters are registered and mapped with the <code>addServlet</code>/<code>addFilter</code> methods,
+ * then {@link #init()} initializes them and compiles the URL patterns into {@link UrlPatternMatcher} tries.  Routing a
+ * request walks its path once, whatever the number of mappings, and sets the servlet path and path info of the
+ * request.  Registrations cannot change once the context is initialized.
+ */
+public class VertxServletContext implements ServletContext {
+
+    public static final String SERVER_INFO = "vertx-httpservlet";
+
+    private static final Logger logger = LoggerFactory.getLogger(VertxServletContext.class);
+
+    private final String contextPath;
+    private final Map<String, VertxServletRegistration> servlets = new LinkedHashMap<>();
+    private final Map<String, VertxFilterRegistration> filters = new LinkedHashMap<>();
+    private final UrlPatternMatcher<VertxServletRegistration> servletMatcher = new UrlPatternMatcher<>();
+    // Each list is kept in mapping order
+    private final UrlPatternMatcher<List<VertxFilterMapping>> filterMatcher = new UrlPatternMatcher<>();
+    private final Map<String, List<VertxFilterMapping>> servletNameFilters = new HashMap<>();
+    private int filterMappings;
+    private final Map<String, String> initParameters = new LinkedHashMap<>();
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+    private final List<ServletContextListener> listeners = new ArrayList<>();
+    private String servletContextName;
+    private VertxSessionManager sessionManager;
+    private volatile boolean started;
+
+    /**
+     * Creates a context at the root path
+     */
+    public VertxServletContext() {
+        this("");
+    }
+
+    /**
+     * @param contextPath the context path, empty for the root context or starting with a slash
+     */
+    public VertxServletContext(String contextPath) {
+        if (contextPath == null || contextPath.equals("/")) {
+            contextPath = "";
+        }
+        if (!contextPath.isEmpty() && (!contextPath.startsWith("/") || contextPath.endsWith("/"))) {
+            throw new IllegalArgumentException("Invalid context path: " + contextPath);
+        }
+        this.contextPath = contextPath;
+    }
+
+    /**
+     * Notifies the context listeners and initializes the filters, then the servlets by their load on startup order
+     *
+     * @throws ServletException if a filter or servlet fails to initialize
+     */
+    public void init() throws ServletException {
+        checkNotStarted();
+        started = true;
+        if (sessionManager != null) {
+            sessionManager.getSessionCookieConfig().freeze();
+        }
+
+        ServletContextEvent event = new ServletContextEvent(this);
+        for (ServletContextListener listener : listeners) {
+            listener.contextInitialized(event);
+        }
+        for (VertxFilterRegistration filter : filters.values()) {
+            filter.init();
+        }
+        List<VertxServletRegistration> ordered = new ArrayList<>(servlets.values());
+        // Stable sort, servlets without a load on startup order come last in registration order
+        ordered.sort(Comparator.comparingInt(s -> s.getLoadOnStartup() < 0 ? Integer.MAX_VALUE : s.getLoadOnStartup()));
+        for (VertxServletRegistration servlet : ordered) {
+            servlet.init();
+        }
+    }
+
+    /**
+     * Destroys the servlets and filters and notifies the context listeners in reverse order
+     */
+    public void destroy() {
+        for (VertxServletRegistration servlet : servlets.values()) {
+            if (servlet.getServlet() != null) {
+                servlet.getServlet().destroy();
+            }
+        }
+        for (VertxFilterRegistration filter : filters.values()) {
+            if (filter.getFilter() != null) {
+                filter.getFilter().destroy();
+            }
+        }
+        ServletContextEvent event = new ServletContextEvent(this);
+        for (int i = listeners.size() - 1; i >= 0; i--) {
+            listeners.get(i).contextDestroyed(event);
+        }
+    }
+
+    /**
+     * Routes a request through the filters mapped to its path to the servlet it maps to, responds with 404 if the
+     * path is outside the context or no servlet is mapped and with 400 if the path cannot be normalized
+     *
+     * @param dispatchPath the path of an {@link AsyncContext#dispatch(String)}, or null to route the request URI
+     */
+    void service(VertxHttpServletRequest request, HttpServletResponse response, DispatcherType dispatcherType,
+                 String dispatchPath) throws ServletException, IOException {
+        if (!started) {
+            throw new IllegalStateException("Servlet context has not been initialized");
+        }
+        request.setServletContext(this);
+
+        if (dispatchPath != null) {
+            VertxRequestDispatcher dispatcher = (VertxRequestDispatcher) getRequestDispatcher(dispatchPath);
+            if (dispatcher == null) {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                return;
+            }
+            dispatcher.dispatchAsync(request, response);
+            return;
+        }
+
+        String path;
+        try {
+            path = pathInContext(request.getRequestURI());
+        } catch (IllegalArgumentException e) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST);
+            return;
+        }
+        UrlPatternMatcher.Match<VertxServletRegistration> match = path == null ? null : servletMatcher.match(path);
+        if (match == null) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        VertxServletRegistration servlet = match.getTarget();
+        request.setServletPath(match.getServletPath(), match.getPathInfo());
+        if (servlet.getMultipartConfig() != null) {
+            request.setMultipartConfig(servlet.getMultipartConfig());
+        }
+        VertxFilterChain chain = filterChain(path, servlet, dispatcherType);
+        request.setAsyncSupported(chain.isAsyncSupported());
+        chain.doFilter(request, response);
+    }
+
+    /**
+     * Decodes and normalizes the path below the context path, which filters and servlets are then matched against.
+     * Segments are decoded one by one after splitting, and <code>.</code> and <code>..</code> segments are removed,
+     * so neither an encoded slash nor a dot segment can make a path match a mapping it is not below.
+     *
+     * @return the decoded path below the context path, or null if the URI is outside the context
+     * @throws IllegalArgumentException if the path contains an encoded slash or invalid escape, or climbs above the
+     *                                  context root
+     */
+    String pathInContext(String requestUri) {
+        if (requestUri == null || !requestUri.startsWith(contextPath)) {
+            return null;
+        }
+        int len = contextPath.length();
+        if (requestUri.length() > len && requestUri.charAt(len) != '/') {
+            return null;
+        }
+        String path = requestUri.length() == len ? "/" : requestUri.substring(len);
+        if (path.indexOf('%') < 0 && path.indexOf("/.") < 0) {
+            return path;
+        }
+        return normalizePath(path);
+    }
+
+    private static String normalizePath(String path) {
+        String[] segments = path.substring(1).split("/", -1);
+        List<String> normalized = new ArrayList<>(segments.length);
+        for (int i = 0; i < segments.length; i++) {
+            String segment = decodeSegment(segments[i]);
+            boolean last = i == segments.length - 1;
+            if (segment.equals(".") || segment.equals("..")) {
+                if (segment.equals("..")) {
+                    if (normalized.isEmpty()) {
+                        throw new IllegalArgumentException("Path climbs above the context root: " + path);
+                    }
+                    normalized.remove(normalized.size() - 1);
+                }
+                if (last) {
+                    // "/a/b/.." is the directory "/a/"
+                    normalized.add("");
+                }
+                continue;
+            }
+            normalized.add(segment);
+        }
+        if (normalized.isEmpty()) {
+            return "/";
+        }
+        StringBuilder sb = new StringBuilder(path.length());
+        for (String segment : normalized) {
+            sb.append('/').append(segment);
+        }
+        return sb.toString();
+    }
+
+    private static String decodeSegment(String segment) {
+        if (segment.indexOf('%') < 0) {
+            return segment;
+        }
+        if (segment.contains("%2F") || segment.contains("%2f")) {
+            throw new IllegalArgumentException("Encoded slash in path segment: " + segment);
+        }
+        try {
+            // A plus is a literal in a path, only percent escapes are decoded
+            return URLDecoder.decode(segment.replace("+", "%2B"), "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    /**
+     * Builds the chain of the filters mapped to the path or servlet for the dispatcher type.  As the spec requires
+     * the filters matching by URL pattern come first, then those matching by servlet name, each in mapping order.
+     *
+     * @param path the decoded path within the context, or null for a named dispatch
+     */
+    VertxFilterChain filterChain(String path, VertxServletRegistration servlet, DispatcherType dispatcherType) {
+        if (filters.isEmpty()) {
+            return new VertxFilterChain(Collections.emptyList(), servlet);
+        }
+        List<VertxFilterRegistration> chain = new ArrayList<>();
+        if (path != null) {
+            List<VertxFilterMapping> matched = new ArrayList<>();
+            filterMatcher.matchAll(path, matched::addAll);
+            if (matched.size() > 1) {
+                // The lists of the matching patterns are each in mapping order, but not with respect to each other
+                matched.sort(VertxFilterMapping.ORDER);
+            }
+            addFilters(chain, matched, dispatcherType);
+        }
+        List<VertxFilterMapping> byName = servletNameFilters.get(servlet.getName());
+        if (byName != null) {
+            addFilters(chain, byName, dispatcherType);
+        }
+        return new VertxFilterChain(chain, servlet);
+    }
+
+    private static void addFilters(List<VertxFilterRegistration> chain, List<VertxFilterMapping> mappings,
+                                   DispatcherType dispatcherType) {
+        for (VertxFilterMapping mapping : mappings) {
+            if (mapping.appliesTo(dispatcherType) && !chain.contains(mapping.getFilter())) {
+                chain.add(mapping.getFilter());
+            }
+        }
+    }
+
+    /**
+     * @return the patterns that are already mapped to another servlet, nothing is mapped if there are any
+     */
+    Set<String> mapServlet(VertxServletRegistration servlet, String... urlPatterns) {
+        Set<String> conflicts = new HashSet<>();
+        for (String pattern : urlPatterns) {
+            VertxServletRegistration mapped = servletMatcher.get(pattern);
+            if (mapped != null && mapped != servlet) {
+                conflicts.add(pattern);
+            }
+        }
+        if (conflicts.isEmpty()) {
+            for (String pattern : urlPatterns) {
+                servletMatcher.put(pattern, servlet);
+            }
+        }
+        return conflicts;
+    }
+
+    void mapFilterToUrlPatterns(VertxFilterRegistration filter, EnumSet<DispatcherType> dispatcherTypes,
+                                boolean isMatchAfter, String... urlPatterns) {
+        VertxFilterMapping mapping = new VertxFilterMapping(filter, dispatcherTypes, isMatchAfter, filterMappings++);
+        for (String pattern : urlPatterns) {
+            addMapping(filterMatcher.computeIfAbsent(pattern, ArrayList::new), mapping);
+        }
+    }
+
+    void mapFilterToServletNames(VertxFilterRegistration filter, EnumSet<DispatcherType> dispatcherTypes,
+                                 boolean isMatchAfter, String... servletNames) {
+        VertxFilterMapping mapping = new VertxFilterMapping(filter, dispatcherTypes, isMatchAfter, filterMappings++);
+        for (String name : servletNames) {
+            addMapping(servletNameFilters.computeIfAbsent(name, n -> new ArrayList<>()), mapping);
+        }
+    }
+
+    private static void addMapping(List<VertxFilterMapping> mappings, VertxFilterMapping mapping) {
+        mappings.add(mapping);
+        mappings.sort(VertxFilterMapping.ORDER);
+    }
+
+    void checkNotStarted() {
+        if (started) {
+            throw new IllegalStateException("Servlet context has already been initialized");
+        }
+    }
+
+    <T> Class<? extends T> loadClass(String className, Class<T> type) throws ServletException {
+        try {
+            ClassLoader loader = getClassLoader();
+            return Class.forName(className, false, loader).asSubclass(type);
+        } catch (ClassNotFoundException | ClassCastException e) {
+            throw new ServletException("Cannot load " + type.getSimpleName() + " class " + className, e);
+        }
+    }
+
+    private static <T> T newInstance(Class<T> type) throws ServletException {
+        try {
+            return type.getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException e) {
+            throw new ServletException("Cannot instantiate " + type.getName(), e);
+        }
+    }
+
+    @Override
+    public String getContextPath() {
+        return contextPath;
+    }
+
+    @Override
+    public ServletContext getContext(String uripath) {
+        return null;
+    }
+
+    @Override
+    public int getMajorVersion() {
+        return 3;
+    }
+
+    @Override
+    public int getMinorVersion() {
+        return 1;
+    }
+
+    @Override
+    public int getEffectiveMajorVersion() {
+        return 3;
+    }
+
+    @Override
+    public int getEffectiveMinorVersion() {
+        return 1;
+    }
+
+    @Override
+    public String getMimeType(String file) {
+        return file == null ? null : URLConnection.guessContentTypeFromName(file);
+    }
+
+    @Override
+    public Set<String> getResourcePaths(String path) {
+        return null;
+    }
+
+    @Override
+    public URL getResource(String path) {
+        return null;
+    }
+
+    @Override
+    public InputStream getResourceAsStream(String path) {
+        return null;
+    }
+
+    @Override
+    public RequestDispatcher getRequestDispatcher(String path) {
+        if (path == null || !path.startsWith("/")) {
+            return null;
+        }
+        int query = path.indexOf('?');
+        String requestURI = contextPath + (query < 0 ? path : path.substring(0, query));
+        String decoded;
+        try {
+            decoded = pathInContext(requestURI);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+        if (decoded == null) {
+            return null;
+        }
+        UrlPatternMatcher.Match<VertxServletRegistration> match = servletMatcher.match(decoded);
+        if (match == null) {
+            return null;
+        }
+        return new VertxRequestDispatcher(this, match.getTarget(), decoded, requestURI, match.getServletPath(),
+                match.getPathInfo(), query < 0 ? null : path.substring(query + 1));
+    }
+
+    /**
+     * Resolves a path relative to the servlet path and path info of the request, see
+     * {@link javax.servlet.ServletRequest#getRequestDispatcher(String)}
+     */
+    RequestDispatcher getRequestDispatcher(HttpServletRequest request, String path) {
+        if (path == null || path.startsWith("/")) {
+            return getRequestDispatcher(path);
+        }
+        String servletPath = request.getServletPath();
+        String pathInfo = request.getPathInfo();
+        String current = (servletPath == null ? "" : servletPath) + (pathInfo == null ? "" : pathInfo);
+        int slash = current.lastIndexOf('/');
+        return getRequestDispatcher((slash < 0 ? "/" : current.substring(0, slash + 1)) + path);
+    }
+
+    @Override
+    public RequestDispatcher getNamedDispatcher(String name) {
+        VertxServletRegistration servlet = servlets.get(name);
+        return servlet == null ? null : new VertxRequestDispatcher(this, servlet);
+    }
+
+    /**
+     * @deprecated As of Java Servlet API 2.1, with no direct replacement
+     */
+    @Override
+    @Deprecated
+    public Servlet getServlet(String name) throws ServletException {
+        return null;
+    }
+
+    /**
+     * @deprecated As of Java Servlet API 2.0, with no replacement
+     */
+    @Override
+    @Deprecated
+    public Enumeration<Servlet> getServlets() {
+        return Collections.emptyEnumeration();
+    }
+
+    /**
+     * @deprecated As of Java Servlet API 2.1, with no replacement
+     */
+    @Override
+    @Deprecated
+    public Enumeration<String> getServletNames() {
+        return Collections.emptyEnumeration();
+    }
+
+    @Override
+    public void log(String msg) {
+        logger.info(msg);
+    }
+
+    /**
+     * @deprecated As of Java Servlet API 2.1, use {@link #log(String, Throwable)} instead
+     */
+    @Override
+    @Deprecated
+    public void log(Exception exception, String msg) {
+        logger.error(msg, exception);
+    }
+
+    @Override
+    public void log(String message, Throwable throwable) {
+        logger.error(message, throwable);
+    }
+
+    @Override
+    public String getRealPath(String path) {
+        return null;
+    }
+
+    @Override
+    public String getServerInfo() {
+        return SERVER_INFO;
+    }
+
+    @Override
+    public String getInitParameter(String name) {
+        return initParameters.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getInitParameterNames() {
+        return Collections.enumeration(initParameters.keySet());
+    }
+
+    @Override
+    public boolean setInitParameter(String name, String value) {
+        checkNotStarted();
+        return initParameters.putIfAbsent(name, value) == null;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getAttributeNames() {
+        return Collections.enumeration(new ArrayList<>(attributes.keySet()));
+    }
+
+    @Override
+    public void setAttribute(String name, Object object) {
+        if (name == null) {
+            throw new IllegalArgumentException("Attribute name cannot be null");
+        }
+        if (object == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, object);
+        }
+    }
+
+    @Override
+    public void removeAttribute(String name) {
+        attributes.remove(name);
+    }
+
+    @Override
+    public String getServletContextName() {
+        return servletContextName;
+    }
+
+    public void setServletContextName(String servletContextName) {
+        this.servletContextName = servletContextName;
+    }
+
+    @Override
+    public ServletRegistration.Dynamic addServlet(String servletName, String className) {
+        return addServlet(servletName, className, null);
+    }
+
+    @Override
+    public ServletRegistration.Dynamic addServlet(String servletName, Servlet servlet) {
+        return addServlet(servletName, servlet.getClass().getName(), servlet);
+    }
+
+    @Override
+    public ServletRegistration.Dynamic addServlet(String servletName, Class<? extends Servlet> servletClass) {
+        return addServlet(servletName, servletClass.getName(), null);
+    }
+
+    private ServletRegistration.Dynamic addServlet(String servletName, String className, Servlet servlet) {
+        checkNotStarted();
+        if (servletName == null || servletName.isEmpty()) {
+            throw new IllegalArgumentException("Servlet name cannot be empty");
+        }
+        if (servlets.containsKey(servletName)) {
+            return null;
+        }
+        VertxServletRegistration registration = new VertxServletRegistration(this, servletName, className, servlet);
+        servlets.put(servletName, registration);
+        return registration;
+    }
+
+    @Override
+    public <T extends Servlet> T createServlet(Class<T> clazz) throws ServletException {
+        return newInstance(clazz);
+    }
+
+    @Override
+    public ServletRegistration getServletRegistration(String servletName) {
+        return servlets.get(servletName);
+    }
+
+    @Override
+    public Map<String, ? extends ServletRegistration> getServletRegistrations() {
+        return Collections.unmodifiableMap(servlets);
+    }
+
+    @Override
+    public FilterRegistration.Dynamic addFilter(String filterName, String className) {
+        return addFilter(filterName, className, null);
+    }
+
+    @Override
+    public FilterRegistration.Dynamic addFilter(String filterName, Filter filter) {
+        return addFilter(filterName, filter.getClass().getName(), filter);
+    }
+
+    @Override
+    public FilterRegistration.Dynamic addFilter(String filterName, Class<? extends Filter> filterClass) {
+        return addFilter(filterName, filterClass.getName(), null);
+    }
+
+    private FilterRegistration.Dynamic addFilter(String filterName, String className, Filter filter) {
+        checkNotStarted();
+        if (filterName == null || filterName.isEmpty()) {
+            throw new IllegalArgumentException("Filter name cannot be empty");
+        }
+        if (filters.containsKey(filterName)) {
+            return null;
+        }
+        VertxFilterRegistration registration = new VertxFilterRegistration(this, filterName, className, filter);
+        filters.put(filterName, registration);
+        return registration;
+    }
+
+    @Override
+    public <T extends Filter> T createFilter(Class<T> clazz) throws ServletException {
+        return newInstance(clazz);
+    }
+
+    @Override
+    public FilterRegistration getFilterRegistration(String filterName) {
+        return filters.get(filterName);
+    }
+
+    @Override
+    public Map<String, ? extends FilterRegistration> getFilterRegistrations() {
+        return Collections.unmodifiableMap(filters);
+    }
+
+    /**
+     * Sets the session manager of the requests routed by this context, a {@link ServletHandler} without its own
+     * session manager uses it.  Must be called before {@link #init()}.
+     *
+     * @param sessionManager the session manager
+     */
+    public void setSessionManager(VertxSessionManager sessionManager) {
+        checkNotStarted();
+        this.sessionManager = sessionManager;
+    }
+
+    public VertxSessionManager getSessionManager() {
+        return sessionManager;
+    }
+
+    /**
+     * Returns the cookie settings of the {@link #setSessionManager(VertxSessionManager) session manager}
+     *
+     * @throws IllegalStateException if no session manager was set
+     */
+    @Override
+    public SessionCookieConfig getSessionCookieConfig() {
+        if (sessionManager == null) {
+            throw new IllegalStateException("No session manager has been set");
+        }
+        return sessionManager.getSessionCookieConfig();
+    }
+
+    @Override
+    public void setSessionTrackingModes(Set<SessionTrackingMode> sessionTrackingModes) {
+        if (!EnumSet.of(SessionTrackingMode.COOKIE).containsAll(sessionTrackingModes)) {
+            throw new IllegalArgumentException("Only cookie session tracking is supported");
+        }
+    }
+
+    @Override
+    public Set<SessionTrackingMode> getDefaultSessionTrackingModes() {
+        return EnumSet.of(SessionTrackingMode.COOKIE);
+    }
+
+    @Override
+    public Set<SessionTrackingMode> getEffectiveSessionTrackingModes() {
+        return EnumSet.of(SessionTrackingMode.COOKIE);
+    }
+
+    @Override
+    public void addListener(String className) {
+        try {
+            addListener(createListener(loadClass(className, EventListener.class)));
+        } catch (ServletException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    @Override
+    public <T extends EventListener> void addListener(T t) {
+        checkNotStarted();
+        if (!(t instanceof ServletContextListener)) {
+            throw new IllegalArgumentException("Only ServletContextListeners are supported, not "
+                    + t.getClass().getName());
+        }
+        listeners.add((ServletContextListener) t);
+    }
+
+    @Override
+    public void addListener(Class<? extends EventListener> listenerClass) {
+        try {
+            addListener(createListener(listenerClass));
+        } catch (ServletException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    @Override
+    public <T extends EventListener> T createListener(Class<T> clazz) throws ServletException {
+        return newInstance(clazz);
+    }
+
+    @Override
+    public JspConfigDescriptor getJspConfigDescriptor() {
+        return null;
+    }
+
+    @Override
+    public ClassLoader getClassLoader() {
+        ClassLoader loader = Thread.currentThread().getContextClassLoader();
+        return loader == null ? VertxServletContext.class.getClassLoader() : loader;
+    }
+
+    @Override
+    public void declareRoles(String... roleNames) {
+        checkNotStarted();
+    }
+
+    @Override
+    public String getVirtualServerName() {
+        return null;
+    }
+
+}
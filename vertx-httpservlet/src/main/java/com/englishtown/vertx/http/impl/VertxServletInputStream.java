@@ -0,0 +1,476 @@
+package com.englishtown.vertx.http.impl;
+
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerRequest;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * ServletInputStream fed incrementally by the data handler of a vert.x {@link HttpServerRequest}.
+ * <p>
+ * Received chunks are queued until the servlet reads them.  The request is paused once more than the high water mark
+ * is queued and resumed when the reader has drained the queue below the low water mark, so large bodies are streamed
+ * in constant memory.  Whichever thread decides to pause or resume, the call reaches vert.x from the request's context
+ * and applies the latest decision, so a resume cannot overtake a later pause.
+ * <p>
+ * Blocking reads must not happen on the event loop thread that delivers the data, a read that would block there
+ * fails with an {@link IOException}.  Blocking reads wait on a {@link ReentrantLock} condition rather than a monitor,
+ * so a virtual thread waiting for the body unmounts from its carrier instead of pinning it.  Non-blocking readers
+ * register a {@link ReadListener} instead, its callbacks are invoked directly from the vert.x data, end and exception
+ * handlers on the event loop.
+ */
+public class VertxServletInputStream extends ServletInputStream {
+
+    public static final int DEFAULT_HIGH_WATER_MARK = 256 * 1024;
+    public static final int DEFAULT_LOW_WATER_MARK = 64 * 1024;
+
+    private final HttpServerRequest request;
+    private final int highWaterMark;
+    private final int lowWaterMark;
+    private final Context context;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+
+    // All state below is guarded by lock
+    private final ArrayDeque<Buffer> chunks = new ArrayDeque<>();
+    private Buffer current;
+    private int position;
+    private long queued;
+    private boolean paused;
+    private boolean ended;
+    private boolean closed;
+    private Throwable failure;
+    private ReadListener readListener;
+    // Set when isReady() returned false, the next chunk or the end of the stream notifies the listener
+    private boolean listenerWaiting;
+    private boolean allDataRead;
+    private ServletMetrics metrics;
+    private long attached;
+    private Object metricsToken;
+    private long received;
+    // Whether the request is actually paused, only touched on the context thread
+    private boolean requestPaused;
+
+    public VertxServletInputStream(HttpServerRequest request) {
+        this(request, DEFAULT_HIGH_WATER_MARK, DEFAULT_LOW_WATER_MARK);
+    }
+
+    public VertxServletInputStream(HttpServerRequest request, int highWaterMark, int lowWaterMark) {
+        this(request, highWaterMark, lowWaterMark, Vertx.currentContext());
+    }
+
+    VertxServletInputStream(HttpServerRequest request, int highWaterMark, int lowWaterMark, Context context) {
+        if (lowWaterMark > highWaterMark) {
+            throw new IllegalArgumentException("lowWaterMark must not exceed highWaterMark");
+        }
+        this.request = request;
+        this.highWaterMark = highWaterMark;
+        this.lowWaterMark = lowWaterMark;
+        this.context = context;
+
+        if (request.isEnded()) {
+            // The body was already consumed elsewhere, e.g. by a bodyHandler
+            ended = true;
+        } else {
+            request.handler(this::handleData);
+            request.endHandler(v -> handleEnd());
+            request.exceptionHandler(this::handleException);
+        }
+    }
+
+    private void handleData(Buffer data) {
+        boolean pause = false;
+        ReadListener listener = null;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            chunks.add(data);
+            queued += data.length();
+            received += data.length();
+            if (!paused && queued > highWaterMark) {
+                paused = pause = true;
+            }
+            if (listenerWaiting) {
+                listenerWaiting = false;
+                listener = readListener;
+            }
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        // Never call into the request or the listener while holding the lock, vert.x synchronizes on the connection
+        if (pause) {
+            updateFlowControl();
+        }
+        if (listener != null) {
+            fireDataAvailable(listener);
+        }
+    }
+
+    private void handleEnd() {
+        ReadListener listener;
+        ServletMetrics metrics;
+        Object metricsToken;
+        long attached;
+        long received;
+        lock.lock();
+        try {
+            ended = true;
+            changed.signalAll();
+            listener = readListener;
+            metrics = this.metrics;
+            metricsToken = this.metricsToken;
+            attached = this.attached;
+            received = this.received;
+        } finally {
+            lock.unlock();
+        }
+        if (metrics != null) {
+            metrics.bodyRead(request, metricsToken, System.nanoTime() - attached, received);
+        }
+        if (listener != null) {
+            fireAllDataRead(listener);
+        }
+    }
+
+    private void handleException(Throwable t) {
+        ReadListener listener;
+        lock.lock();
+        try {
+            failure = t;
+            changed.signalAll();
+            listener = readListener;
+        } finally {
+            lock.unlock();
+        }
+        if (listener != null) {
+            listener.onError(t);
+        }
+    }
+
+    private void fireDataAvailable(ReadListener listener) {
+        try {
+            listener.onDataAvailable();
+        } catch (Throwable t) {
+            listener.onError(t);
+            return;
+        }
+        fireAllDataRead(listener);
+    }
+
+    /**
+     * Calls {@link ReadListener#onAllDataRead()} once the body has ended and the listener consumed all of it
+     */
+    private void fireAllDataRead(ReadListener listener) {
+        lock.lock();
+        try {
+            if (allDataRead || !ended || queued > 0 || failure != null) {
+                return;
+            }
+            allDataRead = true;
+        } finally {
+            lock.unlock();
+        }
+        try {
+            listener.onAllDataRead();
+        } catch (Throwable t) {
+            listener.onError(t);
+        }
+    }
+
+    /**
+     * Reports the body size and receive time once the request ends, set right after the stream is attached
+     */
+    void setMetrics(ServletMetrics metrics) {
+        lock.lock();
+        try {
+            if (ended) {
+                return;
+            }
+            this.metrics = metrics;
+            this.metricsToken = metrics.begin(ServletMetrics.Phase.BODY_READ, request);
+            this.attached = System.nanoTime();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int read() throws IOException {
+        boolean resume;
+        int b;
+        lock.lock();
+        try {
+            if (!awaitData()) {
+                return -1;
+            }
+            b = current.getByte(position++) & 0xFF;
+            resume = consumed(1);
+        } finally {
+            lock.unlock();
+        }
+        if (resume) {
+            resumeRequest();
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+
+        boolean resume;
+        int n;
+        lock.lock();
+        try {
+            if (!awaitData()) {
+                return -1;
+            }
+            n = Math.min(len, current.length() - position);
+            current.getBytes(position, position + n, b, off);
+            position += n;
+            resume = consumed(n);
+        } finally {
+            lock.unlock();
+        }
+        if (resume) {
+            resumeRequest();
+        }
+        return n;
+    }
+
+    /**
+     * Reads the unread part of the next received chunk without copying it
+     *
+     * @return the chunk, or null at the end of the stream
+     */
+    Buffer readChunk() throws IOException {
+        boolean resume;
+        Buffer chunk;
+        lock.lock();
+        try {
+            if (!awaitData()) {
+                return null;
+            }
+            int n = current.length() - position;
+            chunk = position == 0 ? current : current.slice(position, current.length());
+            current = null;
+            position = 0;
+            resume = consumed(n);
+        } finally {
+            lock.unlock();
+        }
+        if (resume) {
+            resumeRequest();
+        }
+        return chunk;
+    }
+
+    @Override
+    public int available() throws IOException {
+        long available;
+        lock.lock();
+        try {
+            available = queued;
+        } finally {
+            lock.unlock();
+        }
+        return available > Integer.MAX_VALUE ? Integer.MAX_VALUE : (int) available;
+    }
+
+    @Override
+    public void close() throws IOException {
+        boolean resume;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            chunks.clear();
+            current = null;
+            queued = 0;
+            // Let the rest of the body drain so the connection can be reused
+            resume = paused;
+            paused = false;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (resume) {
+            resumeRequest();
+        }
+    }
+
+    /**
+     * @return true once no more data will arrive, reading what is queued then never blocks
+     */
+    boolean isReceived() {
+        lock.lock();
+        try {
+            return ended || closed || failure != null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isFinished() {
+        lock.lock();
+        try {
+            return queued == 0 && (ended || closed);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isReady() {
+        lock.lock();
+        try {
+            if (queued > 0 || ended || closed || failure != null) {
+                return true;
+            }
+            if (readListener != null) {
+                listenerWaiting = true;
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void setReadListener(ReadListener readListener) {
+        if (readListener == null) {
+            throw new NullPointerException("readListener");
+        }
+        Throwable failure;
+        lock.lock();
+        try {
+            if (this.readListener != null) {
+                throw new IllegalStateException("ReadListener already set");
+            }
+            this.readListener = readListener;
+            failure = this.failure;
+            if (failure == null && queued == 0 && !ended) {
+                // Nothing to read yet, the data handler notifies the listener
+                listenerWaiting = true;
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+
+        // Data already arrived, notify from the event loop like the data handler would
+        Handler<Void> notify = v -> {
+            if (failure != null) {
+                readListener.onError(failure);
+            } else {
+                fireDataAvailable(readListener);
+            }
+        };
+        if (context == null) {
+            notify.handle(null);
+        } else {
+            context.runOnContext(notify);
+        }
+    }
+
+    /**
+     * Waits until the current chunk has unread bytes.  Must be called holding the lock.
+     *
+     * @return false if the end of the stream was reached
+     */
+    private boolean awaitData() throws IOException {
+        while (current == null || position >= current.length()) {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            current = chunks.poll();
+            position = 0;
+            if (current != null) {
+                continue;
+            }
+            if (failure != null) {
+                throw new IOException(failure);
+            }
+            if (ended) {
+                return false;
+            }
+            if (readListener != null) {
+                throw new IllegalStateException("read() called while isReady() is false");
+            }
+            if (Context.isOnEventLoopThread()) {
+                throw new IOException("Blocking read on the event loop thread");
+            }
+            try {
+                changed.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Pauses or resumes the request to match the current state, must run on the context thread
+     */
+    private void updateFlowControl() {
+        boolean pause;
+        lock.lock();
+        try {
+            pause = paused;
+        } finally {
+            lock.unlock();
+        }
+        if (pause == requestPaused) {
+            return;
+        }
+        requestPaused = pause;
+        if (pause) {
+            request.pause();
+        } else {
+            request.resume();
+        }
+    }
+
+    private void resumeRequest() {
+        if (context == null || Vertx.currentContext() == context) {
+            updateFlowControl();
+        } else {
+            context.runOnContext(v -> updateFlowControl());
+        }
+    }
+
+    /**
+     * Accounts for consumed bytes.  Must be called holding the lock.
+     *
+     * @return true if the request should be resumed
+     */
+    private boolean consumed(int n) {
+        queued -= n;
+        if (paused && queued <= lowWaterMark) {
+            paused = false;
+            return true;
+        }
+        return false;
+    }
+
+}
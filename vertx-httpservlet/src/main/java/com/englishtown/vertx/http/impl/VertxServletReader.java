@@ -0,0 +1,119 @@
+package com.englishtown.vertx.http.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Reader that incrementally decodes a streaming request body.
+ * <p>
+ * Bytes are decoded as they arrive with a single {@link CharsetDecoder} and a pair of byte/char buffers that are reused
+ * for the lifetime of the reader.  Malformed input is replaced rather than reported, like {@link
+ * java.io.InputStreamReader}.
+ */
+public class VertxServletReader extends Reader {
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final InputStream in;
+    private final CharsetDecoder decoder;
+    // Both buffers are kept ready for reading (flipped) between calls
+    private final ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+    private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+    private boolean eof;
+    private boolean flushed;
+
+    public VertxServletReader(InputStream in, Charset charset) {
+        this.in = in;
+        this.decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        bytes.flip();
+        chars.flip();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!chars.hasRemaining() && !fill()) {
+            return -1;
+        }
+        return chars.get();
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (off < 0 || len < 0 || len > cbuf.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        if (!chars.hasRemaining() && !fill()) {
+            return -1;
+        }
+        int n = Math.min(len, chars.remaining());
+        chars.get(cbuf, off, n);
+        return n;
+    }
+
+    @Override
+    public boolean ready() throws IOException {
+        return chars.hasRemaining() || in.available() > 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Decodes at least one char into the char buffer, reading from the stream as needed
+     *
+     * @return false at the end of the stream
+     */
+    private boolean fill() throws IOException {
+        chars.clear();
+        try {
+            while (chars.position() == 0) {
+                if (eof) {
+                    if (flushed) {
+                        return false;
+                    }
+                    decoder.decode(bytes, chars, true);
+                    if (decoder.flush(chars) == CoderResult.UNDERFLOW) {
+                        flushed = true;
+                    }
+                    if (chars.position() == 0) {
+                        return false;
+                    }
+                    break;
+                }
+
+                CoderResult result = decoder.decode(bytes, chars, false);
+                if (result.isOverflow() || chars.position() > 0) {
+                    break;
+                }
+
+                // Underflow, keep any partial multi-byte sequence and read more
+                bytes.compact();
+                int n = in.read(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+                if (n < 0) {
+                    eof = true;
+                } else {
+                    bytes.position(bytes.position() + n);
+                }
+                bytes.flip();
+            }
+        } finally {
+            chars.flip();
+        }
+        return true;
+    }
+
+}
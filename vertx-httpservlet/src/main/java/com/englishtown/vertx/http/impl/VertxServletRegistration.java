@@ -0,0 +1,164 @@
+package com.englishtown.vertx.http.impl;
+
+import javax.servlet.*;
+import java.util.*;
+
+/**
+ * Servlet registered with a {@link VertxServletContext}, doubles as its {@link ServletConfig}
+ */
+final class VertxServletRegistration implements ServletRegistration.Dynamic, ServletConfig {
+
+    private final VertxServletContext context;
+    private final String name;
+    private final String className;
+    private Servlet servlet;
+    private final Map<String, String> initParameters = new LinkedHashMap<>();
+    private final Set<String> mappings = new LinkedHashSet<>();
+    private int loadOnStartup = -1;
+    private boolean asyncSupported;
+    private MultipartConfigElement multipartConfig;
+    private String runAsRole;
+
+    VertxServletRegistration(VertxServletContext context, String name, String className, Servlet servlet) {
+        this.context = context;
+        this.name = name;
+        this.className = className;
+        this.servlet = servlet;
+    }
+
+    /**
+     * Creates the servlet if it was registered by class name and initializes it
+     */
+    void init() throws ServletException {
+        if (servlet == null) {
+            servlet = context.createServlet(context.loadClass(className, Servlet.class));
+        }
+        servlet.init(this);
+    }
+
+    Servlet getServlet() {
+        return servlet;
+    }
+
+    int getLoadOnStartup() {
+        return loadOnStartup;
+    }
+
+    MultipartConfigElement getMultipartConfig() {
+        return multipartConfig;
+    }
+
+    boolean isAsyncSupported() {
+        return asyncSupported;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getServletName() {
+        return name;
+    }
+
+    @Override
+    public ServletContext getServletContext() {
+        return context;
+    }
+
+    @Override
+    public String getClassName() {
+        return className;
+    }
+
+    @Override
+    public boolean setInitParameter(String name, String value) {
+        if (name == null || value == null) {
+            throw new IllegalArgumentException("Init parameter name and value cannot be null");
+        }
+        context.checkNotStarted();
+        return initParameters.putIfAbsent(name, value) == null;
+    }
+
+    @Override
+    public String getInitParameter(String name) {
+        return initParameters.get(name);
+    }
+
+    @Override
+    public Enumeration<String> getInitParameterNames() {
+        return Collections.enumeration(initParameters.keySet());
+    }
+
+    @Override
+    public Set<String> setInitParameters(Map<String, String> initParameters) {
+        Set<String> conflicts = new HashSet<>();
+        for (Map.Entry<String, String> entry : initParameters.entrySet()) {
+            if (this.initParameters.containsKey(entry.getKey())) {
+                conflicts.add(entry.getKey());
+            }
+        }
+        if (conflicts.isEmpty()) {
+            for (Map.Entry<String, String> entry : initParameters.entrySet()) {
+                setInitParameter(entry.getKey(), entry.getValue());
+            }
+        }
+        return conflicts;
+    }
+
+    @Override
+    public Map<String, String> getInitParameters() {
+        return Collections.unmodifiableMap(initParameters);
+    }
+
+    @Override
+    public Set<String> addMapping(String... urlPatterns) {
+        context.checkNotStarted();
+        Set<String> conflicts = context.mapServlet(this, urlPatterns);
+        if (conflicts.isEmpty()) {
+            mappings.addAll(Arrays.asList(urlPatterns));
+        }
+        return conflicts;
+    }
+
+    @Override
+    public Collection<String> getMappings() {
+        return Collections.unmodifiableSet(mappings);
+    }
+
+    @Override
+    public String getRunAsRole() {
+        return runAsRole;
+    }
+
+    @Override
+    public void setRunAsRole(String roleName) {
+        context.checkNotStarted();
+        this.runAsRole = roleName;
+    }
+
+    @Override
+    public void setLoadOnStartup(int loadOnStartup) {
+        context.checkNotStarted();
+        this.loadOnStartup = loadOnStartup;
+    }
+
+    @Override
+    public Set<String> setServletSecurity(ServletSecurityElement constraint) {
+        throw new UnsupportedOperationException("Security constraints are not supported");
+    }
+
+    @Override
+    public void setMultipartConfig(MultipartConfigElement multipartConfig) {
+        context.checkNotStarted();
+        this.multipartConfig = multipartConfig;
+    }
+
+    @Override
+    public void setAsyncSupported(boolean isAsyncSupported) {
+        context.checkNotStarted();
+        this.asyncSupported = isAsyncSupported;
+    }
+
+}
@@ -0,0 +1,135 @@
+package com.englishtown.vertx.http.impl;
+
+import javax.servlet.SessionCookieConfig;
+import javax.servlet.http.Cookie;
+
+/**
+ * Session cookie settings of a {@link VertxSessionManager}, also returned by
+ * {@link VertxServletContext#getSessionCookieConfig()}.
+ * <p>
+ * The settings are frozen once a servlet context using the session manager is initialized, as the spec requires.
+ * The cookie is always secure on a secure request, {@link #setSecure(boolean)} also makes it secure on plain ones.
+ */
+public final class VertxSessionCookieConfig implements SessionCookieConfig {
+
+    private volatile boolean frozen;
+    private volatile String name = VertxSessionManager.DEFAULT_COOKIE_NAME;
+    private volatile String domain;
+    private volatile String path = "/";
+    private volatile String comment;
+    private volatile boolean httpOnly = true;
+    private volatile boolean secure;
+    private volatile int maxAge = -1;
+
+    VertxSessionCookieConfig() {
+    }
+
+    /**
+     * Rejects further changes, called when a servlet context using the settings is initialized
+     */
+    void freeze() {
+        frozen = true;
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException("Servlet context has already been initialized");
+        }
+    }
+
+    /**
+     * @return the session cookie for the given id
+     */
+    Cookie createCookie(String id, boolean secureRequest) {
+        Cookie cookie = new Cookie(name, id);
+        if (domain != null) {
+            cookie.setDomain(domain);
+        }
+        cookie.setPath(path);
+        if (comment != null) {
+            cookie.setComment(comment);
+        }
+        cookie.setHttpOnly(httpOnly);
+        cookie.setSecure(secure || secureRequest);
+        cookie.setMaxAge(maxAge);
+        return cookie;
+    }
+
+    @Override
+    public void setName(String name) {
+        checkNotFrozen();
+        this.name = name;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void setDomain(String domain) {
+        checkNotFrozen();
+        this.domain = domain;
+    }
+
+    @Override
+    public String getDomain() {
+        return domain;
+    }
+
+    @Override
+    public void setPath(String path) {
+        checkNotFrozen();
+        this.path = path;
+    }
+
+    @Override
+    public String getPath() {
+        return path;
+    }
+
+    @Override
+    public void setComment(String comment) {
+        checkNotFrozen();
+        this.comment = comment;
+    }
+
+    @Override
+    public String getComment() {
+        return comment;
+    }
+
+    @Override
+    public void setHttpOnly(boolean httpOnly) {
+        checkNotFrozen();
+        this.httpOnly = httpOnly;
+    }
+
+    @Override
+    public boolean isHttpOnly() {
+        return httpOnly;
+    }
+
+    @Override
+    public void setSecure(boolean secure) {
+        checkNotFrozen();
+        this.secure = secure;
+    }
+
+    @Override
+    public boolean isSecure() {
+        return secure;
+    }
+
+    @Override
+    public void setMaxAge(int maxAge) {
+        checkNotFrozen();
+        this.maxAge = maxAge;
+    }
+
+    @Override
+    public int getMaxAge() {
+        return maxAge;
+    }
+
+}
@@ -0,0 +1,212 @@
+package com.englishtown.vertx.http.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.shareddata.AsyncMap;
+import io.vertx.core.shareddata.LocalMap;
+
+import javax.servlet.ServletContext;
+import javax.servlet.http.Cookie;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Creates, loads and stores the {@link javax.servlet.http.HttpSession}s of servlet requests.
+ * <p>
+ * Sessions are kept in vert.x shared data: a {@link LocalMap} shared by all verticles of a single node, or a cluster
+ * wide {@link AsyncMap} with a per node near-cache, see {@link #createClustered}.  Each request works on its own view
+ * of the session and only the attributes it set or removed are merged back into the stored session when the request
+ * is released.  Expired sessions are dropped by a periodic vert.x timer rather than a scanning thread.
+ * <p>
+ * The session id is carried by a cookie, URL rewriting is not supported.
+ */
+public class VertxSessionManager {
+
+    public static final String DEFAULT_COOKIE_NAME = "JSESSIONID";
+    public static final int DEFAULT_MAX_INACTIVE_INTERVAL = 1800;
+    public static final long DEFAULT_SWEEP_INTERVAL = 60000;
+
+    static final String MAP_NAME = "vertx-httpservlet.sessions";
+    // A request that changes nothing only refreshes the stored access time if it is at least this old
+    static final long TOUCH_INTERVAL = 1000;
+
+    private static final SecureRandom random = new SecureRandom();
+    private static final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+
+    private final Vertx vertx;
+    private final SessionStore store;
+    private final long timerId;
+    private final VertxSessionCookieConfig cookieConfig = new VertxSessionCookieConfig();
+    private int maxInactiveInterval = DEFAULT_MAX_INACTIVE_INTERVAL;
+
+    VertxSessionManager(Vertx vertx, SessionStore store, long sweepInterval) {
+        this.vertx = vertx;
+        this.store = store;
+        this.timerId = vertx.setPeriodic(sweepInterval, id -> store.sweep(System.currentTimeMillis()));
+    }
+
+    /**
+     * Creates a session manager for a single node, sessions are shared by all verticles of this vert.x instance
+     *
+     * @param vertx the vert.x instance
+     * @return the session manager
+     */
+    public static VertxSessionManager create(Vertx vertx) {
+        LocalMap<String, SessionData> map = vertx.sharedData().getLocalMap(MAP_NAME);
+        return new VertxSessionManager(vertx, new LocalSessionStore(map), DEFAULT_SWEEP_INTERVAL);
+    }
+
+    /**
+     * Creates a session manager over a cluster wide map.  Looking up a session that is not in the near-cache blocks
+     * the servlet thread, so sessions must not be used from the event loop.
+     *
+     * @param vertx         a clustered vert.x instance
+     * @param resultHandler receives the session manager
+     */
+    public static void createClustered(Vertx vertx, Handler<AsyncResult<VertxSessionManager>> resultHandler) {
+        vertx.sharedData().<String, SessionData>getClusterWideMap(MAP_NAME, ar -> {
+            if (ar.failed()) {
+                resultHandler.handle(Future.failedFuture(ar.cause()));
+                return;
+            }
+            AsyncMap<String, SessionData> map = ar.result();
+            resultHandler.handle(Future.succeededFuture(
+                    new VertxSessionManager(vertx, new ClusteredSessionStore(map), DEFAULT_SWEEP_INTERVAL)));
+        });
+    }
+
+    /**
+     * Sets the name of the session cookie, defaults to {@link #DEFAULT_COOKIE_NAME}
+     *
+     * @param cookieName the cookie name
+     * @return this session manager
+     */
+    public VertxSessionManager setCookieName(String cookieName) {
+        cookieConfig.setName(cookieName);
+        return this;
+    }
+
+    public String getCookieName() {
+        return cookieConfig.getName();
+    }
+
+    /**
+     * @return the settings of the session cookie, changes apply to cookies set from then on
+     */
+    public VertxSessionCookieConfig getSessionCookieConfig() {
+        return cookieConfig;
+    }
+
+    /**
+     * Sets the max inactive interval of new sessions, defaults to {@link #DEFAULT_MAX_INACTIVE_INTERVAL}
+     *
+     * @param maxInactiveInterval the interval in seconds, 0 or less for sessions that never expire
+     * @return this session manager
+     */
+    public VertxSessionManager setMaxInactiveInterval(int maxInactiveInterval) {
+        this.maxInactiveInterval = maxInactiveInterval;
+        return this;
+    }
+
+    public int getMaxInactiveInterval() {
+        return maxInactiveInterval;
+    }
+
+    /**
+     * Stops the expiry timer, stored sessions are kept
+     */
+    public void close() {
+        vertx.cancelTimer(timerId);
+    }
+
+    /**
+     * @param servletContext the context of the requesting servlet, or null
+     * @return the stored session with the given id, or null if it does not exist or has expired
+     */
+    VertxHttpSession getSession(String id, ServletContext servletContext) {
+        SessionData data = store.get(id);
+        if (data == null) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        if (data.isExpired(now)) {
+            store.remove(id);
+            return null;
+        }
+        return new VertxHttpSession(this, servletContext, data, now, false);
+    }
+
+    /**
+     * Creates a new session.  It is stored when the request is released.
+     *
+     * @param servletContext the context of the requesting servlet, or null
+     */
+    VertxHttpSession createSession(ServletContext servletContext) {
+        long now = System.currentTimeMillis();
+        SessionData data = new SessionData(generateId(), now, now, maxInactiveInterval,
+                Collections.<String, Object>emptyMap());
+        return new VertxHttpSession(this, servletContext, data, now, true);
+    }
+
+    /**
+     * Gives the session a new id, keeping its attributes
+     *
+     * @return the new id
+     */
+    String changeSessionId(VertxHttpSession session) {
+        String oldId = session.getId();
+        SessionData data = session.snapshot().withId(generateId());
+        if (!session.isNew()) {
+            store.put(data);
+            store.remove(oldId);
+        }
+        session.rebase(data);
+        return data.getId();
+    }
+
+    /**
+     * Writes the changes a request made to its session back to the store, called when the request is released
+     */
+    void commit(VertxHttpSession session) {
+        if (session.isInvalidated()) {
+            return;
+        }
+        if (session.isNew()) {
+            store.put(session.snapshot());
+            return;
+        }
+        if (!session.isDirty()
+                && session.getAccessedTime() - session.getData().getLastAccessedTime() < TOUCH_INTERVAL) {
+            return;
+        }
+
+        long accessedTime = session.getAccessedTime();
+        int maxInactiveInterval = session.getMaxInactiveInterval();
+        Map<String, Object> changed = session.getChanged();
+        Set<String> removed = session.getRemoved();
+        store.update(session.getId(), current -> current.merge(accessedTime, maxInactiveInterval, changed, removed));
+    }
+
+    void invalidate(VertxHttpSession session) {
+        store.remove(session.getId());
+    }
+
+    /**
+     * @return the session cookie for the given id
+     */
+    Cookie createCookie(String id, boolean secure) {
+        return cookieConfig.createCookie(id, secure);
+    }
+
+    private static String generateId() {
+        byte[] bytes = new byte[18];
+        random.nextBytes(bytes);
+        return encoder.encodeToString(bytes);
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.englishtown.vertx.http.impl;
+
+import io.vertx.core.Context;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per event loop pool of request/response wrapper pairs.
+ * <p>
+ * The free list lives in the vert.x {@link Context} that received the request, so it is only ever touched from that
+ * event loop and needs no locking.  {@link VertxHttpServletRequest#release()} hands the pair back, the reset runs on
+ * the owning context and the pair is reused by the next request on that event loop.
+ * <p>
+ * In debug mode released wrappers are not reused, their vert.x request and response are replaced by guards that
+ * throw an {@link IllegalStateException} on any call.  The exception's cause is the stack trace of the release, so a
+ * servlet holding on to a request after it completed fails loudly and points at both sites.
+ */
+final class WrapperPool {
+
+    static final int DEFAULT_MAX_SIZE = 256;
+
+    private static final AtomicInteger ids = new AtomicInteger();
+
+    private final String key = "vertx-httpservlet.wrapper-pool." + ids.getAndIncrement();
+    private final int maxSize;
+    private final boolean debug;
+
+    WrapperPool(int maxSize, boolean debug) {
+        this.maxSize = maxSize;
+        this.debug = debug;
+    }
+
+    /**
+     * Takes a wrapper pair from the current event loop's pool, or creates one.  The response wrapper is available
+     * from {@link VertxHttpServletRequest#getServletResponse()}.
+     *
+     * @param context the context of the current event loop, null disables pooling
+     * @param request the vert.x request to wrap
+     * @return the request wrapper
+     */
+    VertxHttpServletRequest acquire(Context context, HttpServerRequest request) {
+        ArrayDeque<VertxHttpServletRequest> free = context == null ? null : freeList(context);
+
+        VertxHttpServletRequest servletRequest = free == null ? null : free.poll();
+        if (servletRequest == null) {
+            servletRequest = new VertxHttpServletRequest(request);
+            servletRequest.setServletResponse(new VertxHttpServletResponse(request.response()));
+        } else {
+            servletRequest.reuse(request, context);
+            ((VertxHttpServletResponse) servletRequest.getServletResponse()).reuse(request.response(), context);
+        }
+
+        if (context != null) {
+            servletRequest.setRecycler(r -> {
+                // Captured here rather than on the event loop so the trace shows who released the request
+                IllegalStateException released = debug ? new IllegalStateException("Request released here") : null;
+                context.runOnContext(v -> recycle(context, r, released));
+            });
+        }
+        return servletRequest;
+    }
+
+    private ArrayDeque<VertxHttpServletRequest> freeList(Context context) {
+        ArrayDeque<VertxHttpServletRequest> free = context.get(key);
+        if (free == null) {
+            free = new ArrayDeque<>();
+            context.put(key, free);
+        }
+        return free;
+    }
+
+    private void recycle(Context context, VertxHttpServletRequest servletRequest, IllegalStateException released) {
+        VertxHttpServletResponse servletResponse = (VertxHttpServletResponse) servletRequest.getServletResponse();
+
+        if (debug) {
+            servletRequest.recycle(guard(HttpServerRequest.class, released));
+            servletResponse.recycle(guard(HttpServerResponse.class, released));
+            return;
+        }
+
+        servletRequest.recycle(null);
+        servletResponse.recycle(null);
+        ArrayDeque<VertxHttpServletRequest> free = freeList(context);
+        if (free.size() < maxSize) {
+            free.push(servletRequest);
+        }
+    }
+
+    private static <T> T guard(Class<T> type, IllegalStateException released) {
+        Object guard = Proxy.newProxyInstance(WrapperPool.class.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "toString":
+                            return "Recycled " + type.getSimpleName();
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            throw new IllegalStateException(type.getSimpleName() + "." + method.getName()
+                                    + " called after the servlet request was recycled", released);
+                    }
+                });
+        return type.cast(guard);
+    }
+
+}
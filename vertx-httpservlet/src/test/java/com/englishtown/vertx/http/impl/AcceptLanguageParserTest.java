@@ -0,0 +1,58 @@
+package com.englishtown.vertx.http.impl;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Unit tests for {@link AcceptLanguageParser}
+ */
+public class AcceptLanguageParserTest {
+
+    @Test
+    public void testParse() throws Exception {
+
+        List<Locale> locales = AcceptLanguageParser.parse("de;q=0.5, en-US,fr-CH ; q=0.9,en;q=0.9, zh-Hant-TW;q=0.1");
+
+        assertEquals(Arrays.asList(
+                Locale.US,
+                new Locale("fr", "CH"),
+                Locale.ENGLISH,
+                Locale.GERMAN,
+                Locale.forLanguageTag("zh-Hant-TW")), locales);
+
+    }
+
+    @Test
+    public void testParse_Excluded() throws Exception {
+
+        assertEquals(Collections.singletonList(Locale.FRENCH),
+                AcceptLanguageParser.parse("*, en;q=0, de;q=1.5, it;q=abc, en_US, fr;q=0.001"));
+
+    }
+
+    @Test
+    public void testParse_Empty() throws Exception {
+        assertEquals(0, AcceptLanguageParser.parse(null).size());
+        assertEquals(0, AcceptLanguageParser.parse("").size());
+        assertEquals(0, AcceptLanguageParser.parse(" , ;q=1").size());
+    }
+
+    @Test
+    public void testParse_Cached() throws Exception {
+
+        String header = "en-GB,en;q=0.8";
+        List<Locale> locales = AcceptLanguageParser.parse(header);
+
+        assertSame(locales, AcceptLanguageParser.parse(new String(header)));
+        assertEquals(Arrays.asList(Locale.UK, Locale.ENGLISH), locales);
+
+    }
+
+}
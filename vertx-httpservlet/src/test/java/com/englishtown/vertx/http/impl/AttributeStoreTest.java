@@ -0,0 +1,56 @@
+package com.englishtown.vertx.http.impl;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests for {@link AttributeStore}
+ */
+public class AttributeStoreTest {
+
+    @Test
+    public void testPutGetRemove() throws Exception {
+
+        AttributeStore store = new AttributeStore();
+
+        assertNull(store.put("a", 1));
+        assertNull(store.put("b", 2));
+        assertEquals(1, store.put("a", 3));
+        assertEquals(3, store.get("a"));
+        assertEquals(2, store.get("b"));
+
+        assertEquals(3, store.remove("a"));
+        assertNull(store.get("a"));
+        assertNull(store.remove("a"));
+        assertEquals(Collections.singletonList("b"), Collections.list(store.names()));
+
+    }
+
+    @Test
+    public void testUpgrade() throws Exception {
+
+        AttributeStore store = new AttributeStore();
+        Set<String> names = new HashSet<>();
+
+        for (int i = 0; i < AttributeStore.INLINE_CAPACITY * 3; i++) {
+            store.put("name" + i, i);
+            names.add("name" + i);
+        }
+
+        for (int i = 0; i < AttributeStore.INLINE_CAPACITY * 3; i++) {
+            assertEquals(i, store.get("name" + i));
+        }
+        assertEquals(names, new HashSet<>(Collections.list(store.names())));
+
+        assertEquals(0, store.remove("name0"));
+        assertNull(store.get("name0"));
+
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.englishtown.vertx.http.impl;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.shareddata.AsyncMap;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link ClusteredSessionStore}
+ */
+public class ClusteredSessionStoreTest {
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private AsyncMap<String, SessionData> map;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testUpdate_Conflict() throws Exception {
+
+        SessionData first = new SessionData("s1", 0, 0, 1800, Collections.singletonMap("a", "1"));
+        // Another node added an attribute between our read and our write
+        SessionData second = new SessionData("s1", 0, 0, 1800, Collections.singletonMap("b", "2"));
+        SessionData[] stored = new SessionData[1];
+
+        doAnswer(invocation -> {
+            ((Handler<AsyncResult<SessionData>>) invocation.getArgument(1)).handle(Future.succeededFuture(first));
+            return null;
+        }).doAnswer(invocation -> {
+            ((Handler<AsyncResult<SessionData>>) invocation.getArgument(1)).handle(Future.succeededFuture(second));
+            return null;
+        }).when(map).get(eq("s1"), any());
+        doAnswer(invocation -> {
+            ((Handler<AsyncResult<Boolean>>) invocation.getArgument(3)).handle(Future.succeededFuture(false));
+            return null;
+        }).when(map).replaceIfPresent(eq("s1"), same(first), any(), any());
+        doAnswer(invocation -> {
+            stored[0] = invocation.getArgument(2);
+            ((Handler<AsyncResult<Boolean>>) invocation.getArgument(3)).handle(Future.succeededFuture(true));
+            return null;
+        }).when(map).replaceIfPresent(eq("s1"), same(second), any(), any());
+
+        ClusteredSessionStore store = new ClusteredSessionStore(map);
+        store.update("s1", current -> current.merge(10, 1800, Collections.singletonMap("c", "3"),
+                Collections.emptySet()));
+
+        verify(map, times(2)).get(eq("s1"), any());
+        verify(map, never()).put(any(), any(), any());
+        verify(map, never()).put(any(), any(), anyLong(), any());
+        assertEquals("2", stored[0].getAttributes().get("b"));
+        assertEquals("3", stored[0].getAttributes().get("c"));
+        assertEquals(10, stored[0].getLastAccessedTime());
+
+    }
+
+}
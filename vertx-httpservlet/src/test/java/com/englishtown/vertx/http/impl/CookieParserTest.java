@@ -0,0 +1,51 @@
+package com.englishtown.vertx.http.impl;
+
+import org.junit.Test;
+
+import javax.servlet.http.Cookie;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests for {@link CookieParser}
+ */
+public class CookieParserTest {
+
+    @Test
+    public void testParse() throws Exception {
+
+        Cookie[] cookies = CookieParser.parse("a=1; b = \"two\" ;$Version=1; Path=/; c=; =d; e=x=y");
+
+        assertEquals(4, cookies.length);
+        assertEquals("a", cookies[0].getName());
+        assertEquals("1", cookies[0].getValue());
+        assertEquals("b", cookies[1].getName());
+        assertEquals("two", cookies[1].getValue());
+        assertEquals("c", cookies[2].getName());
+        assertEquals("", cookies[2].getValue());
+        assertEquals("e", cookies[3].getName());
+        assertEquals("x=y", cookies[3].getValue());
+
+    }
+
+    @Test
+    public void testParse_Empty() throws Exception {
+        assertEquals(0, CookieParser.parse(null).length);
+        assertEquals(0, CookieParser.parse("").length);
+        assertEquals(0, CookieParser.parse(" ; ;").length);
+    }
+
+    @Test
+    public void testFind() throws Exception {
+
+        String header = "session_x=1; session =2;sess=3; session=\"4\"";
+
+        assertEquals("2", CookieParser.find(header, "session").getValue());
+        assertEquals("3", CookieParser.find(header, "sess").getValue());
+        assertNull(CookieParser.find(header, "ses"));
+        assertNull(CookieParser.find(null, "session"));
+
+    }
+
+}
@@ -0,0 +1,81 @@
+package com.englishtown.vertx.http.impl;
+
+import io.vertx.core.buffer.Buffer;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Unit tests for {@link FormUrlDecoder}
+ */
+public class FormUrlDecoderTest {
+
+    @Test
+    public void testDecode() throws Exception {
+
+        FormUrlDecoder decoder = new FormUrlDecoder(StandardCharsets.UTF_8, -1, -1);
+        // Split inside a name, a value and both escapes of a multi byte character
+        decoder.decode(Buffer.buffer("na"));
+        decoder.decode(Buffer.buffer("me=J%C3"));
+        decoder.decode(Buffer.buffer("%A9r%"));
+        decoder.decode(Buffer.buffer("C3%B4me+D&tag=a&&tag=b%26c&empty&eq=x=y"));
+        Map<String, List<String>> fields = decoder.end();
+
+        assertEquals(Arrays.asList("name", "tag", "empty", "eq"), Arrays.asList(fields.keySet().toArray()));
+        assertEquals(Collections.singletonList("Jérôme D"), fields.get("name"));
+        assertEquals(Arrays.asList("a", "b&c"), fields.get("tag"));
+        assertEquals(Collections.singletonList(""), fields.get("empty"));
+        assertEquals(Collections.singletonList("x=y"), fields.get("eq"));
+
+    }
+
+    @Test
+    public void testDecode_Malformed_Escape() throws Exception {
+
+        FormUrlDecoder decoder = new FormUrlDecoder(StandardCharsets.UTF_8, -1, -1);
+        decoder.decode(Buffer.buffer("a=100%&b=%zz&c=%4&=skipped&d=%"));
+        Map<String, List<String>> fields = decoder.end();
+
+        assertEquals(Collections.singletonList("100%"), fields.get("a"));
+        assertEquals(Collections.singletonList("%zz"), fields.get("b"));
+        assertEquals(Collections.singletonList("%4"), fields.get("c"));
+        assertEquals(Collections.singletonList("%"), fields.get("d"));
+        assertEquals(4, fields.size());
+
+    }
+
+    @Test
+    public void testDecode_Max_Fields() throws Exception {
+
+        FormUrlDecoder decoder = new FormUrlDecoder(StandardCharsets.UTF_8, 2, -1);
+        decoder.decode(Buffer.buffer("a=1&b=2"));
+        assertEquals(2, decoder.end().size());
+
+        decoder = new FormUrlDecoder(StandardCharsets.UTF_8, 2, -1);
+        try {
+            decoder.decode(Buffer.buffer("a=1&b=2&c=3"));
+            decoder.end();
+            fail();
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testDecode_Max_Size() throws Exception {
+
+        FormUrlDecoder decoder = new FormUrlDecoder(StandardCharsets.UTF_8, -1, 8);
+        decoder.decode(Buffer.buffer("a=1234"));
+        decoder.decode(Buffer.buffer("567"));
+
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.englishtown.vertx.http.impl;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for {@link HttpDateParser}
+ */
+public class HttpDateParserTest {
+
+    private static final long EXPECTED = 784111777000L;
+
+    @Test
+    public void testParse_Rfc1123() throws Exception {
+        assertEquals(EXPECTED, HttpDateParser.parse("Sun, 06 Nov 1994 08:49:37 GMT"));
+        // Second call is served from the cache
+        assertEquals(EXPECTED, HttpDateParser.parse("Sun, 06 Nov 1994 08:49:37 GMT"));
+    }
+
+    @Test
+    public void testParse_Rfc850() throws Exception {
+        assertEquals(EXPECTED, HttpDateParser.parse("Sunday, 06-Nov-94 08:49:37 GMT"));
+    }
+
+    @Test
+    public void testRfc850Year() throws Exception {
+        assertEquals(1994, HttpDateParser.rfc850Year(94, 2026));
+        assertEquals(2000, HttpDateParser.rfc850Year(0, 2026));
+        // Up to 50 years ahead is read as the future, further ahead as the past
+        assertEquals(2076, HttpDateParser.rfc850Year(76, 2026));
+        assertEquals(1977, HttpDateParser.rfc850Year(77, 2026));
+        assertEquals(2105, HttpDateParser.rfc850Year(5, 2099));
+    }
+
+    @Test
+    public void testParse_Asctime() throws Exception {
+        assertEquals(EXPECTED, HttpDateParser.parse("Sun Nov  6 08:49:37 1994"));
+    }
+
+    @Test
+    public void testParse_Matches_SimpleDateFormat() throws Exception {
+        SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.ENGLISH);
+        format.setTimeZone(TimeZone.getTimeZone("GMT"));
+
+        for (long millis = 0; millis < 4102444800000L; millis += 86400000L * 37 + 3723000L) {
+            String value = format.format(millis);
+            assertEquals(value, millis, HttpDateParser.parseUncached(value));
+        }
+    }
+
+    @Test
+    public void testParse_Invalid() throws Exception {
+        assertEquals(HttpDateParser.INVALID, HttpDateParser.parse(null));
+        assertEquals(HttpDateParser.INVALID, HttpDateParser.parse(""));
+        assertEquals(HttpDateParser.INVALID, HttpDateParser.parse("Sun, 06 Foo 1994 08:49:37 GMT"));
+        assertEquals(HttpDateParser.INVALID, HttpDateParser.parse("Sun, 06 Nov 1994 08:49 GMT"));
+        assertEquals(HttpDateParser.INVALID, HttpDateParser.parse("Sun, 06 Nov 1994 08:49:37 PST"));
+        assertEquals(HttpDateParser.INVALID, HttpDateParser.parse("1994-11-06T08:49:37Z"));
+    }
+
+    @Test
+    public void testParse_Day_Of_Month() throws Exception {
+        assertEquals(HttpDateParser.INVALID, HttpDateParser.parse("Sat, 31 Feb 2015 00:00:00 GMT"));
+        assertEquals(HttpDateParser.INVALID, HttpDateParser.parse("Sun, 29 Feb 2015 00:00:00 GMT"));
+        assertEquals(HttpDateParser.INVALID, HttpDateParser.parse("Thu, 29 Feb 1900 00:00:00 GMT"));
+        assertEquals(HttpDateParser.INVALID, HttpDateParser.parse("Thu, 31 Apr 2015 00:00:00 GMT"));
+        assertEquals(HttpDateParser.INVALID, HttpDateParser.parse("Tue Jun 31 00:00:00 2015"));
+        assertEquals(951782400000L, HttpDateParser.parse("Tue, 29 Feb 2000 00:00:00 GMT"));
+        assertEquals(1456704000000L, HttpDateParser.parse("Mon, 29 Feb 2016 00:00:00 GMT"));
+    }
+
+}
@@ -0,0 +1,88 @@
+package com.englishtown.vertx.http.impl;
+
+import io.vertx.core.json.JsonObject;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link LatencyHistogram}
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBuckets() throws Exception {
+
+        for (long value : new long[]{0, 1, 3, 4, 5, 7, 8, 9, 1000, 123456789, Long.MAX_VALUE}) {
+            int bucket = LatencyHistogram.bucket(value);
+            long upper = LatencyHistogram.upperBound(bucket);
+            assertTrue(value + " <= " + upper, value <= upper);
+            assertTrue(value + " within 25% of " + upper, upper - value <= value / LatencyHistogram.SUB_BUCKETS);
+            if (bucket > 0) {
+                assertTrue(LatencyHistogram.upperBound(bucket - 1) < value);
+            }
+        }
+
+    }
+
+    @Test
+    public void testPercentiles() throws Exception {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000000, histogram.getMax());
+        assertEquals(500500000L, histogram.getSum());
+        long p50 = histogram.getPercentile(50);
+        assertTrue(String.valueOf(p50), p50 >= 500000 && p50 <= 625000);
+        long p99 = histogram.getPercentile(99);
+        assertTrue(String.valueOf(p99), p99 >= 990000 && p99 <= 1000000);
+
+        JsonObject json = histogram.toJson();
+        assertEquals(1000L, (long) json.getLong("count"));
+        assertEquals(p50, (long) json.getLong("p50"));
+
+    }
+
+    @Test
+    public void testConcurrentRecording() throws Exception {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        for (int t = 0; t < 4; t++) {
+            executor.execute(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    histogram.record(100);
+                }
+            });
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        // Counts recorded on different stripes add up
+        assertEquals(40000, histogram.getCount());
+        assertEquals(4000000, histogram.getSum());
+        assertEquals(100, histogram.getPercentile(50));
+
+    }
+
+    @Test
+    public void testEmpty() throws Exception {
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(99));
+        histogram.record(-5);
+        assertEquals(0, histogram.getMax());
+        assertEquals(1, histogram.getCount());
+
+    }
+
+}
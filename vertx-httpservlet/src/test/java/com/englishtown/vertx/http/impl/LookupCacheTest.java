@@ -0,0 +1,60 @@
+package com.englishtown.vertx.http.impl;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests for {@link LookupCache}
+ */
+public class LookupCacheTest {
+
+    @Test
+    public void testGet_Put() throws Exception {
+
+        LookupCache<String, Integer> cache = new LookupCache<>(4, 2);
+
+        assertNull(cache.get("a"));
+        cache.put("a", 1);
+        cache.put(new String("a"), 2);
+        assertEquals(Integer.valueOf(2), cache.get(new String("a")));
+
+    }
+
+    @Test
+    public void testPut_Keeps_Recently_Read() throws Exception {
+
+        // A single set, every key competes for the same four slots
+        LookupCache<Integer, Integer> cache = new LookupCache<>(1, 4);
+        for (int i = 0; i < 4; i++) {
+            cache.put(i, i);
+        }
+
+        // Hot keys are read between misses, the churn of one-off keys only replaces each other
+        for (int i = 100; i < 200; i++) {
+            assertEquals(Integer.valueOf(0), cache.get(0));
+            assertEquals(Integer.valueOf(1), cache.get(1));
+            assertEquals(Integer.valueOf(2), cache.get(2));
+            cache.put(i, i);
+        }
+
+        assertEquals(Integer.valueOf(199), cache.get(199));
+        assertNull(cache.get(3));
+
+    }
+
+    @Test
+    public void testWeakIdentityKeys() throws Exception {
+
+        LookupCache<String, Integer> cache = LookupCache.withWeakIdentityKeys(4, 2);
+        String key = new String("a");
+        cache.put(key, 1);
+
+        assertEquals(Integer.valueOf(1), cache.get(key));
+        // Equal but not the same key
+        assertNull(cache.get(new String("a")));
+
+    }
+
+}
@@ -0,0 +1,136 @@
+package com.englishtown.vertx.http.impl;
+
+import org.junit.Test;
+
+import javax.servlet.MultipartConfigElement;
+import javax.servlet.http.Part;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link MultipartParser}
+ */
+public class MultipartParserTest {
+
+    private static final String BOUNDARY = "----WebKitFormBoundary7MA4YWxkTrZu0gW";
+
+    @Test
+    public void testParse() throws Exception {
+
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            large.append("line ").append(i).append("\r\n--");
+        }
+
+        String body = "preamble\r\n"
+                + "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"field\"\r\n"
+                + "\r\n"
+                + "value\r\n"
+                + "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"a \\\"b\\\".txt\"\r\n"
+                + "Content-Type: text/plain\r\n"
+                + "\r\n"
+                + large
+                + "\r\n--" + BOUNDARY + "--\r\n"
+                + "epilogue";
+
+        MultipartConfigElement config = new MultipartConfigElement("", -1, -1, 1024);
+        List<Part> parts = new MultipartParser(slowStream(body), BOUNDARY, config).parse();
+
+        assertEquals(2, parts.size());
+
+        VertxPart field = (VertxPart) parts.get(0);
+        assertEquals("field", field.getName());
+        assertNull(field.getSubmittedFileName());
+        assertTrue(field.isInMemory());
+        assertEquals("value", read(field));
+
+        VertxPart file = (VertxPart) parts.get(1);
+        assertEquals("file", file.getName());
+        assertEquals("a \"b\".txt", file.getSubmittedFileName());
+        assertEquals("text/plain", file.getContentType());
+        assertFalse(file.isInMemory());
+        assertEquals(large.length(), file.getSize());
+        assertEquals(large.toString(), read(file));
+
+        file.delete();
+
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testParse_Max_File_Size() throws Exception {
+
+        String body = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"file\"; filename=\"a.txt\"\r\n"
+                + "\r\n"
+                + "0123456789\r\n"
+                + "--" + BOUNDARY + "--\r\n";
+
+        MultipartConfigElement config = new MultipartConfigElement("", 5, -1, 0);
+        new MultipartParser(slowStream(body), BOUNDARY, config).parse();
+
+    }
+
+    @Test(expected = IOException.class)
+    public void testParse_Truncated() throws Exception {
+
+        String body = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"field\"\r\n"
+                + "\r\n"
+                + "value";
+
+        new MultipartParser(slowStream(body), BOUNDARY, new MultipartConfigElement("")).parse();
+
+    }
+
+    @Test(expected = IOException.class, timeout = 5000)
+    public void testParse_Header_Line_Too_Long() throws Exception {
+
+        StringBuilder name = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            name.append('x');
+        }
+        // No CRLF before the buffer fills up
+        String body = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"" + name + "\"\r\n"
+                + "\r\n"
+                + "value\r\n"
+                + "--" + BOUNDARY + "--\r\n";
+
+        InputStream in = new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+        new MultipartParser(in, BOUNDARY, new MultipartConfigElement("")).parse();
+
+    }
+
+    /**
+     * Returns small reads so the delimiter is split across buffer fills
+     */
+    private static InputStream slowStream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 7));
+            }
+        };
+    }
+
+    private static String read(Part part) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = part.getInputStream()) {
+            byte[] b = new byte[4096];
+            int n;
+            while ((n = in.read(b)) != -1) {
+                out.write(b, 0, n);
+            }
+        }
+        return out.toString("UTF-8");
+    }
+
+}
@@ -0,0 +1,569 @@
+package com.englishtown.vertx.http.impl;
+
+import io.vertx.core.Context;
+import io.vertx.core.MultiMap;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.CaseInsensitiveHeaders;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.DispatcherType;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.FilterRegistration;
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpSessionEvent;
+import javax.servlet.http.HttpSessionListener;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link ServletHandler}
+ */
+public class ServletHandlerTest {
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private HttpServerRequest request;
+    @Mock
+    private HttpServerResponse response;
+
+    private MultiMap responseHeaders;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() throws Exception {
+        responseHeaders = new CaseInsensitiveHeaders();
+        when(request.response()).thenReturn(response);
+        when(request.isEnded()).thenReturn(true);
+        when(response.headers()).thenReturn(responseHeaders);
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @Test
+    public void testHandle() throws Exception {
+
+        DispatcherType[] dispatcherType = new DispatcherType[1];
+
+        ServletHandler handler = new ServletHandler(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+                dispatcherType[0] = req.getDispatcherType();
+                resp.setContentType("text/plain");
+                resp.getWriter().print("ok");
+            }
+        }, executor);
+
+        handler.handle(request);
+        awaitExecutor();
+
+        ArgumentCaptor<Buffer> captor = ArgumentCaptor.forClass(Buffer.class);
+        verify(response).end(captor.capture());
+        assertEquals("ok", captor.getValue().toString());
+        assertEquals("2", responseHeaders.get("Content-Length"));
+        assertEquals(DispatcherType.REQUEST, dispatcherType[0]);
+
+    }
+
+    @Test
+    public void testHandle_Servlet_Exception() throws Exception {
+
+        ServletHandler handler = new ServletHandler(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+                throw new ServletException("boom");
+            }
+        }, executor);
+
+        handler.handle(request);
+        awaitExecutor();
+
+        verify(response).setStatusCode(500);
+        verify(response).end();
+
+    }
+
+    @Test
+    public void testHandle_Async_Complete_In_Service() throws Exception {
+
+        Vertx vertx = Vertx.vertx();
+        try {
+            Context context = vertx.getOrCreateContext();
+            AsyncListener listener = mock(AsyncListener.class);
+
+            ServletHandler handler = new ServletHandler(new HttpServlet() {
+                @Override
+                protected void service(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+                    AsyncContext asyncContext = req.startAsync();
+                    asyncContext.addListener(listener);
+                    resp.getWriter().print("ok");
+                    asyncContext.complete();
+                    try {
+                        // Gives the event loop the chance to end the response before service returns
+                        awaitContext(context);
+                    } catch (InterruptedException e) {
+                        throw new ServletException(e);
+                    }
+                    resp.getWriter().print("!");
+                }
+            }, executor);
+
+            context.runOnContext(v -> handler.handle(request));
+            awaitContext(context);
+            awaitExecutor();
+            awaitContext(context);
+
+            // complete() only took effect once service returned, and the response was ended once
+            ArgumentCaptor<Buffer> captor = ArgumentCaptor.forClass(Buffer.class);
+            verify(response).end(captor.capture());
+            verify(response, never()).end();
+            assertEquals("ok!", captor.getValue().toString());
+            verify(listener).onComplete(any(AsyncEvent.class));
+        } finally {
+            vertx.close();
+        }
+
+    }
+
+    @Test
+    public void testServletContext_Async_Dispatch_Path() throws Exception {
+
+        Object[] seen = new Object[6];
+        when(request.path()).thenReturn("/start");
+        when(request.params()).thenReturn(new CaseInsensitiveHeaders());
+
+        VertxServletContext servletContext = new VertxServletContext();
+        servletContext.addServlet("start", new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+                req.startAsync().dispatch("/target/7?mode=full");
+            }
+        }).addMapping("/start");
+        servletContext.addServlet("target", new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+                seen[0] = req.getDispatcherType();
+                seen[1] = req.getRequestURI();
+                seen[2] = req.getServletPath();
+                seen[3] = req.getPathInfo();
+                seen[4] = req.getAttribute(AsyncContext.ASYNC_REQUEST_URI);
+                seen[5] = req.getParameter("mode");
+                resp.getWriter().print("target");
+            }
+        }).addMapping("/target/*");
+        servletContext.init();
+
+        Vertx vertx = Vertx.vertx();
+        try {
+            Context context = vertx.getOrCreateContext();
+            ServletHandler handler = new ServletHandler(servletContext, executor);
+
+            context.runOnContext(v -> handler.handle(request));
+
+            ArgumentCaptor<Buffer> captor = ArgumentCaptor.forClass(Buffer.class);
+            verify(response, timeout(5000)).end(captor.capture());
+            assertEquals("target", captor.getValue().toString());
+            assertEquals(DispatcherType.ASYNC, seen[0]);
+            assertEquals("/target/7", seen[1]);
+            assertEquals("/target", seen[2]);
+            assertEquals("/7", seen[3]);
+            assertEquals("/start", seen[4]);
+            assertEquals("full", seen[5]);
+        } finally {
+            awaitExecutor();
+            vertx.close();
+        }
+
+    }
+
+    @Test
+    public void testMetrics() throws Exception {
+
+        HistogramServletMetrics metrics = new HistogramServletMetrics();
+        when(response.bytesWritten()).thenReturn(2L);
+
+        ServletHandler handler = new ServletHandler(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+                resp.getWriter().print("ok");
+            }
+        }, executor).setMetrics(metrics);
+
+        handler.handle(request);
+        awaitExecutor();
+
+        assertEquals(1, metrics.getQueueWait().getCount());
+        assertEquals(1, metrics.getService().getCount());
+        assertEquals(1, metrics.getResponseFlush().getCount());
+        assertEquals(2, metrics.getBytesOut());
+        // The body had already ended when the stream was attached
+        assertEquals(0, metrics.getBodyRead().getCount());
+
+    }
+
+    @Test
+    public void testServletContext() throws Exception {
+
+        String[] paths = new String[2];
+        when(request.path()).thenReturn("/app/api/users/1");
+
+        VertxServletContext context = new VertxServletContext("/app");
+        context.addServlet("api", new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+                paths[0] = req.getServletPath();
+                paths[1] = req.getPathInfo();
+                resp.getWriter().print("api");
+            }
+        }).addMapping("/api/*");
+        context.addServlet("default", new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+                resp.getWriter().print("default");
+            }
+        }).addMapping("/");
+        context.addFilter("header", new Filter() {
+            @Override
+            public void init(FilterConfig filterConfig) {
+            }
+
+            @Override
+            public void doFilter(ServletRequest req, ServletResponse resp, FilterChain chain)
+                    throws IOException, ServletException {
+                ((HttpServletResponse) resp).setHeader("X-Filtered", "true");
+                chain.doFilter(req, resp);
+            }
+
+            @Override
+            public void destroy() {
+            }
+        }).addMappingForServletNames(null, true, "api");
+        context.init();
+
+        ServletHandler handler = new ServletHandler(context, executor);
+
+        handler.handle(request);
+        awaitExecutor();
+
+        ArgumentCaptor<Buffer> captor = ArgumentCaptor.forClass(Buffer.class);
+        verify(response).end(captor.capture());
+        assertEquals("api", captor.getValue().toString());
+        assertEquals("true", responseHeaders.get("X-Filtered"));
+        assertEquals("/api", paths[0]);
+        assertEquals("/users/1", paths[1]);
+
+    }
+
+    @Test
+    public void testServletContext_Not_Found() throws Exception {
+
+        when(request.path()).thenReturn("/other");
+
+        VertxServletContext context = new VertxServletContext("/app");
+        context.addServlet("api", new HttpServlet() {
+        }).addMapping("/api/*");
+        context.init();
+
+        ServletHandler handler = new ServletHandler(context, executor);
+
+        handler.handle(request);
+        awaitExecutor();
+
+        verify(response).setStatusCode(404);
+
+    }
+
+    @Test
+    public void testServletContext_Dot_Segments() throws Exception {
+
+        List<String> calls = new ArrayList<>();
+        when(request.path()).thenReturn("/app/public/../admin/x");
+
+        VertxServletContext context = new VertxServletContext("/app");
+        context.addServlet("public", new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                calls.add("public");
+            }
+        }).addMapping("/public/*");
+        context.addServlet("admin", new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                calls.add("admin " + req.getPathInfo());
+            }
+        }).addMapping("/admin/*");
+        context.addFilter("auth", recordingFilter(calls, "auth"))
+                .addMappingForUrlPatterns(null, true, "/admin/*");
+        context.init();
+
+        ServletHandler handler = new ServletHandler(context, executor);
+
+        // Normalized before matching, so the admin filter applies
+        handler.handle(request);
+        awaitExecutor();
+
+        assertEquals(Arrays.asList("auth", "admin /x"), calls);
+
+        // Climbing above the context root is rejected
+        calls.clear();
+        when(request.path()).thenReturn("/app/public/../../x");
+        handler.handle(request);
+        awaitExecutor();
+
+        assertTrue(calls.isEmpty());
+        verify(response).setStatusCode(400);
+
+    }
+
+    @Test
+    public void testServletContext_Encoded_Slash() throws Exception {
+
+        List<String> calls = new ArrayList<>();
+        when(request.path()).thenReturn("/app/admin%2Fx");
+
+        VertxServletContext context = new VertxServletContext("/app");
+        context.addServlet("admin", new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                calls.add("admin");
+            }
+        }).addMapping("/admin/*");
+        context.addServlet("default", new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                calls.add("default");
+            }
+        }).addMapping("/");
+        context.init();
+
+        ServletHandler handler = new ServletHandler(context, executor);
+
+        handler.handle(request);
+        awaitExecutor();
+
+        assertTrue(calls.isEmpty());
+        verify(response).setStatusCode(400);
+
+    }
+
+    @Test
+    public void testServletContext_Filter_Order() throws Exception {
+
+        List<String> calls = new ArrayList<>();
+        when(request.path()).thenReturn("/app/x");
+
+        VertxServletContext context = new VertxServletContext();
+        context.addServlet("app", new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                calls.add("servlet");
+            }
+        }).addMapping("/app/*");
+        // Registered first, but servlet name mappings come after all URL pattern mappings
+        context.addFilter("byName", recordingFilter(calls, "byName"))
+                .addMappingForServletNames(null, true, "app");
+        context.addFilter("after", recordingFilter(calls, "after"))
+                .addMappingForUrlPatterns(null, true, "/app/*");
+        context.addFilter("before", recordingFilter(calls, "before"))
+                .addMappingForUrlPatterns(null, false, "/*");
+        // Only mapped to /app/* for forwards, its request mapping does not match
+        FilterRegistration.Dynamic forward = context.addFilter("forward", recordingFilter(calls, "forward"));
+        forward.addMappingForUrlPatterns(null, true, "/other/*");
+        forward.addMappingForUrlPatterns(EnumSet.of(DispatcherType.FORWARD), true, "/app/*");
+        context.init();
+
+        ServletHandler handler = new ServletHandler(context, executor);
+
+        handler.handle(request);
+        awaitExecutor();
+
+        assertEquals(Arrays.asList("before", "after", "byName", "servlet"), calls);
+
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testServletContext_Unsupported_Listener() throws Exception {
+
+        new VertxServletContext().addListener(new HttpSessionListener() {
+            @Override
+            public void sessionCreated(HttpSessionEvent se) {
+            }
+
+            @Override
+            public void sessionDestroyed(HttpSessionEvent se) {
+            }
+        });
+
+    }
+
+    @Test
+    public void testForward() throws Exception {
+
+        Object[] seen = new Object[7];
+        MultiMap params = new CaseInsensitiveHeaders().add("id", "7");
+        when(request.path()).thenReturn("/orders/7");
+        when(request.params()).thenReturn(params);
+
+        VertxServletContext context = new VertxServletContext();
+        context.addServlet("controller", new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+                resp.getWriter().print("discarded");
+                req.setAttribute("order", "7");
+                req.getRequestDispatcher("/WEB-INF/view?mode=full").forward(req, resp);
+            }
+        }).addMapping("/orders/*");
+        context.addServlet("view", new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+                seen[0] = req.getDispatcherType();
+                seen[1] = req.getRequestURI();
+                seen[2] = req.getServletPath();
+                seen[3] = req.getAttribute(RequestDispatcher.FORWARD_REQUEST_URI);
+                seen[4] = req.getAttribute(RequestDispatcher.FORWARD_SERVLET_PATH);
+                seen[5] = req.getParameter("mode") + "," + req.getParameter("id");
+                seen[6] = req.getAttribute("order");
+                resp.getWriter().print("view");
+            }
+        }).addMapping("/WEB-INF/view");
+        context.init();
+
+        ServletHandler handler = new ServletHandler(context, executor);
+
+        handler.handle(request);
+        awaitExecutor();
+
+        ArgumentCaptor<Buffer> captor = ArgumentCaptor.forClass(Buffer.class);
+        verify(response).end(captor.capture());
+        assertEquals("view", captor.getValue().toString());
+        assertEquals(DispatcherType.FORWARD, seen[0]);
+        assertEquals("/WEB-INF/view", seen[1]);
+        assertEquals("/WEB-INF/view", seen[2]);
+        assertEquals("/orders/7", seen[3]);
+        assertEquals("/orders", seen[4]);
+        assertEquals("full,7", seen[5]);
+        assertEquals("7", seen[6]);
+
+    }
+
+    @Test
+    public void testInclude() throws Exception {
+
+        Object[] seen = new Object[3];
+        when(request.path()).thenReturn("/page");
+
+        VertxServletContext context = new VertxServletContext();
+        context.addServlet("page", new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+                resp.getWriter().print("a");
+                req.getRequestDispatcher("fragment").include(req, resp);
+                resp.getWriter().print("c");
+            }
+        }).addMapping("/page");
+        context.addServlet("fragment", new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+                seen[0] = req.getDispatcherType();
+                seen[1] = req.getServletPath();
+                seen[2] = req.getAttribute(RequestDispatcher.INCLUDE_SERVLET_PATH);
+                resp.setStatus(404);
+                resp.getWriter().print("b");
+            }
+        }).addMapping("/fragment");
+        context.init();
+
+        ServletHandler handler = new ServletHandler(context, executor);
+
+        handler.handle(request);
+        awaitExecutor();
+
+        ArgumentCaptor<Buffer> captor = ArgumentCaptor.forClass(Buffer.class);
+        verify(response).end(captor.capture());
+        assertEquals("abc", captor.getValue().toString());
+        verify(response, never()).setStatusCode(404);
+        assertEquals(DispatcherType.INCLUDE, seen[0]);
+        assertEquals("/page", seen[1]);
+        assertEquals("/fragment", seen[2]);
+
+    }
+
+    @Test
+    public void testDefaultExecutor() throws Exception {
+
+        ExecutorService defaultExecutor = ServletHandler.defaultExecutor();
+        try {
+            assertTrue(defaultExecutor.submit(() -> true).get(5, TimeUnit.SECONDS));
+        } finally {
+            defaultExecutor.shutdown();
+        }
+
+    }
+
+    private static Filter recordingFilter(List<String> calls, String name) {
+        return new Filter() {
+            @Override
+            public void init(FilterConfig filterConfig) {
+            }
+
+            @Override
+            public void doFilter(ServletRequest req, ServletResponse resp, FilterChain chain)
+                    throws IOException, ServletException {
+                calls.add(name);
+                chain.doFilter(req, resp);
+            }
+
+            @Override
+            public void destroy() {
+            }
+        };
+    }
+
+    private static void awaitContext(Context context) throws InterruptedException {
+        CountDownLatch latch = new CountDownLatch(1);
+        context.runOnContext(v -> latch.countDown());
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+    }
+
+    private void awaitExecutor() throws InterruptedException {
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.englishtown.vertx.http.impl;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Unit tests for {@link TrustedProxies}
+ */
+public class TrustedProxiesTest {
+
+    @Test
+    public void testIPv4() throws Exception {
+
+        TrustedProxies proxies = TrustedProxies.of("10.0.0.0/8", "192.168.1.7", "172.16.0.0/12");
+
+        assertTrue(proxies.isTrusted("10.1.2.3"));
+        assertTrue(proxies.isTrusted("192.168.1.7"));
+        assertTrue(proxies.isTrusted("172.31.255.255"));
+        assertFalse(proxies.isTrusted("172.32.0.1"));
+        assertFalse(proxies.isTrusted("192.168.1.8"));
+        assertFalse(proxies.isTrusted("11.0.0.1"));
+        assertTrue(proxies.isTrusted("::ffff:10.0.0.1"));
+
+    }
+
+    @Test
+    public void testIPv6() throws Exception {
+
+        TrustedProxies proxies = TrustedProxies.of("fd00::/8", "2001:db8::1", "2001:db8:0:0:1::/80");
+
+        assertTrue(proxies.isTrusted("fd12:3456::1"));
+        assertTrue(proxies.isTrusted("[2001:db8::1]"));
+        assertFalse(proxies.isTrusted("2001:db8::2"));
+        assertTrue(proxies.isTrusted("2001:db8::1:ff:0:0"));
+        assertFalse(proxies.isTrusted("2001:db8::2:0:0:0"));
+        assertFalse(proxies.isTrusted("10.0.0.1"));
+
+    }
+
+    @Test
+    public void testNotAnAddress() throws Exception {
+
+        TrustedProxies proxies = TrustedProxies.of("0.0.0.0/0", "::/0");
+
+        assertTrue(proxies.isTrusted("1.2.3.4"));
+        assertTrue(proxies.isTrusted("::1"));
+        assertFalse(proxies.isTrusted("unknown"));
+        assertFalse(proxies.isTrusted("_hidden"));
+        assertFalse(proxies.isTrusted("localhost"));
+        assertFalse(proxies.isTrusted("1.2.3"));
+        assertFalse(proxies.isTrusted("1.2.3.256"));
+        assertFalse(proxies.isTrusted(null));
+        // Colon separated values that are not literals are rejected without a name lookup
+        assertFalse(proxies.isTrusted("x:y:z"));
+        assertFalse(proxies.isTrusted("[example.com]"));
+        assertFalse(proxies.isTrusted("example.com:80"));
+
+    }
+
+    @Test
+    public void testParseIPv4() throws Exception {
+
+        assertEquals(0xC0A80107L, TrustedProxies.parseIPv4("192.168.1.7"));
+        assertEquals(0xFFFFFFFFL, TrustedProxies.parseIPv4("255.255.255.255"));
+        assertEquals(-1, TrustedProxies.parseIPv4("1.2.3.4."));
+        assertEquals(-1, TrustedProxies.parseIPv4("1..3.4"));
+
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidRange() throws Exception {
+        TrustedProxies.of("10.0.0.0/33");
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.englishtown.vertx.http.impl;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Unit tests for {@link UrlPatternMatcher}
+ */
+public class UrlPatternMatcherTest {
+
+    private UrlPatternMatcher<String> matcher;
+
+    @Before
+    public void setUp() throws Exception {
+        matcher = new UrlPatternMatcher<>();
+        matcher.put("/catalog", "exact");
+        matcher.put("/catalog/*", "catalog");
+        matcher.put("/catalog/racket/*", "racket");
+        matcher.put("*.jsp", "jsp");
+        matcher.put("/", "default");
+        matcher.put("", "root");
+    }
+
+    @Test
+    public void testMatch() throws Exception {
+
+        assertMatch("exact", "/catalog", null, matcher.match("/catalog"));
+        assertMatch("catalog", "/catalog", "/index.html", matcher.match("/catalog/index.html"));
+        assertMatch("racket", "/catalog/racket", "/a/b", matcher.match("/catalog/racket/a/b"));
+        assertMatch("racket", "/catalog/racket", null, matcher.match("/catalog/racket"));
+        assertMatch("catalog", "/catalog", "/help.jsp", matcher.match("/catalog/help.jsp"));
+        assertMatch("jsp", "/help/feedback.jsp", null, matcher.match("/help/feedback.jsp"));
+        assertMatch("default", "/catalogs", null, matcher.match("/catalogs"));
+        assertMatch("default", "/a.jsp/b", null, matcher.match("/a.jsp/b"));
+        assertMatch("root", "", "/", matcher.match("/"));
+
+    }
+
+    @Test
+    public void testMatch_Prefix_Root() throws Exception {
+
+        matcher.put("/*", "all");
+
+        assertMatch("exact", "/catalog", null, matcher.match("/catalog"));
+        assertMatch("all", "", "/help/feedback.jsp", matcher.match("/help/feedback.jsp"));
+        assertMatch("root", "", "/", matcher.match("/"));
+
+    }
+
+    @Test
+    public void testMatch_None() throws Exception {
+
+        UrlPatternMatcher<String> empty = new UrlPatternMatcher<>();
+        empty.put("/a/*", "a");
+
+        assertNull(empty.match("/b"));
+        assertNull(empty.match("/"));
+
+    }
+
+    @Test
+    public void testMatchAll() throws Exception {
+
+        List<String> matched = new ArrayList<>();
+        matcher.matchAll("/catalog/racket/help.jsp", matched::add);
+
+        assertEquals(Arrays.asList("catalog", "racket", "jsp", "default"), matched);
+
+    }
+
+    @Test
+    public void testGet() throws Exception {
+
+        assertEquals("exact", matcher.get("/catalog"));
+        assertEquals("catalog", matcher.get("/catalog/*"));
+        assertEquals("jsp", matcher.get("*.jsp"));
+        assertEquals("default", matcher.get("/"));
+        assertNull(matcher.get("/catalog/racket"));
+        assertNull(matcher.get("*.html"));
+
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPattern() throws Exception {
+        matcher.put("/catalog/*.jsp", "invalid");
+    }
+
+    private static void assertMatch(String target, String servletPath, String pathInfo,
+                                    UrlPatternMatcher.Match<String> match) {
+        assertEquals(target, match.getTarget());
+        assertEquals(servletPath, match.getServletPath());
+        assertEquals(pathInfo, match.getPathInfo());
+    }
+
+}
@@ -0,0 +1,213 @@
+package com.englishtown.vertx.http.impl;
+
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.HttpServerResponse;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import java.io.IOException;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link VertxAsyncContext}
+ */
+public class VertxAsyncContextTest {
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private Context context;
+    @Mock
+    private Vertx vertx;
+    @Mock
+    private VertxHttpServletRequest request;
+    @Mock
+    private VertxHttpServletResponse response;
+    @Mock
+    private HttpServerResponse vertxResponse;
+    @Mock
+    private AsyncListener listener;
+
+    private VertxAsyncContext asyncContext;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        when(context.owner()).thenReturn(vertx);
+        when(vertx.setTimer(anyLong(), any())).thenReturn(7L);
+        doAnswer(invocation -> {
+            ((Handler<Void>) invocation.getArguments()[0]).handle(null);
+            return null;
+        }).when(context).runOnContext(any());
+
+        asyncContext = new VertxAsyncContext(request, vertxResponse, context, request, response);
+        asyncContext.addListener(listener);
+        asyncContext.setTimeout(1000);
+        asyncContext.start();
+    }
+
+    @Test
+    public void testComplete() throws Exception {
+
+        asyncContext.complete();
+        asyncContext.complete();
+
+        verify(vertx).cancelTimer(7L);
+        verify(listener).onComplete(any(AsyncEvent.class));
+        verify(response).finish();
+        assertTrue(asyncContext.isCompleted());
+
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testTimeout() throws Exception {
+
+        ArgumentCaptor<Handler> timer = ArgumentCaptor.forClass(Handler.class);
+        verify(vertx).setTimer(eq(1000L), timer.capture());
+
+        timer.getValue().handle(7L);
+
+        verify(listener).onTimeout(any(AsyncEvent.class));
+        verify(response).setStatus(500);
+        verify(listener).onComplete(any(AsyncEvent.class));
+        verify(response).finish();
+        verify(vertx, never()).cancelTimer(anyLong());
+
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testTimeout_Listener_Completes() throws Exception {
+
+        doAnswer(invocation -> {
+            asyncContext.complete();
+            return null;
+        }).when(listener).onTimeout(any(AsyncEvent.class));
+
+        ArgumentCaptor<Handler> timer = ArgumentCaptor.forClass(Handler.class);
+        verify(vertx).setTimer(eq(1000L), timer.capture());
+        timer.getValue().handle(7L);
+
+        verify(response, never()).setStatus(500);
+        verify(response).finish();
+
+    }
+
+    @Test
+    public void testDispatch() throws Exception {
+
+        asyncContext.dispatch("/other");
+
+        assertTrue(asyncContext.isDispatched());
+        verify(response).finish();
+
+    }
+
+    @Test
+    public void testRestart() throws Exception {
+
+        AsyncListener again = mock(AsyncListener.class);
+        doAnswer(invocation -> {
+            // Only listeners that add themselves again hear about the new cycle
+            asyncContext.addListener(again);
+            return null;
+        }).when(listener).onStartAsync(any(AsyncEvent.class));
+        when(request.getAsyncDispatcher()).thenReturn(path -> {
+        });
+
+        asyncContext.dispatch();
+        when(request.isInService()).thenReturn(true);
+        asyncContext.restart(request, response);
+        asyncContext.start();
+
+        verify(listener).onStartAsync(any(AsyncEvent.class));
+        assertFalse(asyncContext.isDispatched());
+
+        // The timeout set in the first cycle is kept
+        assertTrue(asyncContext.serviceReturned());
+        verify(vertx, times(2)).setTimer(eq(1000L), any());
+
+        asyncContext.complete();
+
+        verify(again).onComplete(any(AsyncEvent.class));
+        verify(listener, never()).onComplete(any(AsyncEvent.class));
+        verify(response).finish();
+
+    }
+
+    @Test
+    public void testDispatchReturned() throws Exception {
+
+        when(request.getAsyncDispatcher()).thenReturn(path -> {
+        });
+
+        asyncContext.dispatch();
+        verify(response, never()).finish();
+
+        // The dispatch returned without starting a new cycle, the container ended the response
+        assertTrue(asyncContext.dispatchReturned());
+        assertFalse(asyncContext.dispatchReturned());
+
+        verify(listener).onComplete(any(AsyncEvent.class));
+        verify(request).release();
+        assertTrue(asyncContext.isCompleted());
+
+    }
+
+    @Test
+    public void testSetTimeout_Rearms_Timer() throws Exception {
+
+        asyncContext.setTimeout(2000);
+
+        verify(vertx).cancelTimer(7L);
+        verify(vertx).setTimer(eq(2000L), any());
+
+    }
+
+    @Test
+    public void testSetTimeout_After_Start_In_Service() throws Exception {
+
+        when(request.isInService()).thenReturn(true);
+        VertxAsyncContext started = new VertxAsyncContext(request, vertxResponse, context, request, response);
+        started.start();
+        started.setTimeout(5000);
+
+        verify(vertx, never()).setTimer(eq(VertxAsyncContext.DEFAULT_TIMEOUT), any());
+        verify(vertx, never()).setTimer(eq(5000L), any());
+
+        assertTrue(started.serviceReturned());
+        verify(vertx).setTimer(eq(5000L), any());
+
+    }
+
+    @Test
+    public void testComplete_Error() throws Exception {
+
+        doThrow(new IOException("closed")).when(response).finish();
+
+        asyncContext.complete();
+
+        verify(listener).onError(any(AsyncEvent.class));
+        verify(vertxResponse).close();
+        assertFalse(asyncContext.isDispatched());
+
+    }
+
+}
@@ -1,14 +1,41 @@
 package com.englishtown.vertx.http.impl;
 
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.CaseInsensitiveHeaders;
+import io.vertx.core.http.HttpConnection;
+import io.vertx.core.http.HttpMethod;
 import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.net.SocketAddress;
 import org.junit.Rule;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnit;
 import org.mockito.junit.MockitoRule;
 
+import javax.servlet.http.Cookie;
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 
 /**
@@ -30,11 +57,14 @@ public class VertxHttpServletRequestTest {
         when(request.absoluteURI()).thenReturn(uri);
         VertxHttpServletRequest vsr = new VertxHttpServletRequest(request);
 
-        verify(request).absoluteURI();
+        verifyZeroInteractions(request);
 
         assertEquals("http", vsr.getScheme());
         assertEquals("test.org", vsr.getServerName());
         assertEquals("/test", vsr.getRequestURI());
+        assertEquals(80, vsr.getServerPort());
+
+        verify(request).absoluteURI();
 
     }
 
@@ -53,13 +83,380 @@ public class VertxHttpServletRequestTest {
 
         VertxHttpServletRequest vsr = new VertxHttpServletRequest(request);
 
-        verify(request).absoluteURI();
-
         assertEquals(scheme, vsr.getScheme());
         assertEquals(host, vsr.getServerName());
         assertEquals(path, vsr.getRequestURI());
 
+        verify(request, never()).absoluteURI();
+        verify(request, never()).query();
+
+        assertEquals(URI.create("http://test.org/test?a=b%3D1%7Cc%3Dd%7Ce%3Df&g=h"), vsr.getURI());
+
+    }
+
+    @Test
+    public void testParseUri_Host_Port() throws Exception {
+
+        when(request.scheme()).thenReturn("https");
+        when(request.host()).thenReturn("[::1]:8443");
+        when(request.path()).thenReturn("/a/b");
+
+        VertxHttpServletRequest vsr = new VertxHttpServletRequest(request);
+
+        assertEquals("https", vsr.getScheme());
+        assertEquals("[::1]", vsr.getServerName());
+        assertEquals(8443, vsr.getServerPort());
+        assertEquals("/a/b", vsr.getRequestURI());
+        assertTrue(vsr.isSecure());
+
+    }
+
+    @Test
+    public void testParseUri_Host_Port_Out_Of_Range() throws Exception {
+
+        when(request.scheme()).thenReturn("https");
+        when(request.host()).thenReturn("example.com:70000");
+        when(request.path()).thenReturn("/");
+
+        VertxHttpServletRequest vsr = new VertxHttpServletRequest(request);
+
+        assertEquals("example.com", vsr.getServerName());
+        assertEquals(443, vsr.getServerPort());
+
+    }
+
+    @Test
+    public void testGetCookies() throws Exception {
+
+        MultiMap headers = new CaseInsensitiveHeaders().add("Cookie", "a=1; JSESSIONID=abc; b=2");
+        when(request.headers()).thenReturn(headers);
+
+        VertxHttpServletRequest vsr = new VertxHttpServletRequest(request);
+
+        assertEquals("abc", vsr.getCookie("JSESSIONID").getValue());
+        assertNull(vsr.getCookie("c"));
+
+        Cookie[] cookies = vsr.getCookies();
+        assertEquals(3, cookies.length);
+        assertEquals("JSESSIONID", cookies[1].getName());
+
+        // Changing the returned cookies does not change the request's cookies
+        cookies[1].setValue("x");
+        cookies[0] = cookies[2];
+        assertEquals("abc", vsr.getCookie("JSESSIONID").getValue());
+        assertEquals("a", vsr.getCookies()[0].getName());
+        vsr.getCookie("JSESSIONID").setMaxAge(0);
+        assertEquals(-1, vsr.getCookies()[1].getMaxAge());
+
+    }
+
+    @Test
+    public void testGetHeaders() throws Exception {
+
+        MultiMap headers = new CaseInsensitiveHeaders()
+                .add("Accept", "text/html")
+                .add("X-Forwarded-For", "10.0.0.1")
+                .add("accept", "application/json")
+                .add("x-forwarded-for", "10.0.0.2");
+        when(request.headers()).thenReturn(headers);
+
+        VertxHttpServletRequest vsr = new VertxHttpServletRequest(request);
+
+        assertEquals(Arrays.asList("Accept", "X-Forwarded-For"), Collections.list(vsr.getHeaderNames()));
+        assertEquals(Arrays.asList("10.0.0.1", "10.0.0.2"), Collections.list(vsr.getHeaders("X-FORWARDED-FOR")));
+        assertFalse(vsr.getHeaders("Host").hasMoreElements());
+        assertEquals(vsr.getHeader("Accept"), vsr.getHeader(HttpHeaderNames.ACCEPT));
+
+    }
+
+    @Test
+    public void testGetIntHeader() throws Exception {
+
+        MultiMap headers = new CaseInsensitiveHeaders()
+                .add("Max-Forwards", " 10 ")
+                .add("X-Negative", "-2147483648")
+                .add("X-Large", "2147483648")
+                .add("X-Bad", "1a")
+                .add("Content-Length", "3000000000");
+        when(request.headers()).thenReturn(headers);
+
+        VertxHttpServletRequest vsr = new VertxHttpServletRequest(request);
+
+        assertEquals(10, vsr.getIntHeader("Max-Forwards"));
+        assertEquals(Integer.MIN_VALUE, vsr.getIntHeader("X-Negative"));
+        assertEquals(-1, vsr.getIntHeader("X-Missing"));
+        assertEquals(3000000000L, vsr.getContentLengthLong());
+        assertEquals(-1, vsr.getContentLength());
+
+        for (String name : Arrays.asList("X-Large", "X-Bad")) {
+            try {
+                vsr.getIntHeader(name);
+                fail();
+            } catch (NumberFormatException e) {
+                // Expected
+            }
+        }
+
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testGetParameterMap_Form_Body() throws Exception {
+
+        when(request.method()).thenReturn(HttpMethod.POST);
+        when(request.headers()).thenReturn(new CaseInsensitiveHeaders()
+                .add("Content-Type", "application/x-www-form-urlencoded; charset=UTF-8"));
+        when(request.params()).thenReturn(new CaseInsensitiveHeaders().add("a", "1"));
+        when(request.formAttributes()).thenReturn(new CaseInsensitiveHeaders());
+
+        VertxHttpServletRequest vsr = new VertxHttpServletRequest(request);
+        vsr.bodyStream();
+
+        ArgumentCaptor<Handler> data = ArgumentCaptor.forClass(Handler.class);
+        ArgumentCaptor<Handler> end = ArgumentCaptor.forClass(Handler.class);
+        verify(request).handler(data.capture());
+        verify(request).endHandler(end.capture());
+        data.getValue().handle(Buffer.buffer("a=2&b=caf"));
+        data.getValue().handle(Buffer.buffer("%C3%A9"));
+        end.getValue().handle(null);
+
+        assertArrayEquals(new String[]{"1", "2"}, vsr.getParameterValues("a"));
+        assertEquals("café", vsr.getParameter("b"));
+
+        // Changing the returned values does not change the request's parameters
+        vsr.getParameterValues("a")[0] = "x";
+        assertEquals("1", vsr.getParameter("a"));
+
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testGetParameterMap_Form_Body_Event_Loop() throws Exception {
+
+        when(request.method()).thenReturn(HttpMethod.POST);
+        when(request.headers()).thenReturn(new CaseInsensitiveHeaders()
+                .add("Content-Type", "application/x-www-form-urlencoded"));
+        when(request.params()).thenReturn(new CaseInsensitiveHeaders().add("a", "1"));
+        when(request.formAttributes()).thenReturn(new CaseInsensitiveHeaders());
+
+        Vertx vertx = Vertx.vertx();
+        try {
+            CompletableFuture<String[]> result = new CompletableFuture<>();
+            vertx.runOnContext(v -> {
+                try {
+                    VertxHttpServletRequest vsr = new VertxHttpServletRequest(request);
+                    vsr.bodyStream();
+
+                    ArgumentCaptor<Handler> data = ArgumentCaptor.forClass(Handler.class);
+                    ArgumentCaptor<Handler> end = ArgumentCaptor.forClass(Handler.class);
+                    verify(request).handler(data.capture());
+                    verify(request).endHandler(end.capture());
+                    data.getValue().handle(Buffer.buffer("b=2"));
+
+                    // Waiting for the rest of the body would block the event loop, partial results are not returned
+                    String before;
+                    try {
+                        vsr.getParameter("a");
+                        before = "no failure";
+                    } catch (IllegalStateException e) {
+                        before = "failed";
+                    }
+
+                    data.getValue().handle(Buffer.buffer("&c=3"));
+                    end.getValue().handle(null);
+                    String after = vsr.getParameter("b") + "," + vsr.getParameter("c");
+
+                    result.complete(new String[]{before, after});
+                } catch (Throwable t) {
+                    result.completeExceptionally(t);
+                }
+            });
+
+            assertArrayEquals(new String[]{"failed", "2,3"}, result.get(5, TimeUnit.SECONDS));
+        } finally {
+            vertx.close();
+        }
+
+    }
+
+    @Test
+    public void testGetParameterMap_Form_Attributes() throws Exception {
+
+        // The body was consumed by vert.x with setExpectMultipart(true)
+        when(request.isEnded()).thenReturn(true);
+        when(request.method()).thenReturn(HttpMethod.POST);
+        when(request.headers()).thenReturn(new CaseInsensitiveHeaders()
+                .add("Content-Type", "application/x-www-form-urlencoded"));
+        when(request.params()).thenReturn(new CaseInsensitiveHeaders());
+        when(request.formAttributes()).thenReturn(new CaseInsensitiveHeaders().add("b", "2").add("b", "3"));
+
+        VertxHttpServletRequest vsr = new VertxHttpServletRequest(request);
+
+        assertArrayEquals(new String[]{"2", "3"}, vsr.getParameterValues("b"));
+
+    }
+
+    @Test
+    public void testGetLocales() throws Exception {
+
+        MultiMap headers = new CaseInsensitiveHeaders().add("Accept-Language", "en;q=0.8, de-CH");
+        when(request.headers()).thenReturn(headers);
+
+        VertxHttpServletRequest vsr = new VertxHttpServletRequest(request);
+
+        assertEquals(new Locale("de", "CH"), vsr.getLocale());
+        assertEquals(Arrays.asList(new Locale("de", "CH"), Locale.ENGLISH), Collections.list(vsr.getLocales()));
+
+        headers.set("Accept-Language", "*");
+        vsr = new VertxHttpServletRequest(request);
+
+        assertEquals(Locale.US, vsr.getLocale());
+        assertEquals(Collections.singletonList(Locale.US), Collections.list(vsr.getLocales()));
+
+    }
+
+    @Test
+    public void testRemoteAndLocalAddress() throws Exception {
+
+        HttpConnection connection = mock(HttpConnection.class);
+        when(request.connection()).thenReturn(connection);
+        when(request.remoteAddress()).thenReturn(SocketAddress.inetSocketAddress(51234, "10.0.0.1"));
+        when(request.localAddress()).thenReturn(SocketAddress.inetSocketAddress(8080, "10.0.0.2"));
+
+        VertxHttpServletRequest vsr = new VertxHttpServletRequest(request);
+
+        assertEquals("10.0.0.1", vsr.getRemoteAddr());
+        assertEquals("10.0.0.1", vsr.getRemoteHost());
+        assertEquals(51234, vsr.getRemotePort());
+        assertEquals("10.0.0.2", vsr.getLocalAddr());
+        assertEquals(8080, vsr.getLocalPort());
+        assertNull(vsr.getAttribute("javax.servlet.request.X509Certificate"));
+
+        // The next request on the same keep-alive connection reuses the resolved addresses
+        vsr = new VertxHttpServletRequest(request);
+        assertEquals("10.0.0.1", vsr.getRemoteAddr());
+        assertEquals(8080, vsr.getLocalPort());
+        verify(request, times(1)).remoteAddress();
+        verify(request, times(1)).localAddress();
+
     }
 
+    @Test
+    public void testForwardedHeaders() throws Exception {
+
+        MultiMap headers = new CaseInsensitiveHeaders()
+                .add("X-Forwarded-For", "198.51.100.7, 10.0.0.5")
+                .add("X-Forwarded-Proto", "https")
+                .add("X-Forwarded-Host", "www.example.com");
+        when(request.headers()).thenReturn(headers);
+        when(request.absoluteURI()).thenReturn("http://backend:8080/path");
+        when(request.remoteAddress()).thenReturn(SocketAddress.inetSocketAddress(40000, "10.0.0.9"));
+
+        VertxHttpServletRequest vsr = new VertxHttpServletRequest(request);
+        assertEquals("10.0.0.9", vsr.getRemoteAddr());
+        assertEquals("http", vsr.getScheme());
+
+        vsr = new VertxHttpServletRequest(request);
+        vsr.setTrustedProxies(TrustedProxies.of("10.0.0.0/8"));
+        assertEquals("198.51.100.7", vsr.getRemoteAddr());
+        assertEquals("https", vsr.getScheme());
+        assertTrue(vsr.isSecure());
+        assertEquals("www.example.com", vsr.getServerName());
+        assertEquals(443, vsr.getServerPort());
+
+        // A client sent Forwarded header is ignored when the proxies maintain X-Forwarded-*
+        headers.add("Forwarded", "for=1.2.3.4");
+        vsr = new VertxHttpServletRequest(request);
+        vsr.setTrustedProxies(TrustedProxies.of("10.0.0.0/8"));
+        assertEquals("198.51.100.7", vsr.getRemoteAddr());
+
+        headers.clear().add("Forwarded", "for=198.51.100.7;proto=https, for=\"[2001:db8::1]:4711\";host=api.example.com");
+        headers.add("X-Forwarded-For", "1.2.3.4");
+        vsr = new VertxHttpServletRequest(request);
+        vsr.setTrustedProxies(TrustedProxies.of("10.0.0.0/8"));
+        vsr.setForwardedHeaderFormat(ForwardedHeaderFormat.FORWARDED);
+        assertEquals("2001:db8::1", vsr.getRemoteAddr());
+        assertEquals("api.example.com", vsr.getServerName());
+
+        vsr = new VertxHttpServletRequest(request);
+        vsr.setTrustedProxies(TrustedProxies.of("192.168.0.0/16"));
+        assertEquals("10.0.0.9", vsr.getRemoteAddr());
+        assertEquals("backend", vsr.getServerName());
+
+    }
+
+    @Test
+    public void testGetParameterMap() throws Exception {
+
+        MultiMap params = new CaseInsensitiveHeaders().add("a", "1").add("b", "2").add("a", "3");
+        when(request.params()).thenReturn(params);
+
+        Map<String, List<String>> formParams = new HashMap<>();
+        formParams.put("a", Arrays.asList("4"));
+        formParams.put("c", Arrays.asList("5", "6"));
+        formParams.put("d", Collections.emptyList());
+
+        VertxHttpServletRequest vsr = new VertxHttpServletRequest(request, formParams);
+
+        Map<String, String[]> map = vsr.getParameterMap();
+        assertEquals(3, map.size());
+        assertArrayEquals(new String[]{"1", "3", "4"}, map.get("a"));
+        assertArrayEquals(new String[]{"2"}, map.get("b"));
+        assertArrayEquals(new String[]{"5", "6"}, map.get("c"));
+
+        assertEquals("1", vsr.getParameter("a"));
+        assertNull(vsr.getParameter("d"));
+        assertArrayEquals(new String[]{"5", "6"}, vsr.getParameterValues("c"));
+        assertEquals(0, vsr.getParameterValues("d").length);
+        assertEquals(Arrays.asList("a", "b", "c"), Collections.list(vsr.getParameterNames()));
+
+        assertSame(map, vsr.getParameterMap());
+        verify(request, times(1)).params();
+
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testGetParameterMap_Unmodifiable() throws Exception {
+
+        when(request.params()).thenReturn(new CaseInsensitiveHeaders());
+
+        new VertxHttpServletRequest(request).getParameterMap().put("a", new String[]{"1"});
+
+    }
+
+    @Test
+    public void testGetCharacterEncoding() throws Exception {
+
+        MultiMap headers = new CaseInsensitiveHeaders().add("Content-Type", "text/plain; Charset=\"UTF-8\"");
+        when(request.headers()).thenReturn(headers);
+        when(request.isEnded()).thenReturn(true);
+
+        VertxHttpServletRequest vsr = new VertxHttpServletRequest(request);
+        assertEquals("UTF-8", vsr.getCharacterEncoding());
+
+        vsr.setCharacterEncoding("UTF-16");
+        assertEquals("UTF-16", vsr.getCharacterEncoding());
+
+        assertSame(vsr.getReader(), vsr.getReader());
+        vsr.setCharacterEncoding("US-ASCII");
+        assertEquals("UTF-16", vsr.getCharacterEncoding());
+
+    }
+
+    @Test(expected = UnsupportedEncodingException.class)
+    public void testSetCharacterEncoding_Unsupported() throws Exception {
+        new VertxHttpServletRequest(request).setCharacterEncoding("no-such-charset");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testGetReader_After_GetInputStream() throws Exception {
+
+        when(request.isEnded()).thenReturn(true);
+
+        VertxHttpServletRequest vsr = new VertxHttpServletRequest(request);
+        vsr.getInputStream();
+        vsr.getReader();
+
+    }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,232 @@
+package com.englishtown.vertx.http.impl;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.util.ResourceLeakDetector;
+import io.vertx.core.MultiMap;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.CaseInsensitiveHeaders;
+import io.vertx.core.http.HttpServerResponse;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.Cookie;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link VertxHttpServletResponse}
+ */
+public class VertxHttpServletResponseTest {
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private HttpServerResponse response;
+
+    private MultiMap headers;
+
+    @Before
+    public void setUp() throws Exception {
+        headers = new CaseInsensitiveHeaders();
+        when(response.headers()).thenReturn(headers);
+    }
+
+    @Test
+    public void testFinish_Content_Length() throws Exception {
+
+        VertxHttpServletResponse vsr = new VertxHttpServletResponse(response, 16, UnpooledByteBufAllocator.DEFAULT);
+        vsr.setContentType("text/plain; charset=UTF-8");
+
+        PrintWriter writer = vsr.getWriter();
+        writer.print("héllo");
+
+        vsr.finish();
+
+        ArgumentCaptor<Buffer> captor = ArgumentCaptor.forClass(Buffer.class);
+        verify(response).end(captor.capture());
+        verify(response, never()).setChunked(true);
+        verify(response, never()).write(any(Buffer.class));
+
+        assertEquals("héllo", captor.getValue().toString("UTF-8"));
+        assertEquals("6", headers.get("Content-Length"));
+        assertEquals("text/plain;charset=UTF-8", headers.get("Content-Type"));
+        assertTrue(vsr.isCommitted());
+
+    }
+
+    @Test
+    public void testResetBuffer_Pending_Writer_Chars() throws Exception {
+
+        VertxHttpServletResponse vsr = new VertxHttpServletResponse(response, 16, UnpooledByteBufAllocator.DEFAULT);
+
+        // More than the buffer size, still held by the writer's encoder
+        PrintWriter writer = vsr.getWriter();
+        writer.print("discarded output longer than the buffer");
+        vsr.resetBuffer();
+
+        verify(response, never()).write(any(Buffer.class));
+        assertFalse(vsr.isCommitted());
+
+        writer.print("ok");
+        vsr.finish();
+
+        ArgumentCaptor<Buffer> captor = ArgumentCaptor.forClass(Buffer.class);
+        verify(response).end(captor.capture());
+        assertEquals("ok", captor.getValue().toString("UTF-8"));
+
+    }
+
+    @Test
+    public void testFinish_Chunked() throws Exception {
+
+        VertxHttpServletResponse vsr = new VertxHttpServletResponse(response, 4, UnpooledByteBufAllocator.DEFAULT);
+
+        ServletOutputStream out = vsr.getOutputStream();
+        out.write("0123456789".getBytes("UTF-8"));
+
+        vsr.finish();
+
+        ArgumentCaptor<Buffer> captor = ArgumentCaptor.forClass(Buffer.class);
+        verify(response).setChunked(true);
+        verify(response, times(3)).write(captor.capture());
+        verify(response).end();
+
+        List<Buffer> chunks = captor.getAllValues();
+        assertEquals("0123", chunks.get(0).toString());
+        assertEquals("4567", chunks.get(1).toString());
+        assertEquals("89", chunks.get(2).toString());
+
+    }
+
+    @Test
+    public void testFinish_Pooled_Buffers_Released() throws Exception {
+
+        ResourceLeakDetector.Level level = ResourceLeakDetector.getLevel();
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.PARANOID);
+        try {
+            List<ByteBuf> allocated = new ArrayList<>();
+            ByteBufAllocator allocator = spy(new PooledByteBufAllocator(false));
+            doAnswer(invocation -> {
+                ByteBuf buf = (ByteBuf) invocation.callRealMethod();
+                allocated.add(buf);
+                return buf;
+            }).when(allocator).buffer(anyInt());
+
+            // Netty releases a written buffer once it is flushed
+            List<String> written = new ArrayList<>();
+            when(response.write(any(Buffer.class))).thenAnswer(invocation -> {
+                written.add(invocation.getArgument(0).toString());
+                allocated.get(written.size() - 1).release();
+                return response;
+            });
+
+            VertxHttpServletResponse vsr = new VertxHttpServletResponse(response, 4, allocator);
+            vsr.getOutputStream().write("0123456789".getBytes("UTF-8"));
+            vsr.finish();
+
+            verify(response).end();
+
+            // Every flush hands its own pooled buffer to vert.x instead of a copy
+            assertEquals(3, allocated.size());
+            for (ByteBuf buf : allocated) {
+                assertEquals(0, buf.refCnt());
+            }
+            assertEquals("0123", written.get(0));
+            assertEquals("4567", written.get(1));
+            assertEquals("89", written.get(2));
+        } finally {
+            ResourceLeakDetector.setLevel(level);
+        }
+
+    }
+
+    @Test
+    public void testFlush_Write_Failure_Releases_Buffer() throws Exception {
+
+        List<ByteBuf> allocated = new ArrayList<>();
+        ByteBufAllocator allocator = spy(new PooledByteBufAllocator(false));
+        doAnswer(invocation -> {
+            ByteBuf buf = (ByteBuf) invocation.callRealMethod();
+            allocated.add(buf);
+            return buf;
+        }).when(allocator).buffer(anyInt());
+        when(response.write(any(Buffer.class))).thenThrow(new IllegalStateException("Response has already been written"));
+
+        VertxHttpServletResponse vsr = new VertxHttpServletResponse(response, 16, allocator);
+        vsr.getOutputStream().write(new byte[]{1, 2, 3});
+        try {
+            vsr.flushBuffer();
+            fail();
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+
+        assertEquals(1, allocated.size());
+        assertEquals(0, allocated.get(0).refCnt());
+
+    }
+
+    @Test
+    public void testFlush_Explicit_Content_Length() throws Exception {
+
+        VertxHttpServletResponse vsr = new VertxHttpServletResponse(response, 16, UnpooledByteBufAllocator.DEFAULT);
+        vsr.setContentLength(3);
+
+        vsr.getOutputStream().write(new byte[]{1, 2, 3});
+        vsr.flushBuffer();
+        vsr.finish();
+
+        verify(response, never()).setChunked(true);
+        verify(response).write(any(Buffer.class));
+        verify(response).end();
+        assertEquals("3", headers.get("Content-Length"));
+
+        // Headers are ignored once committed
+        vsr.setHeader("X-Test", "a");
+        assertEquals(null, headers.get("X-Test"));
+
+    }
+
+    @Test
+    public void testAddCookie() throws Exception {
+
+        VertxHttpServletResponse vsr = new VertxHttpServletResponse(response);
+
+        Cookie cookie = new Cookie("JSESSIONID", "abc");
+        cookie.setPath("/");
+        cookie.setHttpOnly(true);
+        vsr.addCookie(cookie);
+
+        assertEquals("JSESSIONID=abc; Path=/; HTTPOnly", headers.get("Set-Cookie"));
+
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testGetWriter_After_GetOutputStream() throws Exception {
+
+        VertxHttpServletResponse vsr = new VertxHttpServletResponse(response);
+        vsr.getOutputStream();
+        vsr.getWriter();
+
+    }
+
+}
@@ -0,0 +1,253 @@
+package com.englishtown.vertx.http.impl;
+
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerRequest;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import javax.servlet.ReadListener;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit tests for {@link VertxServletInputStream}
+ */
+public class VertxServletInputStreamTest {
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private HttpServerRequest request;
+
+    private Handler<Buffer> dataHandler;
+    private Handler<Void> endHandler;
+    private Handler<Throwable> exceptionHandler;
+
+    private VertxServletInputStream newStream(int highWaterMark, int lowWaterMark) {
+        return newStream(new VertxServletInputStream(request, highWaterMark, lowWaterMark));
+    }
+
+    @SuppressWarnings("unchecked")
+    private VertxServletInputStream newStream(VertxServletInputStream stream) {
+
+        ArgumentCaptor<Handler> data = ArgumentCaptor.forClass(Handler.class);
+        ArgumentCaptor<Handler> end = ArgumentCaptor.forClass(Handler.class);
+        ArgumentCaptor<Handler> exception = ArgumentCaptor.forClass(Handler.class);
+        verify(request).handler(data.capture());
+        verify(request).endHandler(end.capture());
+        verify(request).exceptionHandler(exception.capture());
+        dataHandler = data.getValue();
+        endHandler = end.getValue();
+        exceptionHandler = exception.getValue();
+
+        return stream;
+    }
+
+    @Test
+    public void testRead() throws Exception {
+
+        VertxServletInputStream stream = newStream(1024, 512);
+        assertFalse(stream.isReady());
+
+        dataHandler.handle(Buffer.buffer("hello "));
+        dataHandler.handle(Buffer.buffer("world"));
+        endHandler.handle(null);
+
+        assertEquals(11, stream.available());
+        assertEquals('h', stream.read());
+        assertEquals("ello world", readAll(stream));
+        assertEquals(-1, stream.read());
+        assertTrue(stream.isFinished());
+
+    }
+
+    @Test
+    public void testPauseResume() throws Exception {
+
+        VertxServletInputStream stream = newStream(8, 4);
+
+        dataHandler.handle(Buffer.buffer("12345"));
+        verify(request, never()).pause();
+        dataHandler.handle(Buffer.buffer("67890"));
+        verify(request).pause();
+
+        byte[] b = new byte[5];
+        assertEquals(5, stream.read(b));
+        verify(request, never()).resume();
+        assertEquals(1, stream.read(b, 0, 1));
+        verify(request).resume();
+
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testPauseResume_Interleaved() throws Exception {
+
+        // Tasks posted to the event loop only run when the test says so
+        Context context = mock(Context.class);
+        Queue<Handler<Void>> tasks = new ArrayDeque<>();
+        doAnswer(invocation -> {
+            tasks.add(invocation.getArgument(0));
+            return null;
+        }).when(context).runOnContext(any());
+        VertxServletInputStream stream = newStream(new VertxServletInputStream(request, 8, 4, context));
+
+        dataHandler.handle(Buffer.buffer("1234567890"));
+        verify(request).pause();
+
+        // The reader drains below the low water mark, the resume is queued behind the event loop
+        byte[] b = new byte[10];
+        assertEquals(10, stream.read(b));
+        assertEquals(1, tasks.size());
+
+        // More data pauses the stream again before the queued resume runs
+        dataHandler.handle(Buffer.buffer("abcdefghij"));
+        tasks.poll().handle(null);
+        verify(request).pause();
+        verify(request, never()).resume();
+
+        assertEquals(10, stream.read(b));
+        tasks.poll().handle(null);
+        verify(request).resume();
+
+    }
+
+    @Test
+    public void testBlockingRead() throws Exception {
+
+        VertxServletInputStream stream = newStream(1024, 512);
+
+        CompletableFuture<String> result = CompletableFuture.supplyAsync(() -> {
+            try {
+                return readAll(stream);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+
+        dataHandler.handle(Buffer.buffer("abc"));
+        Thread.sleep(10);
+        dataHandler.handle(Buffer.buffer("def"));
+        endHandler.handle(null);
+
+        assertEquals("abcdef", result.get(5, TimeUnit.SECONDS));
+
+    }
+
+    @Test(expected = IOException.class)
+    public void testException() throws Exception {
+
+        VertxServletInputStream stream = newStream(1024, 512);
+        exceptionHandler.handle(new RuntimeException("connection reset"));
+
+        stream.read();
+
+    }
+
+    @Test
+    public void testEnded() throws Exception {
+
+        when(request.isEnded()).thenReturn(true);
+        VertxServletInputStream stream = new VertxServletInputStream(request);
+
+        verify(request, never()).handler(any());
+        assertEquals(-1, stream.read());
+        assertTrue(stream.isFinished());
+
+    }
+
+    @Test
+    public void testReadListener() throws Exception {
+
+        VertxServletInputStream stream = newStream(1024, 512);
+        StringBuilder sb = new StringBuilder();
+        boolean[] allRead = new boolean[1];
+
+        stream.setReadListener(new ReadListener() {
+            @Override
+            public void onDataAvailable() throws IOException {
+                byte[] b = new byte[2];
+                while (stream.isReady() && !stream.isFinished()) {
+                    int n = stream.read(b);
+                    if (n > 0) {
+                        sb.append(new String(b, 0, n, "UTF-8"));
+                    }
+                }
+            }
+
+            @Override
+            public void onAllDataRead() throws IOException {
+                allRead[0] = true;
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                fail(t.getMessage());
+            }
+        });
+
+        dataHandler.handle(Buffer.buffer("abc"));
+        assertEquals("abc", sb.toString());
+        assertFalse(allRead[0]);
+
+        dataHandler.handle(Buffer.buffer("de"));
+        endHandler.handle(null);
+
+        assertEquals("abcde", sb.toString());
+        assertTrue(allRead[0]);
+        assertTrue(stream.isFinished());
+
+    }
+
+    @Test
+    public void testReadListener_Error() throws Exception {
+
+        VertxServletInputStream stream = newStream(1024, 512);
+        ReadListener listener = mock(ReadListener.class);
+        stream.setReadListener(listener);
+
+        RuntimeException e = new RuntimeException("connection reset");
+        exceptionHandler.handle(e);
+
+        verify(listener).onError(e);
+        verify(listener, never()).onAllDataRead();
+
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReadListener_Not_Ready() throws Exception {
+
+        VertxServletInputStream stream = newStream(1024, 512);
+        stream.setReadListener(mock(ReadListener.class));
+
+        stream.read();
+
+    }
+
+    private static String readAll(VertxServletInputStream stream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] b = new byte[4];
+        int n;
+        while ((n = stream.read(b)) != -1) {
+            out.write(b, 0, n);
+        }
+        return out.toString("UTF-8");
+    }
+
+}
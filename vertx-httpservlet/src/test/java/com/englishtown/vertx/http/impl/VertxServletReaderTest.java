@@ -0,0 +1,59 @@
+package com.englishtown.vertx.http.impl;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Unit tests for {@link VertxServletReader}
+ */
+public class VertxServletReaderTest {
+
+    @Test
+    public void testRead_Split_Multibyte() throws Exception {
+
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            expected.append("héllo 世界 😀 ");
+        }
+        byte[] bytes = expected.toString().getBytes(StandardCharsets.UTF_8);
+
+        // Return at most 3 bytes per read so multi-byte sequences are split across reads
+        InputStream in = new ByteArrayInputStream(bytes) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 3));
+            }
+        };
+
+        assertEquals(expected.toString(), readAll(new VertxServletReader(in, StandardCharsets.UTF_8)));
+
+    }
+
+    @Test
+    public void testRead_Malformed() throws Exception {
+
+        byte[] bytes = {'a', (byte) 0xC3};
+        VertxServletReader reader = new VertxServletReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8);
+
+        assertEquals("a�", readAll(reader));
+        assertEquals(-1, reader.read());
+
+    }
+
+    private static String readAll(VertxServletReader reader) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        char[] c = new char[7];
+        int n;
+        while ((n = reader.read(c)) != -1) {
+            sb.append(c, 0, n);
+        }
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,259 @@
+package com.englishtown.vertx.http.impl;
+
+import io.vertx.core.MultiMap;
+import io.vertx.core.Vertx;
+import io.vertx.core.http.CaseInsensitiveHeaders;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import javax.servlet.SessionCookieConfig;
+import javax.servlet.http.HttpSession;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link VertxSessionManager}
+ */
+public class VertxSessionManagerTest {
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private Vertx vertx;
+
+    private MapSessionStore store;
+    private VertxSessionManager manager;
+
+    @Before
+    public void setUp() throws Exception {
+        store = new MapSessionStore();
+        manager = new VertxSessionManager(vertx, store, VertxSessionManager.DEFAULT_SWEEP_INTERVAL);
+    }
+
+    @Test
+    public void testCreateAndLoad() throws Exception {
+
+        MultiMap responseHeaders = new CaseInsensitiveHeaders();
+        VertxHttpServletRequest request = createRequest(null, responseHeaders);
+        assertNull(request.getSession(false));
+        assertNull(request.getRequestedSessionId());
+
+        HttpSession session = request.getSession();
+        assertTrue(session.isNew());
+        assertSame(session, request.getSession(false));
+        session.setAttribute("user", "alice");
+        String setCookie = responseHeaders.get("Set-Cookie");
+        assertTrue(setCookie, setCookie.startsWith("JSESSIONID=" + session.getId()));
+        assertTrue(setCookie, setCookie.contains("HTTPOnly"));
+
+        // Not stored until the request is released
+        assertNull(store.map.get(session.getId()));
+        request.release();
+        assertEquals("alice", store.map.get(session.getId()).getAttributes().get("user"));
+
+        VertxServletContext context = new VertxServletContext();
+        request = createRequest(session.getId(), new CaseInsensitiveHeaders());
+        request.setServletContext(context);
+        HttpSession loaded = request.getSession(false);
+        assertNotNull(loaded);
+        assertFalse(loaded.isNew());
+        assertSame(context, loaded.getServletContext());
+        assertEquals("alice", loaded.getAttribute("user"));
+        assertTrue(request.isRequestedSessionIdValid());
+        assertTrue(request.isRequestedSessionIdFromCookie());
+
+    }
+
+    @Test
+    public void testUnknownSession() throws Exception {
+
+        MultiMap responseHeaders = new CaseInsensitiveHeaders();
+        VertxHttpServletRequest request = createRequest("unknown", responseHeaders);
+        assertNull(request.getSession(false));
+        assertFalse(request.isRequestedSessionIdValid());
+
+        HttpSession session = request.getSession(true);
+        assertNotEquals("unknown", session.getId());
+        assertFalse(request.isRequestedSessionIdValid());
+        assertNotNull(responseHeaders.get("Set-Cookie"));
+
+    }
+
+    @Test
+    public void testConcurrentRequestsMerge() throws Exception {
+
+        store.put(new SessionData("s1", 0, System.currentTimeMillis(), 60,
+                Collections.<String, Object>singletonMap("kept", "value")));
+
+        VertxHttpServletRequest first = createRequest("s1", new CaseInsensitiveHeaders());
+        VertxHttpServletRequest second = createRequest("s1", new CaseInsensitiveHeaders());
+        first.getSession().setAttribute("a", 1);
+        second.getSession().setAttribute("b", 2);
+        second.getSession().removeAttribute("kept");
+        first.release();
+        second.release();
+
+        Map<String, Object> attributes = store.map.get("s1").getAttributes();
+        assertEquals(2, attributes.size());
+        assertEquals(1, attributes.get("a"));
+        assertEquals(2, attributes.get("b"));
+        assertEquals(2, store.updates);
+
+    }
+
+    @Test
+    public void testUnchangedSessionNotWritten() throws Exception {
+
+        store.put(new SessionData("s1", 0, System.currentTimeMillis(), 60, Collections.<String, Object>emptyMap()));
+
+        VertxHttpServletRequest request = createRequest("s1", new CaseInsensitiveHeaders());
+        assertNull(request.getSession().getAttribute("a"));
+        request.release();
+        assertEquals(0, store.updates);
+
+    }
+
+    @Test
+    public void testExpired() throws Exception {
+
+        store.put(new SessionData("s1", 0, 0, 60, Collections.<String, Object>emptyMap()));
+
+        VertxHttpServletRequest request = createRequest("s1", new CaseInsensitiveHeaders());
+        assertNull(request.getSession(false));
+        assertFalse(store.map.containsKey("s1"));
+
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+
+        store.put(new SessionData("s1", 0, System.currentTimeMillis(), 60, Collections.<String, Object>emptyMap()));
+
+        VertxHttpServletRequest request = createRequest("s1", new CaseInsensitiveHeaders());
+        HttpSession session = request.getSession();
+        session.invalidate();
+        assertFalse(store.map.containsKey("s1"));
+        assertNull(request.getSession(false));
+
+        try {
+            session.getAttribute("a");
+            fail();
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+
+        request.release();
+        assertFalse(store.map.containsKey("s1"));
+
+    }
+
+    @Test
+    public void testChangeSessionId() throws Exception {
+
+        store.put(new SessionData("s1", 0, System.currentTimeMillis(), 60,
+                Collections.<String, Object>singletonMap("a", 1)));
+
+        VertxHttpServletRequest request = createRequest("s1", new CaseInsensitiveHeaders());
+        HttpSession session = request.getSession();
+        session.setAttribute("b", 2);
+        String id = request.changeSessionId();
+        assertNotEquals("s1", id);
+        assertEquals(id, session.getId());
+        assertFalse(store.map.containsKey("s1"));
+        assertEquals(2, store.map.get(id).getAttributes().size());
+
+    }
+
+    @Test
+    public void testSessionCookieConfig() throws Exception {
+
+        VertxServletContext context = new VertxServletContext();
+        context.setSessionManager(manager);
+        SessionCookieConfig config = context.getSessionCookieConfig();
+        config.setName("SID");
+        config.setDomain("example.com");
+        config.setMaxAge(600);
+        context.init();
+
+        MultiMap responseHeaders = new CaseInsensitiveHeaders();
+        HttpSession session = createRequest(null, responseHeaders).getSession();
+        String setCookie = responseHeaders.get("Set-Cookie");
+        assertTrue(setCookie, setCookie.startsWith("SID=" + session.getId()));
+        assertTrue(setCookie, setCookie.contains("Domain=example.com"));
+        assertTrue(setCookie, setCookie.contains("Max-Age=600"));
+        assertEquals("SID", manager.getCookieName());
+
+        try {
+            config.setName("OTHER");
+            fail("Cookie settings changed after the context was initialized");
+        } catch (IllegalStateException expected) {
+            // As the spec requires
+        }
+
+    }
+
+    private VertxHttpServletRequest createRequest(String sessionId, MultiMap responseHeaders) {
+        HttpServerRequest request = mock(HttpServerRequest.class);
+        HttpServerResponse response = mock(HttpServerResponse.class);
+        MultiMap headers = new CaseInsensitiveHeaders();
+        if (sessionId != null) {
+            headers.add("Cookie", "JSESSIONID=" + sessionId);
+        }
+        when(request.headers()).thenReturn(headers);
+        when(request.absoluteURI()).thenReturn("http://localhost/admin");
+        when(request.response()).thenReturn(response);
+        when(response.headers()).thenReturn(responseHeaders);
+
+        VertxHttpServletRequest servletRequest = new VertxHttpServletRequest(request);
+        servletRequest.setServletResponse(new VertxHttpServletResponse(response));
+        servletRequest.setSessionManager(manager);
+        return servletRequest;
+    }
+
+    private static final class MapSessionStore implements SessionStore {
+
+        private final Map<String, SessionData> map = new HashMap<>();
+        private int updates;
+
+        @Override
+        public SessionData get(String id) {
+            return map.get(id);
+        }
+
+        @Override
+        public void put(SessionData data) {
+            map.put(data.getId(), data);
+        }
+
+        @Override
+        public void update(String id, UnaryOperator<SessionData> update) {
+            updates++;
+            map.computeIfPresent(id, (key, data) -> update.apply(data));
+        }
+
+        @Override
+        public void remove(String id) {
+            map.remove(id);
+        }
+
+        @Override
+        public void sweep(long now) {
+            map.values().removeIf(data -> data.isExpired(now));
+        }
+
+    }
+
+}
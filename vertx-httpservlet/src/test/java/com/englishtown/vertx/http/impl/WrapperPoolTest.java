@@ -0,0 +1,135 @@
+package com.englishtown.vertx.http.impl;
+
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.MultiMap;
+import io.vertx.core.http.CaseInsensitiveHeaders;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+
+/**
+ * Unit tests for {@link WrapperPool}
+ */
+public class WrapperPoolTest {
+
+    @Rule
+    public MockitoRule mockitoRule = MockitoJUnit.rule();
+
+    @Mock
+    private Context context;
+    @Mock
+    private HttpServerRequest request;
+    @Mock
+    private HttpServerResponse response;
+
+    private MultiMap headers;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+        Map<String, Object> data = new HashMap<>();
+        when(context.get(anyString())).thenAnswer(invocation -> data.get(invocation.<String>getArgument(0)));
+        doAnswer(invocation -> data.put(invocation.getArgument(0), invocation.getArgument(1)))
+                .when(context).put(anyString(), any());
+        doAnswer(invocation -> {
+            invocation.<Handler<Void>>getArgument(0).handle(null);
+            return null;
+        }).when(context).runOnContext(any());
+
+        headers = new CaseInsensitiveHeaders();
+        when(request.response()).thenReturn(response);
+        when(request.headers()).thenReturn(headers);
+        when(response.headers()).thenReturn(new CaseInsensitiveHeaders());
+    }
+
+    @Test
+    public void testRecycle() throws Exception {
+
+        WrapperPool pool = new WrapperPool(WrapperPool.DEFAULT_MAX_SIZE, false);
+
+        headers.add("Cookie", "a=1");
+        VertxHttpServletRequest first = pool.acquire(context, request);
+        VertxHttpServletResponse firstResponse = (VertxHttpServletResponse) first.getServletResponse();
+        first.setAttribute("attr", "value");
+        assertEquals(1, first.getCookies().length);
+        firstResponse.setContentType("text/plain");
+        first.release();
+
+        headers.clear();
+        VertxHttpServletRequest second = pool.acquire(context, request);
+        assertSame(first, second);
+        assertSame(firstResponse, second.getServletResponse());
+        assertSame(request, second.getHttpServerRequest());
+        assertNull(second.getAttribute("attr"));
+        assertEquals(0, second.getCookies().length);
+        assertNull(firstResponse.getContentType());
+
+    }
+
+    @Test
+    public void testMaxSize() throws Exception {
+
+        WrapperPool pool = new WrapperPool(1, false);
+
+        VertxHttpServletRequest first = pool.acquire(context, request);
+        VertxHttpServletRequest second = pool.acquire(context, request);
+        first.release();
+        second.release();
+
+        assertSame(first, pool.acquire(context, request));
+        assertNotSame(second, pool.acquire(context, request));
+
+    }
+
+    @Test
+    public void testNoContext() throws Exception {
+
+        WrapperPool pool = new WrapperPool(WrapperPool.DEFAULT_MAX_SIZE, false);
+
+        VertxHttpServletRequest first = pool.acquire(null, request);
+        first.release();
+        assertNotSame(first, pool.acquire(null, request));
+
+    }
+
+    @Test
+    public void testDebugUseAfterRecycle() throws Exception {
+
+        WrapperPool pool = new WrapperPool(WrapperPool.DEFAULT_MAX_SIZE, true);
+
+        VertxHttpServletRequest first = pool.acquire(context, request);
+        first.release();
+
+        try {
+            first.getHeader("Host");
+            fail();
+        } catch (IllegalStateException e) {
+            assertNotNull(e.getCause());
+        }
+        try {
+            first.getServletResponse().setContentType("text/plain");
+            first.getServletResponse().flushBuffer();
+            fail();
+        } catch (IllegalStateException e) {
+            // Expected
+        }
+        assertNotSame(first, pool.acquire(context, request));
+
+    }
+
+}